@@ -0,0 +1,6 @@
+# Hook classes are kept as written: StatusBarHook is loaded by name from
+# assets/xposed_init, and Xposed log lines should match the sources
+-keep class com.example.forcestatusbar.hook.** { *; }
+
+# Readable stack traces in the Xposed log
+-keepattributes SourceFile,LineNumberTable
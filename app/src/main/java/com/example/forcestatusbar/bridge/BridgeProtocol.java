@@ -0,0 +1,86 @@
+package com.example.forcestatusbar.bridge;
+
+/**
+ * Broadcast protocol between the module app and hooked processes.
+ *
+ * The module app sends {@link #ACTION_REQUEST_STATS} to everyone; each hooked
+ * process answers with {@link #ACTION_STATS_REPORT} addressed to the module
+ * package only. Frame histograms are only included when the package has the
+ * frame monitor enabled. Hooked processes only answer holders of
+ * {@link #PERMISSION_PUSH_CONFIG} and send the report to holders only. They
+ * cannot hold the permission themselves, so each report carries a
+ * PendingIntent created by the reporting package as {@link #EXTRA_SENDER}, and
+ * the module drops reports whose package name does not match its creator.
+ *
+ * After saving or removing an entry the module app sends
+ * {@link #ACTION_CONFIG_CHANGED} with the settings now in effect for that name.
+ * Hooked processes only accept it from holders of {@link #PERMISSION_PUSH_CONFIG},
+ * a signature permission of the module.
+ */
+public final class BridgeProtocol {
+    
+    public static final String ACTION_REQUEST_STATS = "com.example.forcestatusbar.action.REQUEST_STATS";
+    public static final String ACTION_STATS_REPORT = "com.example.forcestatusbar.action.STATS_REPORT";
+    public static final String ACTION_CONFIG_CHANGED = "com.example.forcestatusbar.action.CONFIG_CHANGED";
+    
+    public static final String PERMISSION_PUSH_CONFIG = "com.example.forcestatusbar.permission.PUSH_CONFIG";
+    
+    public static final String EXTRA_PACKAGE = "package";
+    public static final String EXTRA_PROCESS = "process";
+    public static final String EXTRA_CALLS = "calls";
+    public static final String EXTRA_REWRITES = "rewrites";
+    public static final String EXTRA_TOTAL_NS = "total_ns";
+    public static final String EXTRA_LATENCY = "latency";
+    public static final String EXTRA_FRAMES = "frames";
+    public static final String EXTRA_JANKS = "janks";
+    // {fight-back loops detected, calls swallowed on settled windows}
+    public static final String EXTRA_FIGHT_BACKS = "fight_backs";
+    // A PendingIntent created by the reporting package, proves where the report comes from
+    public static final String EXTRA_SENDER = "sender";
+    // Config push: the changed package / process name, the settings version and the settings (a Bundle)
+    public static final String EXTRA_NAME = "name";
+    public static final String EXTRA_VERSION = "version";
+    public static final String EXTRA_CONFIG = "config";
+    
+    // Hook ids, index into the per-hook arrays of a report
+    public static final int HOOK_SET_FLAGS = 0;
+    public static final int HOOK_ADD_FLAGS = 1;
+    public static final int HOOK_CLEAR_FLAGS = 2;
+    public static final int HOOK_SYSTEM_UI_VISIBILITY = 3;
+    public static final int HOOK_INSETS_HIDE = 4;
+    public static final int HOOK_STATUS_BAR_COLOR = 5;
+    public static final int HOOK_ENFORCE = 6;
+    public static final int HOOK_DISPLAY_METRICS = 7;
+    public static final int HOOK_COUNT = 8;
+    
+    public static final String[] HOOK_NAMES = {
+        "setFlags",
+        "addFlags",
+        "clearFlags",
+        "setSystemUiVisibility",
+        "InsetsController.hide",
+        "setStatusBarColor",
+        "enforce",
+        "Display.getMetrics"
+    };
+    
+    // Upper bounds (exclusive) of the latency buckets, the last bucket is open-ended
+    public static final long[] LATENCY_BOUNDS_NS = {
+        1000L, 2000L, 5000L, 10000L, 20000L, 50000L, 100000L, 200000L, 500000L, 1000000L
+    };
+    public static final int LATENCY_BUCKETS = LATENCY_BOUNDS_NS.length + 1;
+    
+    // Frame monitor phases: normal frames and frames right after an enforcement
+    public static final int FRAME_PHASE_BASELINE = 0;
+    public static final int FRAME_PHASE_AFTER_ENFORCE = 1;
+    public static final int FRAME_PHASES = 2;
+    
+    // Upper bounds (exclusive) of the frame duration buckets, the last bucket is open-ended
+    public static final long[] FRAME_BOUNDS_NS = {
+        4000000L, 8000000L, 12000000L, 16700000L, 25000000L, 33400000L, 50000000L, 100000000L, 200000000L
+    };
+    public static final int FRAME_BUCKETS = FRAME_BOUNDS_NS.length + 1;
+    
+    private BridgeProtocol() {
+    }
+}
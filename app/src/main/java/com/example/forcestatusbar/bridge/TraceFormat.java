@@ -0,0 +1,70 @@
+package com.example.forcestatusbar.bridge;
+
+import java.nio.ByteOrder;
+
+/**
+ * Layout of the call trace a hooked process writes when "trace calls" is on.
+ *
+ * The file is a header followed by a ring of fixed-width records, all
+ * little-endian. {@link #HEADER_NEXT} holds the sequence number of the next
+ * record to write; record {@code n} lives in slot {@code n % capacity}, so a
+ * reader takes the last {@code min(next, capacity)} records in order. The
+ * file is memory-mapped by the writer, so it is complete up to the last
+ * record even when the process dies.
+ *
+ * Intercepted calls carry the hook id, the window, the arguments before and
+ * after the hook and, for Window hooks, the window flags before the call.
+ * {@link #HOOK_CONFIG} records carry the settings in effect from then on;
+ * the writer repeats them at the start of each lap of the ring, and a reader
+ * applies the first one it finds to the calls before it.
+ */
+public final class TraceFormat {
+    
+    public static final int MAGIC = 0x54425346; // "FSBT"
+    public static final int VERSION = 1;
+    public static final ByteOrder ORDER = ByteOrder.LITTLE_ENDIAN;
+    
+    // Header: int magic, int version, int record size, int capacity, long next, long reserved
+    public static final int HEADER_MAGIC = 0;
+    public static final int HEADER_VERSION = 4;
+    public static final int HEADER_RECORD_SIZE = 8;
+    public static final int HEADER_CAPACITY = 12;
+    public static final int HEADER_NEXT = 16;
+    public static final int HEADER_SIZE = 32;
+    
+    // Record: System.nanoTime of the call, hook id, outcome, window id, arguments in and out, state
+    public static final int RECORD_TIME = 0;
+    public static final int RECORD_HOOK = 8;
+    public static final int RECORD_OUTCOME = 9;
+    public static final int RECORD_WINDOW = 12;
+    public static final int RECORD_ARG0 = 16;
+    public static final int RECORD_ARG1 = 20;
+    public static final int RECORD_OUT0 = 24;
+    public static final int RECORD_OUT1 = 28;
+    public static final int RECORD_STATE = 32;
+    public static final int RECORD_SIZE = 40;
+    
+    public static final int CAPACITY = 16384;
+    
+    // Call went through unchanged, with rewritten arguments, or was not made at all
+    public static final int OUTCOME_PASSED = 0;
+    public static final int OUTCOME_REWRITTEN = 1;
+    public static final int OUTCOME_SKIPPED = 2;
+    
+    // Hook ids are BridgeProtocol's; ViewRootImpl.collectViewAttributes, counted as setSystemUiVisibility
+    // in the stats, has its own here since it takes two arguments (subtree and own visibility)
+    public static final int HOOK_COLLECT_VIEW_ATTRIBUTES = 0x80;
+    
+    // Hook id of a settings record: arg0 option bits, arg1 color override, state strategy,
+    // out0 / out1 the statusBars / navigationBars inset types
+    public static final int HOOK_CONFIG = 0xFF;
+    public static final int CONFIG_ENABLED = 1;
+    public static final int CONFIG_ALLOW_HIDE_NAVIGATION = 1 << 1;
+    
+    private TraceFormat() {
+    }
+    
+    public static int fileSize(int capacity) {
+        return HEADER_SIZE + capacity * RECORD_SIZE;
+    }
+}
@@ -0,0 +1,223 @@
+package com.example.forcestatusbar.config;
+
+import android.content.SharedPreferences;
+import android.os.Bundle;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Shared preference layout written by the module UI and read by hooked processes
+ * (through XSharedPreferences).
+ *
+ * Entries are keyed by package name or by full process name ("com.foo:push"),
+ * a process entry wins over its package entry.
+ */
+public final class ModuleConfig {
+    
+    public static final String MODULE_PACKAGE = "com.example.forcestatusbar";
+    public static final String PREFS_NAME = "config";
+    
+    private static final String KEY_PACKAGES = "packages";
+    private static final String KEY_LOG_LEVEL = "log_level";
+    private static final String KEY_SYSTEM_SERVER_MODE = "system_server_mode";
+    private static final String KEY_VERSION = "version";
+    
+    // Bundle key of the entry name, the suffixes below are the other keys
+    private static final String KEY_NAME = "name";
+    
+    private static final String SUFFIX_ENABLED = ":enabled";
+    private static final String SUFFIX_STRATEGY = ":strategy";
+    private static final String SUFFIX_COLOR = ":color";
+    private static final String SUFFIX_ALLOW_HIDE_NAVIGATION = ":allow_hide_navigation";
+    private static final String SUFFIX_FRAME_MONITOR = ":frame_monitor";
+    private static final String SUFFIX_DISPLAY_METRICS = ":display_metrics";
+    private static final String SUFFIX_TOUCH_OFFSET = ":touch_offset";
+    private static final String SUFFIX_SURFACE_SAFE = ":surface_safe";
+    private static final String SUFFIX_SAMPLE_COLOR = ":sample_color";
+    private static final String SUFFIX_TRACE_CALLS = ":trace_calls";
+    
+    // Matches HookLog.INFO
+    public static final int DEFAULT_LOG_LEVEL = 2;
+    
+    private ModuleConfig() {
+    }
+    
+    /**
+     * Resolve the settings for a process, falling back to its package and then to defaults
+     */
+    public static PackageConfig forProcess(SharedPreferences prefs, String packageName, String processName) {
+        if (processName != null && !processName.equals(packageName) && isConfigured(prefs, processName)) {
+            return read(prefs, processName);
+        }
+        if (isConfigured(prefs, packageName)) {
+            return read(prefs, packageName);
+        }
+        return PackageConfig.defaults(packageName);
+    }
+    
+    public static boolean isConfigured(SharedPreferences prefs, String name) {
+        return prefs.contains(name + SUFFIX_ENABLED);
+    }
+    
+    public static PackageConfig read(SharedPreferences prefs, String name) {
+        PackageConfig defaults = PackageConfig.defaults(name);
+        return new PackageConfig(
+            name,
+            prefs.getBoolean(name + SUFFIX_ENABLED, defaults.enabled),
+            prefs.getInt(name + SUFFIX_STRATEGY, defaults.strategy),
+            prefs.getInt(name + SUFFIX_COLOR, defaults.colorOverride),
+            prefs.getBoolean(name + SUFFIX_ALLOW_HIDE_NAVIGATION, defaults.allowHideNavigation),
+            prefs.getBoolean(name + SUFFIX_FRAME_MONITOR, defaults.frameMonitor),
+            prefs.getBoolean(name + SUFFIX_DISPLAY_METRICS, defaults.compensateDisplayMetrics),
+            prefs.getBoolean(name + SUFFIX_TOUCH_OFFSET, defaults.correctTouchOffset),
+            prefs.getBoolean(name + SUFFIX_SURFACE_SAFE, defaults.surfaceSafe),
+            prefs.getBoolean(name + SUFFIX_SAMPLE_COLOR, defaults.sampleColor),
+            prefs.getBoolean(name + SUFFIX_TRACE_CALLS, defaults.traceCalls)
+        );
+    }
+    
+    public static void write(SharedPreferences prefs, PackageConfig config) {
+        Set<String> names = new HashSet<>(configuredNames(prefs));
+        names.add(config.name);
+        prefs.edit()
+            .putStringSet(KEY_PACKAGES, names)
+            .putBoolean(config.name + SUFFIX_ENABLED, config.enabled)
+            .putInt(config.name + SUFFIX_STRATEGY, config.strategy)
+            .putInt(config.name + SUFFIX_COLOR, config.colorOverride)
+            .putBoolean(config.name + SUFFIX_ALLOW_HIDE_NAVIGATION, config.allowHideNavigation)
+            .putBoolean(config.name + SUFFIX_FRAME_MONITOR, config.frameMonitor)
+            .putBoolean(config.name + SUFFIX_DISPLAY_METRICS, config.compensateDisplayMetrics)
+            .putBoolean(config.name + SUFFIX_TOUCH_OFFSET, config.correctTouchOffset)
+            .putBoolean(config.name + SUFFIX_SURFACE_SAFE, config.surfaceSafe)
+            .putBoolean(config.name + SUFFIX_SAMPLE_COLOR, config.sampleColor)
+            .putBoolean(config.name + SUFFIX_TRACE_CALLS, config.traceCalls)
+            .putLong(KEY_VERSION, version(prefs) + 1)
+            .apply();
+    }
+    
+    public static void remove(SharedPreferences prefs, String name) {
+        Set<String> names = new HashSet<>(configuredNames(prefs));
+        names.remove(name);
+        prefs.edit()
+            .putStringSet(KEY_PACKAGES, names)
+            .remove(name + SUFFIX_ENABLED)
+            .remove(name + SUFFIX_STRATEGY)
+            .remove(name + SUFFIX_COLOR)
+            .remove(name + SUFFIX_ALLOW_HIDE_NAVIGATION)
+            .remove(name + SUFFIX_FRAME_MONITOR)
+            .remove(name + SUFFIX_DISPLAY_METRICS)
+            .remove(name + SUFFIX_TOUCH_OFFSET)
+            .remove(name + SUFFIX_SURFACE_SAFE)
+            .remove(name + SUFFIX_SAMPLE_COLOR)
+            .remove(name + SUFFIX_TRACE_CALLS)
+            .putLong(KEY_VERSION, version(prefs) + 1)
+            .apply();
+    }
+    
+    /**
+     * Bumped by every write and remove, so pushed settings can be ordered
+     */
+    public static long version(SharedPreferences prefs) {
+        return prefs.getLong(KEY_VERSION, 0);
+    }
+    
+    /**
+     * What processes running under a configured name use now: its entry, or what they fall back to
+     */
+    public static PackageConfig effective(SharedPreferences prefs, String name) {
+        int colon = name.indexOf(':');
+        return forProcess(prefs, colon < 0 ? name : name.substring(0, colon), name);
+    }
+    
+    /**
+     * Settings as a broadcast extra, same keys as the preferences without the name prefix
+     */
+    public static Bundle toBundle(PackageConfig config) {
+        Bundle bundle = new Bundle();
+        bundle.putString(KEY_NAME, config.name);
+        bundle.putBoolean(SUFFIX_ENABLED, config.enabled);
+        bundle.putInt(SUFFIX_STRATEGY, config.strategy);
+        bundle.putInt(SUFFIX_COLOR, config.colorOverride);
+        bundle.putBoolean(SUFFIX_ALLOW_HIDE_NAVIGATION, config.allowHideNavigation);
+        bundle.putBoolean(SUFFIX_FRAME_MONITOR, config.frameMonitor);
+        bundle.putBoolean(SUFFIX_DISPLAY_METRICS, config.compensateDisplayMetrics);
+        bundle.putBoolean(SUFFIX_TOUCH_OFFSET, config.correctTouchOffset);
+        bundle.putBoolean(SUFFIX_SURFACE_SAFE, config.surfaceSafe);
+        bundle.putBoolean(SUFFIX_SAMPLE_COLOR, config.sampleColor);
+        bundle.putBoolean(SUFFIX_TRACE_CALLS, config.traceCalls);
+        return bundle;
+    }
+    
+    public static PackageConfig fromBundle(Bundle bundle) {
+        String name = bundle.getString(KEY_NAME, "");
+        PackageConfig defaults = PackageConfig.defaults(name);
+        return new PackageConfig(
+            name,
+            bundle.getBoolean(SUFFIX_ENABLED, defaults.enabled),
+            bundle.getInt(SUFFIX_STRATEGY, defaults.strategy),
+            bundle.getInt(SUFFIX_COLOR, defaults.colorOverride),
+            bundle.getBoolean(SUFFIX_ALLOW_HIDE_NAVIGATION, defaults.allowHideNavigation),
+            bundle.getBoolean(SUFFIX_FRAME_MONITOR, defaults.frameMonitor),
+            bundle.getBoolean(SUFFIX_DISPLAY_METRICS, defaults.compensateDisplayMetrics),
+            bundle.getBoolean(SUFFIX_TOUCH_OFFSET, defaults.correctTouchOffset),
+            bundle.getBoolean(SUFFIX_SURFACE_SAFE, defaults.surfaceSafe),
+            bundle.getBoolean(SUFFIX_SAMPLE_COLOR, defaults.sampleColor),
+            bundle.getBoolean(SUFFIX_TRACE_CALLS, defaults.traceCalls)
+        );
+    }
+    
+    /**
+     * All configured package / process names, sorted
+     */
+    public static Set<String> configuredNames(SharedPreferences prefs) {
+        Set<String> names = prefs.getStringSet(KEY_PACKAGES, null);
+        return names != null ? new TreeSet<>(names) : new TreeSet<String>();
+    }
+    
+    /**
+     * Whether configured packages are enforced once in system_server instead of in their own processes
+     */
+    public static boolean systemServerMode(SharedPreferences prefs) {
+        return prefs.getBoolean(KEY_SYSTEM_SERVER_MODE, false);
+    }
+    
+    public static void setSystemServerMode(SharedPreferences prefs, boolean enabled) {
+        prefs.edit().putBoolean(KEY_SYSTEM_SERVER_MODE, enabled).apply();
+    }
+    
+    /**
+     * Enabled package entries (process entries do not apply, windows are matched by package)
+     */
+    public static List<PackageConfig> systemServerPackages(SharedPreferences prefs) {
+        List<PackageConfig> configs = new ArrayList<>();
+        for (String name : configuredNames(prefs)) {
+            if (name.indexOf(':') < 0) {
+                PackageConfig config = read(prefs, name);
+                if (config.enabled) {
+                    configs.add(config);
+                }
+            }
+        }
+        return configs;
+    }
+    
+    /**
+     * Whether system_server already enforces this package, so its processes need no hooks
+     */
+    public static boolean isEnforcedBySystemServer(SharedPreferences prefs, String packageName) {
+        return systemServerMode(prefs) && isConfigured(prefs, packageName)
+            && read(prefs, packageName).enabled;
+    }
+    
+    public static int logLevel(SharedPreferences prefs) {
+        return prefs.getInt(KEY_LOG_LEVEL, DEFAULT_LOG_LEVEL);
+    }
+    
+    public static void setLogLevel(SharedPreferences prefs, int level) {
+        prefs.edit().putInt(KEY_LOG_LEVEL, level).apply();
+    }
+}
@@ -0,0 +1,67 @@
+package com.example.forcestatusbar.config;
+
+import android.os.Build;
+
+/**
+ * Immutable per-package (or per-process) settings, read once by the hook
+ */
+public final class PackageConfig {
+    
+    // Pad android.R.id.content by the status bar inset
+    public static final int STRATEGY_PADDING = 0;
+    // Let the content view consume the insets via fitsSystemWindows
+    public static final int STRATEGY_FITS_SYSTEM_WINDOWS = 1;
+    // Only keep the bar visible and colored, leave the layout alone
+    public static final int STRATEGY_COLOR_ONLY = 2;
+    
+    // No override, use the app's theme color
+    public static final int COLOR_THEME = 0;
+    
+    public final String name;
+    public final boolean enabled;
+    public final int strategy;
+    public final int colorOverride;
+    // Let the app hide the navigation bar (the status bar always stays visible)
+    public final boolean allowHideNavigation;
+    // Record frame times before/after enforcement and report them to the module app
+    public final boolean frameMonitor;
+    // Report Display.getMetrics/getSize heights without the status bar, for apps sizing themselves from them
+    public final boolean compensateDisplayMetrics;
+    // Shift touch input up by the status bar inset, for apps that map touches as if still fullscreen
+    public final boolean correctTouchOffset;
+    // Windows rendering to a SurfaceView/TextureView get their layout once, before the first surface
+    public final boolean surfaceSafe;
+    // Follow the color of the content right below the status bar instead of the theme
+    public final boolean sampleColor;
+    // Write every intercepted call to a binary trace in the app's cache directory, for offline replay
+    public final boolean traceCalls;
+    
+    public PackageConfig(String name, boolean enabled, int strategy, int colorOverride, boolean allowHideNavigation,
+            boolean frameMonitor, boolean compensateDisplayMetrics, boolean correctTouchOffset, boolean surfaceSafe,
+            boolean sampleColor, boolean traceCalls) {
+        this.name = name;
+        this.enabled = enabled;
+        this.strategy = strategy;
+        this.colorOverride = colorOverride;
+        this.allowHideNavigation = allowHideNavigation;
+        this.frameMonitor = frameMonitor;
+        this.compensateDisplayMetrics = compensateDisplayMetrics;
+        this.correctTouchOffset = correctTouchOffset;
+        this.surfaceSafe = surfaceSafe;
+        this.sampleColor = sampleColor;
+        this.traceCalls = traceCalls;
+    }
+    
+    /**
+     * Settings for a package the user never configured (the module's original behavior)
+     */
+    public static PackageConfig defaults(String name) {
+        int strategy = Build.VERSION.SDK_INT >= Build.VERSION_CODES.R
+                ? STRATEGY_PADDING : STRATEGY_FITS_SYSTEM_WINDOWS;
+        return new PackageConfig(name, true, strategy, COLOR_THEME, false, false, false, false, false, false, false);
+    }
+    
+    public boolean hasColorOverride() {
+        return colorOverride != COLOR_THEME;
+    }
+}
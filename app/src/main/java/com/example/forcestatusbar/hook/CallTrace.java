@@ -0,0 +1,133 @@
+package com.example.forcestatusbar.hook;
+
+import com.example.forcestatusbar.bridge.TraceFormat;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Opt-in binary trace of the intercepted calls of this process.
+ *
+ * Every call a Window/View hook counts in {@link HookStats} is also written
+ * here as one fixed-width record (see {@link TraceFormat}) into a ring mapped
+ * from {@code forcestatusbar-<process>.trace} in the app's cache directory.
+ * The previous trace of the process is kept as {@code .trace.1}, so a trace
+ * survives the app being restarted after a crash. Writing a record is a few
+ * absolute puts under an uncontended lock; nothing is allocated and nothing
+ * waits for I/O, the kernel writes the pages back on its own.
+ *
+ * Pull the file with {@code adb} and feed it to the replay tool of the
+ * benchmark module to run the calls through the hook logic again on a JVM.
+ */
+final class CallTrace {
+    
+    private static volatile boolean enabled;
+    
+    // Guarded by the class
+    private static boolean wanted;
+    private static File file;
+    private static ByteBuffer buffer;
+    private static long next;
+    
+    private CallTrace() {
+    }
+    
+    /**
+     * Where this process writes its trace; the file is only created once tracing is turned on
+     */
+    static synchronized void init(File dir, String processName) {
+        if (file != null || dir == null) {
+            return;
+        }
+        file = new File(dir, "forcestatusbar-" + processName.replace(':', '_') + ".trace");
+        setEnabled(wanted);
+    }
+    
+    /**
+     * Turned on and off by the package settings; each time it is on the settings in effect are recorded
+     */
+    static synchronized void setEnabled(boolean on) {
+        wanted = on;
+        if (on && buffer == null && file != null) {
+            buffer = open(file);
+        }
+        enabled = on && buffer != null;
+        if (enabled) {
+            recordConfig(ConfigSnapshot.current());
+        }
+    }
+    
+    static boolean isEnabled() {
+        return enabled;
+    }
+    
+    /**
+     * Record one intercepted call; {@code key} is the object the hook reports attempts for
+     */
+    static void record(int hook, long time, Object key, int arg0, int arg1, int out0, int out1, int state,
+            int outcome) {
+        if (!enabled) {
+            return;
+        }
+        int window = FightBackDetector.idOf(key);
+        synchronized (CallTrace.class) {
+            // Each lap of the ring starts with the settings, so a trace that wrapped still has them
+            if (next % TraceFormat.CAPACITY == 0) {
+                recordConfig(ConfigSnapshot.current());
+            }
+            write(hook, time, window, arg0, arg1, out0, out1, state, outcome);
+        }
+    }
+    
+    private static void recordConfig(ConfigSnapshot snapshot) {
+        if (snapshot == null) {
+            return;
+        }
+        int options = (snapshot.config.enabled ? TraceFormat.CONFIG_ENABLED : 0)
+            | (snapshot.config.allowHideNavigation ? TraceFormat.CONFIG_ALLOW_HIDE_NAVIGATION : 0);
+        write(TraceFormat.HOOK_CONFIG, System.nanoTime(), 0, options, snapshot.config.colorOverride,
+            snapshot.statusBarsType, snapshot.navigationBarsType, snapshot.config.strategy, 0);
+    }
+    
+    private static void write(int hook, long time, int window, int arg0, int arg1, int out0, int out1,
+            int state, int outcome) {
+        ByteBuffer buffer = CallTrace.buffer;
+        int base = TraceFormat.HEADER_SIZE + (int) (next % TraceFormat.CAPACITY) * TraceFormat.RECORD_SIZE;
+        buffer.putLong(base + TraceFormat.RECORD_TIME, time);
+        buffer.put(base + TraceFormat.RECORD_HOOK, (byte) hook);
+        buffer.put(base + TraceFormat.RECORD_OUTCOME, (byte) outcome);
+        buffer.putInt(base + TraceFormat.RECORD_WINDOW, window);
+        buffer.putInt(base + TraceFormat.RECORD_ARG0, arg0);
+        buffer.putInt(base + TraceFormat.RECORD_ARG1, arg1);
+        buffer.putInt(base + TraceFormat.RECORD_OUT0, out0);
+        buffer.putInt(base + TraceFormat.RECORD_OUT1, out1);
+        buffer.putInt(base + TraceFormat.RECORD_STATE, state);
+        // Published after the record so a reader never takes a half-written one
+        buffer.putLong(TraceFormat.HEADER_NEXT, ++next);
+    }
+    
+    private static ByteBuffer open(File file) {
+        if (file.exists() && !file.renameTo(new File(file.getPath() + ".1"))) {
+            file.delete();
+        }
+        int size = TraceFormat.fileSize(TraceFormat.CAPACITY);
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.setLength(size);
+            // The mapping stays valid after the channel is closed
+            ByteBuffer buffer = raf.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, size);
+            buffer.order(TraceFormat.ORDER);
+            buffer.putInt(TraceFormat.HEADER_MAGIC, TraceFormat.MAGIC);
+            buffer.putInt(TraceFormat.HEADER_VERSION, TraceFormat.VERSION);
+            buffer.putInt(TraceFormat.HEADER_RECORD_SIZE, TraceFormat.RECORD_SIZE);
+            buffer.putInt(TraceFormat.HEADER_CAPACITY, TraceFormat.CAPACITY);
+            buffer.putLong(TraceFormat.HEADER_NEXT, 0);
+            HookLog.i("Tracing calls to " + file.getPath());
+            return buffer;
+        } catch (Exception e) {
+            HookLog.w("Failed to open call trace - " + e.getMessage());
+            return null;
+        }
+    }
+}
@@ -0,0 +1,251 @@
+package com.example.forcestatusbar.hook;
+
+import android.app.Activity;
+import android.graphics.Bitmap;
+import android.graphics.Rect;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.view.PixelCopy;
+import android.view.SurfaceView;
+import android.view.View;
+import android.view.ViewTreeObserver;
+import android.view.Window;
+import android.view.WindowInsets;
+
+import com.example.forcestatusbar.config.PackageConfig;
+
+import java.lang.ref.WeakReference;
+import java.util.Collections;
+import java.util.Set;
+import java.util.WeakHashMap;
+
+/**
+ * Adaptive status bar color, sampled from what the window actually shows.
+ *
+ * A thin strip right below the status bar is copied with PixelCopy, scaled
+ * down by the GPU into a tiny bitmap, and averaged on a background thread.
+ * The color is applied only when it moved beyond {@link #THRESHOLD} on any
+ * channel.
+ *
+ * Sampling stays out of the app's way: a draw only records a timestamp, a
+ * sample waits until the view tree has not drawn for {@link #SETTLE_MS}
+ * (scrolls and animations finished) and never runs more than once every
+ * {@link #MIN_FRAMES} frames. Content in a SurfaceView does not draw through
+ * the view tree, so it is re-sampled on a slow timer instead.
+ */
+final class ColorSampler implements ViewTreeObserver.OnDrawListener, PixelCopy.OnPixelCopyFinishedListener {
+    
+    // Downscaled strip, a few hundred bytes per window
+    private static final int SAMPLE_WIDTH = 32;
+    private static final int SAMPLE_HEIGHT = 2;
+    // Height of the strip below the status bar, in px of the window
+    private static final int STRIP_HEIGHT = 8;
+    
+    private static final long SETTLE_MS = 200;
+    private static final int MIN_FRAMES = 30;
+    private static final long SURFACE_RESAMPLE_MS = 1000;
+    // Largest per-channel difference that still counts as the same color
+    private static final int THRESHOLD = 12;
+    
+    // Windows with a sampler, only touched from the UI thread. The sampler itself is kept alive by the
+    // window's draw listeners; as a map value it would reach its key through the views it copies
+    private static final Set<Window> sampled = Collections.newSetFromMap(new WeakHashMap<>());
+    private static Handler copyHandler;
+    
+    private final WeakReference<Activity> activity;
+    private final ThemeColorCache themeColors;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final long minIntervalMs;
+    
+    private final Bitmap bitmap = Bitmap.createBitmap(SAMPLE_WIDTH, SAMPLE_HEIGHT, Bitmap.Config.ARGB_8888);
+    private final int[] pixels = new int[SAMPLE_WIDTH * SAMPLE_HEIGHT];
+    private final Rect strip = new Rect();
+    private final int[] location = new int[2];
+    
+    private final Runnable sample = this::sample;
+    private final Runnable apply = this::apply;
+    private final Runnable copyFinished = this::copyFinished;
+    
+    // UI thread state
+    private long lastDrawMs;
+    private long lastSampleMs;
+    private boolean dirty = true;
+    private boolean scheduled;
+    private boolean copying;
+    private SurfaceView surfaceSource;
+    
+    // Written on the copy thread, read when the apply runs
+    private volatile int appliedColor;
+    private volatile int pendingColor;
+    
+    private ColorSampler(Activity activity, ThemeColorCache themeColors, long minIntervalMs) {
+        this.activity = new WeakReference<>(activity);
+        this.themeColors = themeColors;
+        this.minIntervalMs = minIntervalMs;
+        this.appliedColor = themeColors.colorFor(activity);
+    }
+    
+    /**
+     * Start sampling an activity's window, once per window
+     */
+    @SuppressWarnings("deprecation")
+    static void attach(Activity activity, ThemeColorCache themeColors) {
+        Window window = activity.getWindow();
+        if (!sampled.add(window)) {
+            return;
+        }
+        float refreshRate = activity.getWindowManager().getDefaultDisplay().getRefreshRate();
+        long frameMs = refreshRate > 0 ? (long) Math.ceil(1000 / refreshRate) : 17;
+        ColorSampler sampler = new ColorSampler(activity, themeColors, frameMs * MIN_FRAMES);
+        window.getDecorView().getViewTreeObserver().addOnDrawListener(sampler);
+        sampler.schedule(SETTLE_MS);
+    }
+    
+    @Override
+    public void onDraw() {
+        // Runs every frame, only note that the content changed
+        lastDrawMs = SystemClock.uptimeMillis();
+        dirty = true;
+        if (!scheduled) {
+            schedule(SETTLE_MS);
+        }
+    }
+    
+    private void schedule(long delayMs) {
+        scheduled = true;
+        mainHandler.postDelayed(sample, delayMs);
+    }
+    
+    private void sample() {
+        scheduled = false;
+        Activity activity = this.activity.get();
+        if (activity == null || activity.isFinishing() || copying) {
+            return;
+        }
+        // Turned off by pushed settings, the window falls back to the theme color
+        PackageConfig config = ConfigSnapshot.current().config;
+        if (!config.sampleColor || config.hasColorOverride()) {
+            return;
+        }
+        long now = SystemClock.uptimeMillis();
+        // Still scrolling or animating
+        long settle = lastDrawMs + SETTLE_MS - now;
+        // Too soon after the previous sample
+        long budget = lastSampleMs + minIntervalMs - now;
+        if (settle > 0 || budget > 0) {
+            schedule(Math.max(settle, budget));
+            return;
+        }
+        if (!dirty && surfaceSource == null) {
+            return;
+        }
+        
+        Window window = activity.getWindow();
+        View decorView = window.peekDecorView();
+        // Stopped windows pick sampling up again with their next draw
+        if (decorView == null || !decorView.isShown() || decorView.getWidth() == 0) {
+            return;
+        }
+        WindowInsets insets = decorView.getRootWindowInsets();
+        if (insets == null) {
+            return;
+        }
+        int top = ContentInsetsListener.statusBarInset(insets);
+        strip.set(0, top, decorView.getWidth(), Math.min(top + STRIP_HEIGHT, decorView.getHeight()));
+        if (strip.isEmpty()) {
+            return;
+        }
+        
+        dirty = false;
+        lastSampleMs = now;
+        copying = true;
+        try {
+            surfaceSource = surfaceBehind(decorView.findViewById(android.R.id.content));
+            if (surfaceSource != null) {
+                // The strip in the SurfaceView's own coordinates
+                surfaceSource.getLocationInWindow(location);
+                strip.offset(-location[0], -location[1]);
+                PixelCopy.request(surfaceSource, strip, bitmap, this, copyHandler());
+            } else {
+                PixelCopy.request(window, strip, bitmap, this, copyHandler());
+            }
+        } catch (RuntimeException e) {
+            // No surface yet, or it was just released
+            copying = false;
+            surfaceSource = null;
+        }
+    }
+    
+    /**
+     * The SurfaceView under the strip, if any: the window surface only has a transparent hole there
+     */
+    private SurfaceView surfaceBehind(View contentView) {
+        SurfaceView surfaceView = SurfaceContent.findSurfaceView(contentView);
+        if (surfaceView == null || !surfaceView.isShown()) {
+            return null;
+        }
+        surfaceView.getLocationInWindow(location);
+        return location[1] <= strip.top && location[1] + surfaceView.getHeight() >= strip.bottom
+            ? surfaceView : null;
+    }
+    
+    /**
+     * Copy finished, on the copy thread
+     */
+    @Override
+    public void onPixelCopyFinished(int copyResult) {
+        if (copyResult == PixelCopy.SUCCESS) {
+            bitmap.getPixels(pixels, 0, SAMPLE_WIDTH, 0, 0, SAMPLE_WIDTH, SAMPLE_HEIGHT);
+            int r = 0;
+            int g = 0;
+            int b = 0;
+            for (int pixel : pixels) {
+                r += (pixel >> 16) & 0xFF;
+                g += (pixel >> 8) & 0xFF;
+                b += pixel & 0xFF;
+            }
+            int n = pixels.length;
+            int color = 0xFF000000 | ((r / n) << 16) | ((g / n) << 8) | (b / n);
+            if (!isSameColor(color, appliedColor)) {
+                pendingColor = color;
+                mainHandler.post(apply);
+            }
+        }
+        mainHandler.post(copyFinished);
+    }
+    
+    private void copyFinished() {
+        copying = false;
+        if (surfaceSource != null && !scheduled) {
+            schedule(SURFACE_RESAMPLE_MS);
+        }
+    }
+    
+    private void apply() {
+        Activity activity = this.activity.get();
+        if (activity == null || activity.isFinishing()) {
+            return;
+        }
+        int color = pendingColor;
+        appliedColor = color;
+        themeColors.putSampled(activity, color);
+        activity.getWindow().setStatusBarColor(color);
+    }
+    
+    private static boolean isSameColor(int a, int b) {
+        return Math.abs(((a >> 16) & 0xFF) - ((b >> 16) & 0xFF)) <= THRESHOLD
+            && Math.abs(((a >> 8) & 0xFF) - ((b >> 8) & 0xFF)) <= THRESHOLD
+            && Math.abs((a & 0xFF) - (b & 0xFF)) <= THRESHOLD;
+    }
+    
+    private static synchronized Handler copyHandler() {
+        if (copyHandler == null) {
+            HandlerThread thread = new HandlerThread("ForceStatusBar-color");
+            thread.start();
+            copyHandler = new Handler(thread.getLooper());
+        }
+        return copyHandler;
+    }
+}
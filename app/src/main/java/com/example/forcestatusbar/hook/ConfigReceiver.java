@@ -0,0 +1,77 @@
+package com.example.forcestatusbar.hook;
+
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
+import android.os.Build;
+import android.os.Bundle;
+
+import com.example.forcestatusbar.bridge.BridgeProtocol;
+import com.example.forcestatusbar.config.ModuleConfig;
+import com.example.forcestatusbar.config.PackageConfig;
+
+/**
+ * Takes settings pushed by the module app and publishes them as a new {@link ConfigSnapshot}
+ */
+final class ConfigReceiver extends BroadcastReceiver {
+    
+    private final String packageName;
+    private final String processName;
+    private final Runnable onChanged;
+    
+    private ConfigReceiver(String packageName, String processName, Runnable onChanged) {
+        this.packageName = packageName;
+        this.processName = processName;
+        this.onChanged = onChanged;
+    }
+    
+    /**
+     * Register the receiver on the application context, once per process; {@code onChanged}
+     * runs on the main thread after each accepted push
+     */
+    static void register(Context context, String packageName, String processName, Runnable onChanged) {
+        try {
+            IntentFilter filter = new IntentFilter(BridgeProtocol.ACTION_CONFIG_CHANGED);
+            ConfigReceiver receiver = new ConfigReceiver(packageName, processName, onChanged);
+            Context app = context.getApplicationContext() != null ? context.getApplicationContext() : context;
+            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.TIRAMISU) {
+                app.registerReceiver(receiver, filter, BridgeProtocol.PERMISSION_PUSH_CONFIG, null,
+                    Context.RECEIVER_EXPORTED);
+            } else {
+                app.registerReceiver(receiver, filter, BridgeProtocol.PERMISSION_PUSH_CONFIG, null);
+            }
+        } catch (Exception e) {
+            HookLog.w("Failed to register config receiver - " + e.getMessage());
+        }
+    }
+    
+    @Override
+    public void onReceive(Context context, Intent intent) {
+        String name = intent.getStringExtra(BridgeProtocol.EXTRA_NAME);
+        Bundle bundle = intent.getBundleExtra(BridgeProtocol.EXTRA_CONFIG);
+        if (name == null || bundle == null || !isAffected(name)) {
+            return;
+        }
+        long version = intent.getLongExtra(BridgeProtocol.EXTRA_VERSION, 0);
+        PackageConfig config = ModuleConfig.fromBundle(bundle);
+        if (!ConfigSnapshot.update(version, config)) {
+            return;
+        }
+        FrameMonitor.setEnabled(config.frameMonitor);
+        CallTrace.setEnabled(config.traceCalls);
+        HookLog.i("Applied pushed settings v" + version + " from " + config.name);
+        onChanged.run();
+    }
+    
+    /**
+     * Whether the entry that changed is the one this process resolves its settings from
+     */
+    private boolean isAffected(String name) {
+        if (name.equals(processName)) {
+            return true;
+        }
+        // A package entry does not matter to a process with its own entry
+        return name.equals(packageName) && packageName.equals(ConfigSnapshot.current().config.name);
+    }
+}
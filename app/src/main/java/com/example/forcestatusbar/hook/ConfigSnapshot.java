@@ -0,0 +1,61 @@
+package com.example.forcestatusbar.hook;
+
+import com.example.forcestatusbar.config.PackageConfig;
+
+/**
+ * The settings of this process as hook callbacks see them.
+ *
+ * A snapshot is immutable and carries everything derived from the settings
+ * (compiled flag masks, preboxed color), so a callback reads one volatile
+ * reference and nothing else: no lock, no IPC, no file I/O. A newer version
+ * pushed by the module app replaces the whole snapshot at once; callbacks
+ * already running finish with the one they read.
+ */
+final class ConfigSnapshot {
+    
+    private static volatile ConfigSnapshot current;
+    
+    final long version;
+    final PackageConfig config;
+    final FlagPolicy policy;
+    // Boxed once so hooks can write param.args without allocating
+    final Integer boxedColorOverride;
+    
+    final int statusBarsType;
+    final int navigationBarsType;
+    
+    private ConfigSnapshot(long version, PackageConfig config, int statusBarsType, int navigationBarsType) {
+        this.version = version;
+        this.config = config;
+        // Disabled at runtime: hooks stay installed but let everything through
+        this.policy = config.enabled
+            ? FlagPolicy.forConfig(config, statusBarsType)
+            : new FlagPolicy.Builder().build();
+        this.boxedColorOverride = config.colorOverride;
+        this.statusBarsType = statusBarsType;
+        this.navigationBarsType = navigationBarsType;
+    }
+    
+    static ConfigSnapshot current() {
+        return current;
+    }
+    
+    /**
+     * The settings read at startup
+     */
+    static synchronized void init(long version, PackageConfig config, int statusBarsType, int navigationBarsType) {
+        current = new ConfigSnapshot(version, config, statusBarsType, navigationBarsType);
+    }
+    
+    /**
+     * Swap in pushed settings, ignored unless newer than the current ones
+     */
+    static synchronized boolean update(long version, PackageConfig config) {
+        ConfigSnapshot old = current;
+        if (old == null || version <= old.version) {
+            return false;
+        }
+        current = new ConfigSnapshot(version, config, old.statusBarsType, old.navigationBarsType);
+        return true;
+    }
+}
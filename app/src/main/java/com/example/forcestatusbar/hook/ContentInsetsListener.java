@@ -0,0 +1,143 @@
+package com.example.forcestatusbar.hook;
+
+import android.os.Build;
+import android.view.View;
+import android.view.WindowInsets;
+
+import java.lang.reflect.Field;
+
+import de.robv.android.xposed.XposedHelpers;
+
+/**
+ * The one insets listener installed on a content view for the padding strategy.
+ *
+ * It pads the view by the status bar inset on top of the padding the app
+ * set itself, touches the padding only when the inset really changed, and
+ * forwards every dispatch to the listener the app installed (before or after
+ * us). IME and rotation dispatches that leave the status bar alone therefore
+ * cause no padding change and no layout pass.
+ *
+ * Only touched from the UI thread. The view's own listener slot is the only
+ * place the listener is kept, so nothing outlives the view.
+ */
+final class ContentInsetsListener implements View.OnApplyWindowInsetsListener {
+    
+    // Listener the app installed on the content view, called first on every dispatch
+    View.OnApplyWindowInsetsListener appListener;
+    
+    // The app's own padding, without our inset
+    private int left;
+    private int top;
+    private int right;
+    private int bottom;
+    
+    // Inset currently added to the top padding, -1 before the first dispatch
+    private int appliedInset = -1;
+    
+    private ContentInsetsListener(View view) {
+        capturePadding(view, view.getPaddingTop());
+    }
+    
+    /**
+     * Install the shared listener on a content view, keeping whatever listener the app set before
+     */
+    static void install(View view) {
+        View.OnApplyWindowInsetsListener current = currentListener(view);
+        if (current instanceof ContentInsetsListener) {
+            return;
+        }
+        ContentInsetsListener listener = new ContentInsetsListener(view);
+        listener.appListener = current;
+        view.setOnApplyWindowInsetsListener(listener);
+    }
+    
+    /**
+     * Our listener on a view, null when the padding strategy never touched it
+     */
+    static ContentInsetsListener of(View view) {
+        View.OnApplyWindowInsetsListener current = currentListener(view);
+        return current instanceof ContentInsetsListener ? (ContentInsetsListener) current : null;
+    }
+    
+    @Override
+    public WindowInsets onApplyWindowInsets(View v, WindowInsets insets) {
+        // The app changed the padding since our last apply, take it as its new base
+        if (appliedInset >= 0 && !isOurPadding(v)) {
+            if (v.getPaddingTop() == top + appliedInset) {
+                capturePadding(v, top);
+            } else {
+                capturePadding(v, v.getPaddingTop());
+                appliedInset = -1;
+            }
+        }
+        
+        WindowInsets result = insets;
+        if (appListener != null) {
+            int beforeTop = v.getPaddingTop();
+            result = appListener.onApplyWindowInsets(v, insets);
+            if (v.getPaddingTop() != beforeTop) {
+                // The app pads for the insets itself, only make sure the status bar is cleared
+                int inset = statusBarInset(insets);
+                if (v.getPaddingTop() < inset) {
+                    v.setPadding(v.getPaddingLeft(), inset, v.getPaddingRight(), v.getPaddingBottom());
+                }
+                capturePadding(v, v.getPaddingTop() - inset);
+                appliedInset = inset;
+                return result;
+            }
+        }
+        
+        int inset = statusBarInset(insets);
+        if (inset != appliedInset) {
+            appliedInset = inset;
+            v.setPadding(left, top + inset, right, bottom);
+        }
+        return result;
+    }
+    
+    private boolean isOurPadding(View v) {
+        return v.getPaddingLeft() == left
+                && v.getPaddingTop() == top + appliedInset
+                && v.getPaddingRight() == right
+                && v.getPaddingBottom() == bottom;
+    }
+    
+    private void capturePadding(View v, int baseTop) {
+        left = v.getPaddingLeft();
+        top = baseTop;
+        right = v.getPaddingRight();
+        bottom = v.getPaddingBottom();
+    }
+    
+    @SuppressWarnings("deprecation")
+    static int statusBarInset(WindowInsets insets) {
+        return Build.VERSION.SDK_INT >= Build.VERSION_CODES.R
+            ? insets.getInsets(WindowInsets.Type.statusBars()).top
+            : insets.getSystemWindowInsetTop();
+    }
+    
+    private static Field listenerInfoField;
+    private static Field insetsListenerField;
+    
+    /**
+     * The listener currently set on a view (ours or the app's), read from View.mListenerInfo
+     */
+    private static View.OnApplyWindowInsetsListener currentListener(View view) {
+        try {
+            if (listenerInfoField == null) {
+                listenerInfoField = XposedHelpers.findField(View.class, "mListenerInfo");
+            }
+            Object info = listenerInfoField.get(view);
+            if (info == null) {
+                return null;
+            }
+            if (insetsListenerField == null) {
+                insetsListenerField = XposedHelpers.findField(info.getClass(), "mOnApplyWindowInsetsListener");
+            }
+            return (View.OnApplyWindowInsetsListener) insetsListenerField.get(info);
+        } catch (Throwable t) {
+            // Ignore
+        }
+        return null;
+    }
+}
@@ -0,0 +1,199 @@
+package com.example.forcestatusbar.hook;
+
+import android.content.Context;
+import android.content.res.Resources;
+import android.graphics.Point;
+import android.hardware.display.DisplayManager;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.DisplayMetrics;
+import android.util.SparseIntArray;
+import android.util.TypedValue;
+import android.view.Display;
+
+import com.example.forcestatusbar.bridge.BridgeProtocol;
+import com.example.forcestatusbar.config.PackageConfig;
+
+import de.robv.android.xposed.XC_MethodHook;
+import de.robv.android.xposed.XposedHelpers;
+import de.robv.android.xposed.callbacks.XC_LoadPackage;
+
+/**
+ * Optional display-metrics compensation for apps that size themselves from
+ * Display.getMetrics / Display.getSize instead of their window.
+ *
+ * With the status bar forced visible such apps lay out for a screen that is a
+ * status bar taller than what they get, so the reported height is reduced by
+ * the status bar. Only the app-area getters are touched: getRealMetrics and
+ * getRealSize stay real, which is what input and the view root rely on.
+ *
+ * The status bar height is resolved once per display against that display's
+ * real metrics and cached until a DisplayListener reports a change (rotation,
+ * resolution, density). The hooks themselves never allocate.
+ */
+final class DisplayCompensation {
+    
+    private static final int UNKNOWN = -1;
+    
+    // Display id -> status bar height in px, guarded by itself
+    private static final SparseIntArray heights = new SparseIntArray(2);
+    // Bumped on every display change so a lookup racing with it does not cache a stale height
+    private static int generation;
+    private static boolean watching;
+    private static boolean watchFailed;
+    
+    // Scratch objects for resolving a height, guarded by heights
+    private static final DisplayMetrics realMetrics = new DisplayMetrics();
+    private static final TypedValue statusBarValue = new TypedValue();
+    private static int statusBarHeightId = UNKNOWN;
+    
+    // Set while this thread is inside one of our hooks, so nested Display calls pass through
+    private static final ThreadLocal<boolean[]> inHook = ThreadLocal.withInitial(() -> new boolean[1]);
+    
+    private DisplayCompensation() {
+    }
+    
+    static void install(XC_LoadPackage.LoadPackageParam lpparam) {
+        try {
+            HookGroups.add(HookGroups.DISPLAY_METRICS, XposedHelpers.findAndHookMethod(
+                Display.class.getName(),
+                lpparam.classLoader,
+                "getMetrics",
+                DisplayMetrics.class,
+                new XC_MethodHook() {
+                    @Override
+                    protected void afterHookedMethod(MethodHookParam param) throws Throwable {
+                        DisplayMetrics metrics = (DisplayMetrics) param.args[0];
+                        if (metrics != null) {
+                            metrics.heightPixels = compensate((Display) param.thisObject, metrics.heightPixels);
+                        }
+                    }
+                }
+            ));
+            HookGroups.add(HookGroups.DISPLAY_METRICS, XposedHelpers.findAndHookMethod(
+                Display.class.getName(),
+                lpparam.classLoader,
+                "getSize",
+                Point.class,
+                new XC_MethodHook() {
+                    @Override
+                    protected void afterHookedMethod(MethodHookParam param) throws Throwable {
+                        Point size = (Point) param.args[0];
+                        if (size != null) {
+                            size.y = compensate((Display) param.thisObject, size.y);
+                        }
+                    }
+                }
+            ));
+            HookLog.i("Display metrics compensation installed");
+        } catch (Throwable t) {
+            HookLog.w("Failed to hook Display metrics - " + t.getMessage());
+        }
+    }
+    
+    /**
+     * The reported app height minus the status bar, never below half of it
+     */
+    private static int compensate(Display display, int height) {
+        PackageConfig config = ConfigSnapshot.current().config;
+        if (!config.enabled || !config.compensateDisplayMetrics) {
+            return height;
+        }
+        boolean[] guard = inHook.get();
+        if (guard[0] || display == null || height <= 0) {
+            return height;
+        }
+        long start = HookStats.start();
+        guard[0] = true;
+        try {
+            int statusBar = statusBarHeight(display);
+            int compensated = Math.max(height - statusBar, height / 2);
+            HookStats.end(BridgeProtocol.HOOK_DISPLAY_METRICS, start, compensated != height);
+            return compensated;
+        } finally {
+            guard[0] = false;
+        }
+    }
+    
+    private static int statusBarHeight(Display display) {
+        int displayId = display.getDisplayId();
+        synchronized (heights) {
+            int height = heights.get(displayId, UNKNOWN);
+            if (height != UNKNOWN) {
+                return height;
+            }
+            int startGeneration = generation;
+            height = resolveStatusBarHeight(display);
+            // Only cache once display changes can invalidate the entry
+            if (watch() && startGeneration == generation) {
+                heights.put(displayId, height);
+            }
+            return height;
+        }
+    }
+    
+    /**
+     * status_bar_height scaled for the display's own density, called with heights held
+     */
+    private static int resolveStatusBarHeight(Display display) {
+        try {
+            Resources system = Resources.getSystem();
+            if (statusBarHeightId == UNKNOWN) {
+                statusBarHeightId = system.getIdentifier("status_bar_height", "dimen", "android");
+            }
+            if (statusBarHeightId == 0) {
+                return 0;
+            }
+            display.getRealMetrics(realMetrics);
+            system.getValue(statusBarHeightId, statusBarValue, true);
+            return TypedValue.complexToDimensionPixelSize(statusBarValue.data, realMetrics);
+        } catch (Throwable t) {
+            return 0;
+        }
+    }
+    
+    /**
+     * Register the DisplayListener that invalidates cached heights, once the application exists
+     */
+    private static boolean watch() {
+        if (watching || watchFailed) {
+            return watching;
+        }
+        try {
+            Context context = (Context) XposedHelpers.callStaticMethod(
+                XposedHelpers.findClass("android.app.ActivityThread", null), "currentApplication");
+            if (context == null) {
+                return false;
+            }
+            DisplayManager displayManager = context.getSystemService(DisplayManager.class);
+            displayManager.registerDisplayListener(new DisplayManager.DisplayListener() {
+                @Override
+                public void onDisplayAdded(int displayId) {
+                }
+                
+                @Override
+                public void onDisplayRemoved(int displayId) {
+                    invalidate(displayId);
+                }
+                
+                @Override
+                public void onDisplayChanged(int displayId) {
+                    invalidate(displayId);
+                }
+            }, new Handler(Looper.getMainLooper()));
+            watching = true;
+        } catch (Throwable t) {
+            // Keep resolving on every call rather than caching heights that never invalidate
+            watchFailed = true;
+            HookLog.w("Failed to watch display changes - " + t.getMessage());
+        }
+        return watching;
+    }
+    
+    private static void invalidate(int displayId) {
+        synchronized (heights) {
+            generation++;
+            heights.delete(displayId);
+        }
+    }
+}
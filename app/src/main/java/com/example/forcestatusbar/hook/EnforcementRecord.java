@@ -0,0 +1,152 @@
+package com.example.forcestatusbar.hook;
+
+import android.app.Activity;
+import android.content.res.Configuration;
+import android.view.View;
+import android.view.Window;
+import android.view.WindowManager;
+
+import java.lang.ref.WeakReference;
+
+/**
+ * What has already been enforced on one window, keyed weakly by its DecorView.
+ *
+ * Lifecycle callbacks (onCreate, onResume, onPostResume, focus changes) all
+ * funnel into the same enforcement. The record lets every call after the first
+ * compare the window against what was applied and return without touching the
+ * view tree when nothing relevant changed.
+ *
+ * Records must never hold the DecorView strongly, otherwise the weak map key
+ * would stay reachable through its own value.
+ */
+final class EnforcementRecord {
+    
+    static final int STATE_NEW = 0;
+    static final int STATE_APPLIED = 1;
+    static final int STATE_DIRTY = 2;
+    
+    // Window flags that enforcement sets or that apps use to hide the status bar
+    static final int WATCHED_FLAGS = WindowManager.LayoutParams.FLAG_FULLSCREEN
+            | WindowManager.LayoutParams.FLAG_FORCE_NOT_FULLSCREEN
+            | WindowManager.LayoutParams.FLAG_DRAWS_SYSTEM_BAR_BACKGROUNDS
+            | WindowManager.LayoutParams.FLAG_TRANSLUCENT_STATUS;
+    
+    @SuppressWarnings("deprecation")
+    static final int WATCHED_SYSTEM_UI = View.SYSTEM_UI_FLAG_FULLSCREEN
+            | View.SYSTEM_UI_FLAG_LAYOUT_STABLE
+            | View.SYSTEM_UI_FLAG_LAYOUT_FULLSCREEN;
+    
+    int state = STATE_NEW;
+    
+    // Activity owning the window, for re-applying when settings change
+    private final WeakReference<Activity> owner;
+    
+    // Attribute changes enforcement makes to this window, committed once per frame
+    final WindowAttributeBatch attributes;
+    
+    // Snapshot taken right after the last apply
+    private int flags;
+    private int systemUiVisibility;
+    private int statusBarColor;
+    private int orientation;
+    private int screenWidthDp;
+    private int screenHeightDp;
+    private int uiMode;
+    private int densityDpi;
+    
+    // Content view the insets listener / fitsSystemWindows was installed on
+    private WeakReference<View> contentView;
+    
+    // Surface-safe mode: whether the content was inspected, and whether it renders to a surface
+    private boolean layoutDecided;
+    private boolean surfaceLocked;
+    
+    EnforcementRecord(Activity owner) {
+        this.owner = new WeakReference<>(owner);
+        this.attributes = new WindowAttributeBatch(this.owner);
+    }
+    
+    Activity owner() {
+        return owner.get();
+    }
+    
+    /**
+     * Whether the window drifted from the last applied snapshot
+     */
+    @SuppressWarnings("deprecation")
+    boolean needsApply(Window window, View decorView, Configuration config, int color) {
+        if (state != STATE_APPLIED) {
+            return true;
+        }
+        return (attributes.flags(window.getAttributes().flags) & WATCHED_FLAGS) != flags
+                || (decorView.getSystemUiVisibility() & WATCHED_SYSTEM_UI) != systemUiVisibility
+                || window.getStatusBarColor() != color
+                || color != statusBarColor
+                || configChanged(config);
+    }
+    
+    /**
+     * Whether the configuration differs from the one the last apply ran under
+     */
+    boolean configChanged(Configuration config) {
+        return state == STATE_DIRTY
+                || config.orientation != orientation
+                || config.screenWidthDp != screenWidthDp
+                || config.screenHeightDp != screenHeightDp
+                || config.uiMode != uiMode
+                || config.densityDpi != densityDpi;
+    }
+    
+    /**
+     * Record the window state produced by an apply
+     */
+    @SuppressWarnings("deprecation")
+    void markApplied(Window window, View decorView, Configuration config, int color) {
+        // Flags still staged count as applied, they are committed before the next frame
+        flags = attributes.flags(window.getAttributes().flags) & WATCHED_FLAGS;
+        systemUiVisibility = decorView.getSystemUiVisibility() & WATCHED_SYSTEM_UI;
+        statusBarColor = color;
+        orientation = config.orientation;
+        screenWidthDp = config.screenWidthDp;
+        screenHeightDp = config.screenHeightDp;
+        uiMode = config.uiMode;
+        densityDpi = config.densityDpi;
+        state = STATE_APPLIED;
+    }
+    
+    /**
+     * Force the next enforcement to re-apply (e.g. after a configuration change)
+     */
+    void markDirty() {
+        if (state == STATE_APPLIED) {
+            state = STATE_DIRTY;
+        }
+    }
+    
+    /**
+     * Whether the content view still needs its listener / fitsSystemWindows installed
+     */
+    boolean needsInstall(View view) {
+        return contentView == null || contentView.get() != view;
+    }
+    
+    void markInstalled(View view) {
+        contentView = new WeakReference<>(view);
+    }
+    
+    boolean isLayoutDecided() {
+        return layoutDecided;
+    }
+    
+    /**
+     * Fix the layout of a surface-safe window once, a locked window is never relaid out by enforcement
+     */
+    void decideLayout(boolean surface) {
+        layoutDecided = true;
+        surfaceLocked = surface;
+    }
+    
+    boolean isSurfaceLocked() {
+        return surfaceLocked;
+    }
+}
@@ -0,0 +1,177 @@
+package com.example.forcestatusbar.hook;
+
+import android.view.View;
+
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * Detects apps that fight the enforcement, per window.
+ *
+ * Some games and players hide the status bar again every time they see it
+ * come back, and each round costs both sides a relayout. Every intercepted
+ * attempt goes into a sliding window holding the times of the last
+ * {@link #THRESHOLD} attempts. Once all of them fall within {@link #WINDOW_NS},
+ * the window is settled: calls that would no longer change it are swallowed,
+ * nothing is logged and enforcement leaves the window alone. Settling lasts
+ * a backoff that doubles each time the fight picks up again right after it,
+ * up to {@link #MAX_BACKOFF_NS}.
+ *
+ * Windows are tracked from their first enforcement on. They are keyed weakly
+ * by the DecorView and by the objects some hooks see instead (the insets
+ * controller). Tracks hold neither, and a call on an untracked window costs
+ * one map lookup. Each track gets a small id that names its window in the
+ * call trace.
+ */
+final class FightBackDetector {
+    
+    private static final int THRESHOLD = 10;
+    private static final long WINDOW_NS = 1000000000L;
+    private static final long MIN_BACKOFF_NS = 2000000000L;
+    static final long MAX_BACKOFF_NS = 64000000000L;
+    
+    // DecorView or alias -> state of its window, guarded by itself
+    private static final Map<Object, Track> tracks = new WeakHashMap<>();
+    
+    // Diagnostics for the stats report
+    private static final AtomicLong loops = new AtomicLong();
+    private static final AtomicLong swallowed = new AtomicLong();
+    
+    // Source of attempt times, replaced by the trace replay tool with the recorded ones
+    private static LongSupplier clock = System::nanoTime;
+    private static int lastId;
+    
+    private static final class Track {
+        final int id;
+        // Name of the activity, for the log line when it settles
+        final String name;
+        // Times of the last THRESHOLD attempts, a ring starting at next
+        final long[] attempts = new long[THRESHOLD];
+        int next;
+        int count;
+        long settledUntil;
+        long backoffNs;
+        
+        Track(int id, String name) {
+            this.id = id;
+            this.name = name;
+        }
+    }
+    
+    private FightBackDetector() {
+    }
+    
+    /**
+     * Start watching an enforced window
+     */
+    static void track(View decorView, Object owner) {
+        synchronized (tracks) {
+            if (!tracks.containsKey(decorView)) {
+                tracks.put(decorView, new Track(++lastId, owner.getClass().getName()));
+            }
+        }
+    }
+    
+    /**
+     * Count attempts seen through another object of the window (its insets controller) for it too
+     */
+    static void alias(Object key, View decorView) {
+        if (key == null) {
+            return;
+        }
+        synchronized (tracks) {
+            Track track = tracks.get(decorView);
+            if (track != null && tracks.get(key) != track) {
+                tracks.put(key, track);
+            }
+        }
+    }
+    
+    /**
+     * Record an intercepted attempt to hide the status bar, returns whether the window is settled
+     * and the caller should stay quiet
+     */
+    static boolean attempt(Object key) {
+        if (key == null) {
+            return false;
+        }
+        long now = clock.getAsLong();
+        String name;
+        long backoff;
+        synchronized (tracks) {
+            Track track = tracks.get(key);
+            if (track == null) {
+                return false;
+            }
+            if (now < track.settledUntil) {
+                return true;
+            }
+            track.attempts[track.next] = now;
+            track.next = (track.next + 1) % THRESHOLD;
+            if (track.count < THRESHOLD) {
+                track.count++;
+                if (track.count < THRESHOLD) {
+                    return false;
+                }
+            }
+            // The ring is full, next points at the oldest of the last THRESHOLD attempts
+            if (now - track.attempts[track.next] > WINDOW_NS) {
+                return false;
+            }
+            // Fighting again within one backoff of the last settling doubles it
+            boolean relapse = track.backoffNs != 0 && now - track.settledUntil < track.backoffNs;
+            track.backoffNs = relapse ? Math.min(track.backoffNs * 2, MAX_BACKOFF_NS) : MIN_BACKOFF_NS;
+            track.settledUntil = now + track.backoffNs;
+            track.count = 0;
+            name = track.name;
+            backoff = track.backoffNs;
+        }
+        loops.incrementAndGet();
+        HookLog.i("Fight-back loop in " + name + ", settling for " + backoff / 1000000L + "ms");
+        return true;
+    }
+    
+    /**
+     * Whether enforcement should leave a window alone for now
+     */
+    static boolean isSettled(View decorView) {
+        long now = clock.getAsLong();
+        synchronized (tracks) {
+            Track track = tracks.get(decorView);
+            return track != null && now < track.settledUntil;
+        }
+    }
+    
+    /**
+     * Id of the window a key belongs to, 0 for untracked windows
+     */
+    static int idOf(Object key) {
+        if (key == null) {
+            return 0;
+        }
+        synchronized (tracks) {
+            Track track = tracks.get(key);
+            return track != null ? track.id : 0;
+        }
+    }
+    
+    static void setClock(LongSupplier source) {
+        clock = source;
+    }
+    
+    /**
+     * A settled window's call was skipped because it would not have changed anything
+     */
+    static void countSwallowed() {
+        swallowed.incrementAndGet();
+    }
+    
+    /**
+     * {loops detected, calls swallowed}
+     */
+    static long[] snapshot() {
+        return new long[] {loops.get(), swallowed.get()};
+    }
+}
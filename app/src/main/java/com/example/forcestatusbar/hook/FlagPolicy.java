@@ -0,0 +1,103 @@
+package com.example.forcestatusbar.hook;
+
+import android.view.View;
+import android.view.WindowManager;
+
+import com.example.forcestatusbar.config.PackageConfig;
+
+/**
+ * Flag rewrite rules compiled into one AND and one OR mask per intercepted argument.
+ *
+ * Rules only say which bits to strip from or force into an argument; the
+ * hooks then rewrite with {@code (value & and) | or} and compare against the
+ * original, whatever the rule set. Forced bits win over stripped ones.
+ */
+final class FlagPolicy {
+    
+    // Intercepted arguments
+    static final int SET_FLAGS = 0;
+    static final int SET_FLAGS_MASK = 1;
+    static final int ADD_FLAGS = 2;
+    static final int CLEAR_FLAGS = 3;
+    static final int SYSTEM_UI_VISIBILITY = 4;
+    static final int INSETS_HIDE = 5;
+    private static final int ARG_COUNT = 6;
+    
+    private final int[] andMasks;
+    private final int[] orMasks;
+    
+    private FlagPolicy(int[] andMasks, int[] orMasks) {
+        this.andMasks = andMasks;
+        this.orMasks = orMasks;
+    }
+    
+    int and(int arg) {
+        return andMasks[arg];
+    }
+    
+    int or(int arg) {
+        return orMasks[arg];
+    }
+    
+    /**
+     * The rule set for a package: the status bar is never hidden, the navigation bar only through the
+     * legacy system UI flags when allowed. WindowInsetsController.hide(navigationBars()) always goes
+     * through, as it did before the rules were configurable
+     */
+    @SuppressWarnings("deprecation")
+    static FlagPolicy forConfig(PackageConfig config, int statusBarsType) {
+        Builder builder = new Builder()
+            .strip(SET_FLAGS, WindowManager.LayoutParams.FLAG_FULLSCREEN)
+            .force(SET_FLAGS, WindowManager.LayoutParams.FLAG_FORCE_NOT_FULLSCREEN)
+            .force(SET_FLAGS_MASK, WindowManager.LayoutParams.FLAG_FORCE_NOT_FULLSCREEN)
+            .strip(ADD_FLAGS, WindowManager.LayoutParams.FLAG_FULLSCREEN)
+            .preventClear(WindowManager.LayoutParams.FLAG_FORCE_NOT_FULLSCREEN)
+            .strip(SYSTEM_UI_VISIBILITY, View.SYSTEM_UI_FLAG_FULLSCREEN)
+            .strip(INSETS_HIDE, statusBarsType);
+        
+        if (!config.allowHideNavigation) {
+            builder.strip(SYSTEM_UI_VISIBILITY, View.SYSTEM_UI_FLAG_HIDE_NAVIGATION
+                    | View.SYSTEM_UI_FLAG_IMMERSIVE
+                    | View.SYSTEM_UI_FLAG_IMMERSIVE_STICKY);
+        }
+        return builder.build();
+    }
+    
+    static final class Builder {
+        private final int[] strip = new int[ARG_COUNT];
+        private final int[] force = new int[ARG_COUNT];
+        
+        /**
+         * Never let these bits through in the given argument
+         */
+        Builder strip(int arg, int bits) {
+            strip[arg] |= bits;
+            return this;
+        }
+        
+        /**
+         * Always set these bits in the given argument
+         */
+        Builder force(int arg, int bits) {
+            force[arg] |= bits;
+            return this;
+        }
+        
+        /**
+         * Window.clearFlags never clears these bits
+         */
+        Builder preventClear(int bits) {
+            return strip(CLEAR_FLAGS, bits);
+        }
+        
+        FlagPolicy build() {
+            int[] andMasks = new int[ARG_COUNT];
+            int[] orMasks = new int[ARG_COUNT];
+            for (int arg = 0; arg < ARG_COUNT; arg++) {
+                andMasks[arg] = ~strip[arg];
+                orMasks[arg] = force[arg];
+            }
+            return new FlagPolicy(andMasks, orMasks);
+        }
+    }
+}
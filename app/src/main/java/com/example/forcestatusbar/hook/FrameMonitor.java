@@ -0,0 +1,140 @@
+package com.example.forcestatusbar.hook;
+
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.view.FrameMetrics;
+import android.view.Window;
+
+import com.example.forcestatusbar.bridge.BridgeProtocol;
+
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Optional frame-time monitor for packages that enable it.
+ *
+ * FrameMetrics of every enforced window are folded into fixed histograms on
+ * a background thread. Frames whose vsync falls within {@link #AFTER_ENFORCE_NS}
+ * of an enforcement are counted as "after enforcement", all others as baseline,
+ * so the cost of the relayouts the module causes shows up next to the app's
+ * normal frame times.
+ */
+final class FrameMonitor {
+    
+    // How long after an enforcement frames are attributed to it
+    private static final long AFTER_ENFORCE_NS = 500000000L;
+    
+    // 60 Hz, used when the display reports no refresh rate
+    private static final long DEFAULT_FRAME_INTERVAL_NS = 16666667L;
+    
+    private static final int PHASES = BridgeProtocol.FRAME_PHASES;
+    private static final int BUCKETS = BridgeProtocol.FRAME_BUCKETS;
+    private static final long[] BOUNDS = BridgeProtocol.FRAME_BOUNDS_NS;
+    
+    private static final AtomicLongArray frames = new AtomicLongArray(PHASES * BUCKETS);
+    private static final AtomicLongArray janks = new AtomicLongArray(PHASES);
+    
+    // Windows with a listener, only touched from the UI thread
+    private static final Map<Window, Boolean> attached = new WeakHashMap<>();
+    
+    private static volatile long lastEnforceNs = Long.MIN_VALUE;
+    private static volatile boolean enabled;
+    private static Handler handler;
+    
+    private FrameMonitor() {
+    }
+    
+    /**
+     * Turned on and off by the package settings, attached windows stop recording while off
+     */
+    static void setEnabled(boolean on) {
+        enabled = on;
+    }
+    
+    static boolean isEnabled() {
+        return enabled;
+    }
+    
+    /**
+     * Start collecting frame metrics of a window, once per window
+     */
+    static void attach(Window window) {
+        if (!enabled || attached.containsKey(window)) {
+            return;
+        }
+        attached.put(window, Boolean.TRUE);
+        try {
+            long frameIntervalNs = frameIntervalNs(window);
+            window.addOnFrameMetricsAvailableListener(
+                (w, metrics, dropCount) -> onFrame(metrics, frameIntervalNs), handler());
+        } catch (Exception e) {
+            // Not hardware accelerated
+            HookLog.w("Failed to monitor frames - " + e.getMessage());
+        }
+    }
+    
+    /**
+     * Called after each enforcement that touched the window
+     */
+    static void markEnforced() {
+        if (enabled) {
+            lastEnforceNs = System.nanoTime();
+        }
+    }
+    
+    private static synchronized Handler handler() {
+        if (handler == null) {
+            HandlerThread thread = new HandlerThread("ForceStatusBar-frames");
+            thread.start();
+            handler = new Handler(thread.getLooper());
+        }
+        return handler;
+    }
+    
+    @SuppressWarnings("deprecation")
+    private static long frameIntervalNs(Window window) {
+        float refreshRate = window.getWindowManager().getDefaultDisplay().getRefreshRate();
+        return refreshRate > 0 ? (long) (1000000000L / refreshRate) : DEFAULT_FRAME_INTERVAL_NS;
+    }
+    
+    private static void onFrame(FrameMetrics metrics, long frameIntervalNs) {
+        if (!enabled) {
+            return;
+        }
+        long duration = metrics.getMetric(FrameMetrics.TOTAL_DURATION);
+        long vsync = metrics.getMetric(FrameMetrics.INTENDED_VSYNC_TIMESTAMP);
+        long sinceEnforce = vsync - lastEnforceNs;
+        int phase = sinceEnforce >= 0 && sinceEnforce < AFTER_ENFORCE_NS
+            ? BridgeProtocol.FRAME_PHASE_AFTER_ENFORCE : BridgeProtocol.FRAME_PHASE_BASELINE;
+        
+        int bucket = 0;
+        while (bucket < BOUNDS.length && duration >= BOUNDS[bucket]) {
+            bucket++;
+        }
+        frames.incrementAndGet(phase * BUCKETS + bucket);
+        // Missed its vsync
+        if (duration > frameIntervalNs) {
+            janks.incrementAndGet(phase);
+        }
+    }
+    
+    /**
+     * Histogram flattened as phase * FRAME_BUCKETS + bucket
+     */
+    static long[] snapshotFrames() {
+        return snapshot(frames);
+    }
+    
+    static long[] snapshotJanks() {
+        return snapshot(janks);
+    }
+    
+    private static long[] snapshot(AtomicLongArray array) {
+        long[] copy = new long[array.length()];
+        for (int i = 0; i < copy.length; i++) {
+            copy[i] = array.get(i);
+        }
+        return copy;
+    }
+}
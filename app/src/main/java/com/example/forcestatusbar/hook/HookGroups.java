@@ -0,0 +1,80 @@
+package com.example.forcestatusbar.hook;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import de.robv.android.xposed.XC_MethodHook;
+
+/**
+ * Unhook handles of the UI hooks, kept per group.
+ *
+ * A group is removed as a whole when pushed settings no longer need it, so the
+ * methods it hooked run at unhooked speed again instead of entering a callback
+ * that only lets the call through. A removed group can be installed again.
+ * Only touched from the main thread.
+ */
+final class HookGroups {
+    
+    // Window.setFlags / addFlags / clearFlags
+    static final int WINDOW_FLAGS = 0;
+    // ViewRootImpl.collectViewAttributes or View.setSystemUiVisibility, Android 10 and below
+    static final int SYSTEM_UI_VISIBILITY = 1;
+    // Activity callbacks that trigger enforcement
+    static final int LIFECYCLE = 2;
+    // WindowInsetsController.hide, Android 11+
+    static final int INSETS_CONTROLLER = 3;
+    static final int STATUS_BAR_COLOR = 4;
+    // View.setOnApplyWindowInsetsListener, padding strategy
+    static final int INSETS_LISTENER = 5;
+    static final int DISPLAY_METRICS = 6;
+    static final int TOUCH_OFFSET = 7;
+    static final int COUNT = 8;
+    
+    private static final String[] NAMES = {
+        "window flags", "system UI visibility", "lifecycle", "insets controller",
+        "status bar color", "insets listener", "display metrics", "touch offset"
+    };
+    
+    private static final List<List<XC_MethodHook.Unhook>> groups = new ArrayList<>(COUNT);
+    
+    static {
+        for (int group = 0; group < COUNT; group++) {
+            groups.add(new ArrayList<XC_MethodHook.Unhook>(4));
+        }
+    }
+    
+    private HookGroups() {
+    }
+    
+    static void add(int group, XC_MethodHook.Unhook unhook) {
+        if (unhook != null) {
+            groups.get(group).add(unhook);
+        }
+    }
+    
+    static void addAll(int group, Collection<XC_MethodHook.Unhook> unhooks) {
+        if (unhooks != null) {
+            groups.get(group).addAll(unhooks);
+        }
+    }
+    
+    static boolean isInstalled(int group) {
+        return !groups.get(group).isEmpty();
+    }
+    
+    /**
+     * Unhook every method of a group
+     */
+    static void remove(int group) {
+        List<XC_MethodHook.Unhook> unhooks = groups.get(group);
+        if (unhooks.isEmpty()) {
+            return;
+        }
+        for (XC_MethodHook.Unhook unhook : unhooks) {
+            unhook.unhook();
+        }
+        HookLog.i("Removed " + unhooks.size() + " " + NAMES[group] + " hooks");
+        unhooks.clear();
+    }
+}
@@ -0,0 +1,294 @@
+package com.example.forcestatusbar.hook;
+
+import de.robv.android.xposed.XposedBridge;
+
+/**
+ * Logging for hook callbacks.
+ *
+ * Hook callbacks run on the app's UI thread, often once per frame, so they
+ * never format or write anything themselves. A call records a message key and
+ * an int argument into a preallocated ring buffer; a daemon thread formats the
+ * entries and hands them to XposedBridge.log. Each key is rate limited and
+ * dropped entries are summarized as a suppressed count.
+ *
+ * Messages below {@link #COMPILE_LEVEL} are folded away by javac, messages
+ * below the runtime level return after a single compare. Neither path
+ * allocates.
+ */
+final class HookLog {
+    
+    private static final String TAG = "ForceStatusBar";
+    
+    static final int VERBOSE = 0;
+    static final int DEBUG = 1;
+    static final int INFO = 2;
+    static final int WARN = 3;
+    static final int ERROR = 4;
+    static final int NONE = 5;
+    
+    // Raise to strip lower levels from the build entirely
+    static final int COMPILE_LEVEL = VERBOSE;
+    
+    // Message keys, formatted on the drain thread
+    static final int KEY_TEXT = 0;
+    static final int KEY_SET_FLAGS_FULLSCREEN = 1;
+    static final int KEY_ADD_FLAGS_FULLSCREEN = 2;
+    static final int KEY_CLEAR_FORCE_NOT_FULLSCREEN = 3;
+    static final int KEY_SET_SYSTEM_UI_VISIBILITY = 4;
+    static final int KEY_INSETS_HIDE = 5;
+    static final int KEY_APPLIED_COLOR = 6;
+    private static final int KEY_COUNT = 7;
+    
+    private static final String[] TEMPLATES = {
+        "",
+        "Intercepted setFlags FLAG_FULLSCREEN",
+        "Intercepted addFlags FLAG_FULLSCREEN",
+        "Blocked clearing FLAG_FORCE_NOT_FULLSCREEN",
+        "Intercepted setSystemUiVisibility",
+        "Filtered WindowInsetsController.hide",
+        "Applied status bar color"
+    };
+    
+    // Prefix for the hex-formatted argument, null when the key has no argument
+    private static final String[] ARG_PREFIXES = {
+        null,
+        null,
+        null,
+        null,
+        ": 0x",
+        ": 0x",
+        ": #"
+    };
+    
+    private static final int[] KEY_LEVELS = {
+        INFO,
+        INFO,
+        INFO,
+        INFO,
+        INFO,
+        INFO,
+        DEBUG
+    };
+    
+    // Rate limit: at most RATE_LIMIT entries per key per RATE_WINDOW_NS
+    private static final int RATE_LIMIT = 5;
+    private static final long RATE_WINDOW_NS = 1000000000L;
+    
+    private static final int CAPACITY = 256;
+    
+    private static volatile int runtimeLevel = INFO;
+    private static volatile String packageName = "";
+    
+    private static final Object lock = new Object();
+    
+    // Ring buffer, guarded by lock
+    private static final int[] ringKey = new int[CAPACITY];
+    private static final int[] ringArg = new int[CAPACITY];
+    private static final int[] ringSuppressed = new int[CAPACITY];
+    private static final String[] ringText = new String[CAPACITY];
+    private static int head;
+    private static int size;
+    private static int overflow;
+    
+    // Per-key rate limit state, guarded by lock
+    private static final long[] windowStart = new long[KEY_COUNT];
+    private static final int[] windowCount = new int[KEY_COUNT];
+    private static final int[] suppressed = new int[KEY_COUNT];
+    
+    private static Thread drainer;
+    
+    private HookLog() {
+    }
+    
+    /**
+     * Start the drain thread for this process
+     */
+    static void init(String pkg, int level) {
+        packageName = pkg;
+        runtimeLevel = level;
+        synchronized (lock) {
+            if (drainer == null) {
+                drainer = new Thread(HookLog::drainLoop, "ForceStatusBar-log");
+                drainer.setDaemon(true);
+                drainer.setPriority(Thread.MIN_PRIORITY);
+                drainer.start();
+            }
+        }
+    }
+    
+    static void setLevel(int level) {
+        runtimeLevel = level;
+    }
+    
+    static boolean isLoggable(int level) {
+        return level >= COMPILE_LEVEL && level >= runtimeLevel;
+    }
+    
+    /**
+     * Record a keyed message; formatting is deferred to the drain thread
+     */
+    static void log(int key, int arg) {
+        int level = KEY_LEVELS[key];
+        if (level < COMPILE_LEVEL || level < runtimeLevel) {
+            return;
+        }
+        enqueue(key, arg, null);
+    }
+    
+    static void d(String text) {
+        if (DEBUG >= COMPILE_LEVEL && DEBUG >= runtimeLevel) {
+            enqueue(KEY_TEXT, 0, text);
+        }
+    }
+    
+    static void i(String text) {
+        if (INFO >= COMPILE_LEVEL && INFO >= runtimeLevel) {
+            enqueue(KEY_TEXT, 0, text);
+        }
+    }
+    
+    static void w(String text) {
+        if (WARN >= COMPILE_LEVEL && WARN >= runtimeLevel) {
+            enqueue(KEY_TEXT, 0, text);
+        }
+    }
+    
+    static void e(String text) {
+        if (ERROR >= COMPILE_LEVEL && ERROR >= runtimeLevel) {
+            enqueue(KEY_TEXT, 0, text);
+        }
+    }
+    
+    private static void enqueue(int key, int arg, String text) {
+        long now = System.nanoTime();
+        synchronized (lock) {
+            // Free-text messages come from cold paths and are not rate limited
+            int carried = 0;
+            if (key != KEY_TEXT) {
+                if (now - windowStart[key] >= RATE_WINDOW_NS) {
+                    windowStart[key] = now;
+                    windowCount[key] = 0;
+                }
+                if (windowCount[key] >= RATE_LIMIT) {
+                    if (suppressed[key]++ == 0) {
+                        // The drain thread times the summary of this window
+                        lock.notify();
+                    }
+                    return;
+                }
+                windowCount[key]++;
+                carried = suppressed[key];
+                suppressed[key] = 0;
+            }
+            
+            if (size == CAPACITY) {
+                overflow++;
+                return;
+            }
+            int slot = (head + size) % CAPACITY;
+            ringKey[slot] = key;
+            ringArg[slot] = arg;
+            ringSuppressed[slot] = carried;
+            ringText[slot] = text;
+            size++;
+            if (size == 1) {
+                lock.notify();
+            }
+        }
+    }
+    
+    private static void drainLoop() {
+        StringBuilder sb = new StringBuilder(128);
+        while (true) {
+            int key;
+            int arg;
+            int carried;
+            String text;
+            int dropped = 0;
+            synchronized (lock) {
+                while (size == 0) {
+                    long delay = nextFlushDelayLocked(System.nanoTime());
+                    try {
+                        if (delay < 0) {
+                            // Nothing suppressed, sleep until the next message
+                            lock.wait();
+                        } else if (delay > 0) {
+                            // Flush the suppressed count of a key that went quiet when its window closes
+                            lock.wait(delay / 1000000L + 1);
+                        }
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                    if (size == 0) {
+                        flushSuppressedLocked();
+                    }
+                }
+                key = ringKey[head];
+                arg = ringArg[head];
+                carried = ringSuppressed[head];
+                text = ringText[head];
+                ringText[head] = null;
+                head = (head + 1) % CAPACITY;
+                size--;
+                if (size == 0 && overflow > 0) {
+                    dropped = overflow;
+                    overflow = 0;
+                }
+            }
+            
+            sb.setLength(0);
+            sb.append(TAG).append(": ");
+            if (key == KEY_TEXT) {
+                sb.append(text);
+            } else {
+                sb.append(TEMPLATES[key]);
+                if (ARG_PREFIXES[key] != null) {
+                    sb.append(ARG_PREFIXES[key]).append(Integer.toHexString(arg));
+                }
+                sb.append(" - ").append(packageName);
+            }
+            if (carried > 0) {
+                sb.append(" (suppressed ").append(carried).append(" similar)");
+            }
+            XposedBridge.log(sb.toString());
+            
+            if (dropped > 0) {
+                XposedBridge.log(TAG + ": Log buffer full, dropped " + dropped + " messages - " + packageName);
+            }
+        }
+    }
+    
+    /**
+     * Nanoseconds until the first rate window holding suppressed messages closes, -1 when none does
+     */
+    private static long nextFlushDelayLocked(long now) {
+        long delay = -1;
+        for (int key = 1; key < KEY_COUNT; key++) {
+            if (suppressed[key] > 0) {
+                long left = Math.max(0, windowStart[key] + RATE_WINDOW_NS - now);
+                if (delay < 0 || left < delay) {
+                    delay = left;
+                }
+            }
+        }
+        return delay;
+    }
+    
+    /**
+     * Move suppressed counts of idle keys into the ring as summary entries
+     */
+    private static void flushSuppressedLocked() {
+        long now = System.nanoTime();
+        for (int key = 1; key < KEY_COUNT; key++) {
+            if (suppressed[key] > 0 && now - windowStart[key] >= RATE_WINDOW_NS && size < CAPACITY) {
+                int slot = (head + size) % CAPACITY;
+                ringKey[slot] = KEY_TEXT;
+                ringArg[slot] = 0;
+                ringSuppressed[slot] = 0;
+                ringText[slot] = "Suppressed " + suppressed[key] + " x \"" + TEMPLATES[key] + "\" - " + packageName;
+                suppressed[key] = 0;
+                size++;
+            }
+        }
+    }
+}
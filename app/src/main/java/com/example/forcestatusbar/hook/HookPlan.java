@@ -0,0 +1,246 @@
+package com.example.forcestatusbar.hook;
+
+import android.os.Build;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+
+import de.robv.android.xposed.XposedHelpers;
+import de.robv.android.xposed.callbacks.XC_LoadPackage;
+
+/**
+ * Which hook targets exist on this ROM, resolved once per build fingerprint
+ * and SDK level.
+ *
+ * Candidate classes that never exist on a given ROM would otherwise be looked
+ * up (and fail) on every process start. The plan records the outcome in the
+ * app's cache directory, so later launches install only known-good hooks.
+ */
+final class HookPlan {
+    
+    private static final String FILE_NAME = "forcestatusbar_hookplan.properties";
+    
+    // Bump when the resolved contents change meaning
+    private static final int VERSION = 3;
+    
+    private static final String KEY_VERSION = "version";
+    private static final String KEY_FINGERPRINT = "fingerprint";
+    private static final String KEY_SDK = "sdk";
+    private static final String KEY_INSETS_CLASSES = "insets.classes";
+    private static final String KEY_STATUS_BARS_TYPE = "insets.statusBars";
+    private static final String KEY_NAVIGATION_BARS_TYPE = "insets.navigationBars";
+    private static final String KEY_ROOT_SYSTEM_UI_HOOK = "sysui.collectViewAttributes";
+    
+    // Android 11+ candidate WindowInsetsController implementation classes
+    private static final String[] INSETS_CONTROLLER_CLASSES = {
+        "android.view.WindowInsetsControllerImpl",
+        "android.view.InsetsController",
+        "android.view.WindowInsetsController$Impl"
+    };
+    
+    // Fallback: WindowInsets.Type.statusBars() is 1 and navigationBars() is 2 on AOSP
+    private static final int DEFAULT_STATUS_BARS_TYPE = 1;
+    private static final int DEFAULT_NAVIGATION_BARS_TYPE = 2;
+    
+    final List<String> insetsControllerClasses;
+    final int statusBarsType;
+    final int navigationBarsType;
+    // Android 10 and below: ViewRootImpl.collectViewAttributes and the fields it fills are present
+    final boolean rootSystemUiHook;
+    
+    private HookPlan(List<String> insetsControllerClasses, int statusBarsType, int navigationBarsType,
+            boolean rootSystemUiHook) {
+        this.insetsControllerClasses = insetsControllerClasses;
+        this.statusBarsType = statusBarsType;
+        this.navigationBarsType = navigationBarsType;
+        this.rootSystemUiHook = rootSystemUiHook;
+    }
+    
+    /**
+     * Load the persisted plan for this build, resolving and saving it when missing or stale
+     */
+    static HookPlan load(XC_LoadPackage.LoadPackageParam lpparam) {
+        File file = planFile(lpparam);
+        if (file != null) {
+            HookPlan plan = read(file);
+            if (plan != null) {
+                return plan;
+            }
+        }
+        
+        HookPlan plan = resolve(lpparam.classLoader);
+        if (file != null) {
+            write(file, plan);
+        }
+        HookLog.i("Resolved hook plan for " + Build.FINGERPRINT + " - " + lpparam.packageName);
+        return plan;
+    }
+    
+    /**
+     * Start {@link #load} on a background thread, so the first Activity does not wait for the disk
+     */
+    static FutureTask<HookPlan> loadAsync(XC_LoadPackage.LoadPackageParam lpparam) {
+        FutureTask<HookPlan> task = new FutureTask<>(() -> load(lpparam));
+        Thread loader = new Thread(task, "ForceStatusBar-plan");
+        loader.setDaemon(true);
+        loader.start();
+        return task;
+    }
+    
+    /**
+     * The plan {@link #loadAsync} started, waiting only if it is still loading; loaded here if that failed
+     */
+    static HookPlan await(FutureTask<HookPlan> task, XC_LoadPackage.LoadPackageParam lpparam) {
+        try {
+            return task.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            HookLog.w("Failed to load hook plan in the background - " + e.getCause());
+        }
+        return load(lpparam);
+    }
+    
+    /**
+     * Forget the persisted plan after a known-good target failed, so the next launch re-resolves
+     */
+    static void discard(XC_LoadPackage.LoadPackageParam lpparam) {
+        File file = planFile(lpparam);
+        if (file != null && file.isFile() && !file.delete()) {
+            HookLog.w("Failed to discard hook plan - " + lpparam.packageName);
+        }
+    }
+    
+    private static HookPlan resolve(ClassLoader classLoader) {
+        List<String> insetsClasses = new ArrayList<>();
+        int statusBars = 0;
+        int navigationBars = 0;
+        boolean rootSystemUiHook = false;
+        
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.R) {
+            for (String className : INSETS_CONTROLLER_CLASSES) {
+                Class<?> clazz = XposedHelpers.findClassIfExists(className, classLoader);
+                if (clazz != null && declaresHide(clazz)) {
+                    insetsClasses.add(className);
+                }
+            }
+            try {
+                statusBars = android.view.WindowInsets.Type.statusBars();
+                navigationBars = android.view.WindowInsets.Type.navigationBars();
+            } catch (Throwable t) {
+                statusBars = DEFAULT_STATUS_BARS_TYPE;
+                navigationBars = DEFAULT_NAVIGATION_BARS_TYPE;
+            }
+        } else {
+            rootSystemUiHook = hasRootSystemUiTargets(classLoader);
+        }
+        
+        return new HookPlan(Collections.unmodifiableList(insetsClasses), statusBars, navigationBars,
+            rootSystemUiHook);
+    }
+    
+    private static boolean hasRootSystemUiTargets(ClassLoader classLoader) {
+        Class<?> viewRootImpl = XposedHelpers.findClassIfExists("android.view.ViewRootImpl", classLoader);
+        Class<?> attachInfo = XposedHelpers.findClassIfExists("android.view.View$AttachInfo", classLoader);
+        return viewRootImpl != null && attachInfo != null
+            && XposedHelpers.findMethodExactIfExists(viewRootImpl, "collectViewAttributes") != null
+            && XposedHelpers.findFieldIfExists(viewRootImpl, "mWindowAttributes") != null
+            && XposedHelpers.findFieldIfExists(viewRootImpl, "mAttachInfo") != null
+            && XposedHelpers.findFieldIfExists(attachInfo, "mSystemUiVisibility") != null;
+    }
+    
+    private static boolean declaresHide(Class<?> clazz) {
+        for (Method method : clazz.getDeclaredMethods()) {
+            Class<?>[] params = method.getParameterTypes();
+            if (method.getName().equals("hide") && params.length > 0 && params[0] == int.class) {
+                return true;
+            }
+        }
+        return false;
+    }
+    
+    private static File planFile(XC_LoadPackage.LoadPackageParam lpparam) {
+        // system_server and some early processes have no app data directory
+        if (lpparam.appInfo == null || lpparam.appInfo.dataDir == null) {
+            return null;
+        }
+        return new File(lpparam.appInfo.dataDir, "cache/" + FILE_NAME);
+    }
+    
+    private static HookPlan read(File file) {
+        if (!file.isFile()) {
+            return null;
+        }
+        Properties props = new Properties();
+        try (InputStream in = new FileInputStream(file)) {
+            props.load(in);
+        } catch (Exception e) {
+            return null;
+        }
+        
+        if (!String.valueOf(VERSION).equals(props.getProperty(KEY_VERSION))
+                || !Build.FINGERPRINT.equals(props.getProperty(KEY_FINGERPRINT))
+                || !String.valueOf(Build.VERSION.SDK_INT).equals(props.getProperty(KEY_SDK))) {
+            return null;
+        }
+        
+        try {
+            List<String> insetsClasses = new ArrayList<>();
+            String classes = props.getProperty(KEY_INSETS_CLASSES, "");
+            for (String name : classes.split(",")) {
+                if (!name.isEmpty()) {
+                    insetsClasses.add(name);
+                }
+            }
+            int statusBars = Integer.parseInt(props.getProperty(KEY_STATUS_BARS_TYPE, "0"));
+            int navigationBars = Integer.parseInt(props.getProperty(KEY_NAVIGATION_BARS_TYPE, "0"));
+            boolean rootSystemUiHook = Boolean.parseBoolean(props.getProperty(KEY_ROOT_SYSTEM_UI_HOOK));
+            return new HookPlan(Collections.unmodifiableList(insetsClasses), statusBars, navigationBars,
+                rootSystemUiHook);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+    
+    private static void write(File file, HookPlan plan) {
+        Properties props = new Properties();
+        props.setProperty(KEY_VERSION, String.valueOf(VERSION));
+        props.setProperty(KEY_FINGERPRINT, Build.FINGERPRINT);
+        props.setProperty(KEY_SDK, String.valueOf(Build.VERSION.SDK_INT));
+        props.setProperty(KEY_INSETS_CLASSES, join(plan.insetsControllerClasses));
+        props.setProperty(KEY_STATUS_BARS_TYPE, String.valueOf(plan.statusBarsType));
+        props.setProperty(KEY_NAVIGATION_BARS_TYPE, String.valueOf(plan.navigationBarsType));
+        props.setProperty(KEY_ROOT_SYSTEM_UI_HOOK, String.valueOf(plan.rootSystemUiHook));
+        
+        File parent = file.getParentFile();
+        if (parent != null && !parent.isDirectory() && !parent.mkdirs()) {
+            return;
+        }
+        try (OutputStream out = new FileOutputStream(file)) {
+            props.store(out, "ForceStatusBar hook plan");
+        } catch (Exception e) {
+            HookLog.w("Failed to save hook plan - " + e.getMessage());
+        }
+    }
+    
+    private static String join(List<String> names) {
+        StringBuilder sb = new StringBuilder();
+        for (String name : names) {
+            if (sb.length() > 0) {
+                sb.append(',');
+            }
+            sb.append(name);
+        }
+        return sb.toString();
+    }
+}
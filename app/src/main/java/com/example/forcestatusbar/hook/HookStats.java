@@ -0,0 +1,75 @@
+package com.example.forcestatusbar.hook;
+
+import com.example.forcestatusbar.bridge.BridgeProtocol;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Per-hook call counts, rewrite counts and latency histograms for this process.
+ *
+ * Recording is a couple of atomic adds into preallocated arrays, nothing is
+ * allocated until the module app asks for a report.
+ */
+final class HookStats {
+    
+    private static final int HOOKS = BridgeProtocol.HOOK_COUNT;
+    private static final int BUCKETS = BridgeProtocol.LATENCY_BUCKETS;
+    private static final long[] BOUNDS = BridgeProtocol.LATENCY_BOUNDS_NS;
+    
+    private static final AtomicLongArray calls = new AtomicLongArray(HOOKS);
+    private static final AtomicLongArray rewrites = new AtomicLongArray(HOOKS);
+    private static final AtomicLongArray totalNs = new AtomicLongArray(HOOKS);
+    private static final AtomicLongArray latency = new AtomicLongArray(HOOKS * BUCKETS);
+    
+    private HookStats() {
+    }
+    
+    static long start() {
+        return System.nanoTime();
+    }
+    
+    /**
+     * Record one hook invocation that started at {@code start}
+     */
+    static void end(int hook, long start, boolean rewritten) {
+        long elapsed = System.nanoTime() - start;
+        calls.incrementAndGet(hook);
+        if (rewritten) {
+            rewrites.incrementAndGet(hook);
+        }
+        totalNs.addAndGet(hook, elapsed);
+        
+        int bucket = 0;
+        while (bucket < BOUNDS.length && elapsed >= BOUNDS[bucket]) {
+            bucket++;
+        }
+        latency.incrementAndGet(hook * BUCKETS + bucket);
+    }
+    
+    static long[] snapshotCalls() {
+        return snapshot(calls);
+    }
+    
+    static long[] snapshotRewrites() {
+        return snapshot(rewrites);
+    }
+    
+    static long[] snapshotTotalNs() {
+        return snapshot(totalNs);
+    }
+    
+    /**
+     * Histogram flattened as hook * LATENCY_BUCKETS + bucket
+     */
+    static long[] snapshotLatency() {
+        return snapshot(latency);
+    }
+    
+    private static long[] snapshot(AtomicLongArray array) {
+        long[] copy = new long[array.length()];
+        for (int i = 0; i < copy.length; i++) {
+            copy[i] = array.get(i);
+        }
+        return copy;
+    }
+}
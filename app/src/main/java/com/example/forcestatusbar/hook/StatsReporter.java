@@ -0,0 +1,67 @@
+package com.example.forcestatusbar.hook;
+
+import android.app.PendingIntent;
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
+import android.os.Build;
+
+import com.example.forcestatusbar.bridge.BridgeProtocol;
+import com.example.forcestatusbar.config.ModuleConfig;
+
+/**
+ * Answers stats requests from the module app with this process's {@link HookStats}
+ */
+final class StatsReporter extends BroadcastReceiver {
+    
+    private final String packageName;
+    private final String processName;
+    
+    private StatsReporter(String packageName, String processName) {
+        this.packageName = packageName;
+        this.processName = processName;
+    }
+    
+    /**
+     * Register the receiver on the application context, once per process
+     */
+    static void register(Context context, String packageName, String processName) {
+        try {
+            IntentFilter filter = new IntentFilter(BridgeProtocol.ACTION_REQUEST_STATS);
+            StatsReporter receiver = new StatsReporter(packageName, processName);
+            Context app = context.getApplicationContext() != null ? context.getApplicationContext() : context;
+            // Only the module may ask, like for config pushes
+            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.TIRAMISU) {
+                app.registerReceiver(receiver, filter, BridgeProtocol.PERMISSION_PUSH_CONFIG, null,
+                    Context.RECEIVER_EXPORTED);
+            } else {
+                app.registerReceiver(receiver, filter, BridgeProtocol.PERMISSION_PUSH_CONFIG, null);
+            }
+        } catch (Exception e) {
+            HookLog.w("Failed to register stats receiver - " + e.getMessage());
+        }
+    }
+    
+    @Override
+    public void onReceive(Context context, Intent intent) {
+        Intent report = new Intent(BridgeProtocol.ACTION_STATS_REPORT);
+        report.setPackage(ModuleConfig.MODULE_PACKAGE);
+        report.putExtra(BridgeProtocol.EXTRA_PACKAGE, packageName);
+        report.putExtra(BridgeProtocol.EXTRA_PROCESS, processName);
+        report.putExtra(BridgeProtocol.EXTRA_CALLS, HookStats.snapshotCalls());
+        report.putExtra(BridgeProtocol.EXTRA_REWRITES, HookStats.snapshotRewrites());
+        report.putExtra(BridgeProtocol.EXTRA_TOTAL_NS, HookStats.snapshotTotalNs());
+        report.putExtra(BridgeProtocol.EXTRA_LATENCY, HookStats.snapshotLatency());
+        report.putExtra(BridgeProtocol.EXTRA_FIGHT_BACKS, FightBackDetector.snapshot());
+        if (FrameMonitor.isEnabled()) {
+            report.putExtra(BridgeProtocol.EXTRA_FRAMES, FrameMonitor.snapshotFrames());
+            report.putExtra(BridgeProtocol.EXTRA_JANKS, FrameMonitor.snapshotJanks());
+        }
+        // Only this package can create it, the module checks the package name against it
+        report.putExtra(BridgeProtocol.EXTRA_SENDER, PendingIntent.getBroadcast(context, 0,
+            new Intent(BridgeProtocol.ACTION_STATS_REPORT).setPackage(ModuleConfig.MODULE_PACKAGE),
+            PendingIntent.FLAG_IMMUTABLE));
+        context.sendBroadcast(report, BridgeProtocol.PERMISSION_PUSH_CONFIG);
+    }
+}
@@ -1,171 +1,401 @@
 package com.example.forcestatusbar.hook;
 
 import android.app.Activity;
-import android.content.Context;
+import android.app.Instrumentation;
+import android.content.res.Configuration;
 import android.os.Build;
-import android.graphics.Color;
-import android.graphics.drawable.ColorDrawable;
-import android.graphics.drawable.Drawable;
+import android.os.Process;
 
 import android.view.View;
 import android.view.Window;
 import android.view.WindowManager;
 import android.view.ViewGroup;
 
+import com.example.forcestatusbar.bridge.BridgeProtocol;
+import com.example.forcestatusbar.config.ModuleConfig;
+import com.example.forcestatusbar.config.PackageConfig;
+
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.FutureTask;
+
 import de.robv.android.xposed.IXposedHookLoadPackage;
 import de.robv.android.xposed.XC_MethodHook;
 import de.robv.android.xposed.XposedBridge;
 import de.robv.android.xposed.XposedHelpers;
+import de.robv.android.xposed.XSharedPreferences;
 import de.robv.android.xposed.callbacks.XC_LoadPackage;
 
 public class StatusBarHook implements IXposedHookLoadPackage {
     
-    private static final String TAG = "ForceStatusBar";
+    private final ThemeColorCache themeColors = new ThemeColorCache();
+    
+    // Per-window enforcement state, only touched from the UI thread
+    private final Map<View, EnforcementRecord> enforcementRecords = new WeakHashMap<>();
+    
+    // Settings for this process as read in handleLoadPackage. The strategy is taken from here,
+    // everything else from the live ConfigSnapshot
+    private PackageConfig config;
+    private long configVersion;
+    // Set to be enforced by system_server; only trusted once system_server confirms it, see SystemServerStatus
+    private boolean enforcedBySystemServer;
+    
+    // Hooks on Instrumentation.callActivityOnCreate waiting for the first Activity of this process
+    private Set<XC_MethodHook.Unhook> firstActivityTrigger;
+    private boolean uiHooksInstalled;
+    
+    // Started in handleLoadPackage, taken by installUiHooks
+    private FutureTask<HookPlan> pendingPlan;
+    
+    // Kept from installUiHooks so hook groups can be installed again after a push
+    private XC_LoadPackage.LoadPackageParam lpparam;
+    private HookPlan plan;
     
     @Override
     public void handleLoadPackage(XC_LoadPackage.LoadPackageParam lpparam) throws Throwable {
-        hookWindowMethods(lpparam);
-        hookDecorView(lpparam);
-        hookActivityLifecycle(lpparam);
+        // Other packages loaded into this process (WebView, plugins) share the hooks of the first one
+        if (!lpparam.isFirstApplication) {
+            return;
+        }
         
-        // REMOVED: Display size deception - causes touch offset
-        // hookDisplayMetrics(lpparam);
-        // hookDisplaySize(lpparam);
+        if ("android".equals(lpparam.packageName)) {
+            handleSystemServer(lpparam);
+            return;
+        }
         
-        // Android 11+ use WindowInsetsController
-        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.R) {
-            hookWindowInsetsControllerImpl(lpparam);
+        // Isolated processes never host app activities
+        if (!isUiCapableProcess(lpparam)) {
+            return;
         }
         
-        XposedBridge.log(TAG + ": Initialized WITHOUT Display deception (touch-safe) - " + lpparam.packageName);
+        // Disabled packages / processes install nothing and pay no hook overhead
+        int logLevel = loadConfig(lpparam);
+        if (!config.enabled) {
+            return;
+        }
+        
+        // The plan file is read and, on a miss, written while the app starts, not in the first Activity.onCreate
+        pendingPlan = HookPlan.loadAsync(lpparam);
+        
+        // Service-only processes (":remote", ":push") never create an Activity, so they
+        // only ever carry this single trigger hook. Packages set to be enforced by system_server
+        // keep it too, until the first Activity can check that system_server really does
+        deferUntilFirstActivity(lpparam, logLevel);
     }
     
-    private void hookWindowMethods(XC_LoadPackage.LoadPackageParam lpparam) {
-        // Hook Window.setFlags method
+    private static boolean isUiCapableProcess(XC_LoadPackage.LoadPackageParam lpparam) {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.P) {
+            return !Process.isIsolated();
+        }
+        // Isolated UIDs are FIRST_ISOLATED_UID (99000) to LAST_ISOLATED_UID (99999) per user
+        int appId = Process.myUid() % 100000;
+        return appId < 99000 || appId > 99999;
+    }
+    
+    /**
+     * System framework scope: enforce configured packages at the window policy level when
+     * system_server mode is on, otherwise do nothing here
+     */
+    private static void handleSystemServer(XC_LoadPackage.LoadPackageParam lpparam) {
+        XSharedPreferences prefs;
         try {
-            XposedHelpers.findAndHookMethod(
-                Window.class.getName(),
-                lpparam.classLoader,
-                "setFlags",
-                int.class,
-                int.class,
+            prefs = new XSharedPreferences(ModuleConfig.MODULE_PACKAGE, ModuleConfig.PREFS_NAME);
+            if (!ModuleConfig.systemServerMode(prefs)) {
+                return;
+            }
+        } catch (Throwable t) {
+            return;
+        }
+        HookLog.init(lpparam.packageName, ModuleConfig.logLevel(prefs));
+        
+        HookPlan plan = HookPlan.load(lpparam);
+        Map<String, FlagPolicy> policies = new HashMap<>();
+        for (PackageConfig packageConfig : ModuleConfig.systemServerPackages(prefs)) {
+            policies.put(packageConfig.name,
+                FlagPolicy.forConfig(packageConfig, plan.statusBarsType));
+        }
+        if (!policies.isEmpty() && SystemServerHooks.install(lpparam, policies, plan)) {
+            SystemServerStatus.publishWhenBooted(lpparam.classLoader, policies.keySet());
+        }
+    }
+    
+    /**
+     * Install the Window/View/Activity hooks right before the first Activity.onCreate
+     */
+    private void deferUntilFirstActivity(XC_LoadPackage.LoadPackageParam lpparam, int logLevel) {
+        try {
+            firstActivityTrigger = XposedBridge.hookAllMethods(
+                Instrumentation.class,
+                "callActivityOnCreate",
                 new XC_MethodHook() {
                     @Override
                     protected void beforeHookedMethod(MethodHookParam param) throws Throwable {
-                        int flags = (int) param.args[0];
-                        int mask = (int) param.args[1];
-                        
-                        // If setting FLAG_FULLSCREEN, block it
-                        if ((flags & WindowManager.LayoutParams.FLAG_FULLSCREEN) != 0) {
-                            flags &= ~WindowManager.LayoutParams.FLAG_FULLSCREEN;
-                            param.args[0] = flags;
-                            XposedBridge.log(TAG + ": Intercepted setFlags FLAG_FULLSCREEN - " + lpparam.packageName);
+                        if (uiHooksInstalled) {
+                            return;
+                        }
+                        uiHooksInstalled = true;
+                        Activity activity = (Activity) param.args[0];
+                        if (enforcedBySystemServer && SystemServerStatus.isEnforcing(lpparam.packageName)) {
+                            HookLog.init(lpparam.packageName, logLevel);
+                            HookLog.i("Enforced by system_server, no in-process hooks - " + lpparam.processName);
+                        } else {
+                            installUiHooks(lpparam, logLevel);
+                            CallTrace.init(activity.getCacheDir(), lpparam.processName);
+                            StatsReporter.register(activity, lpparam.packageName, lpparam.processName);
+                            ConfigReceiver.register(activity, lpparam.packageName, lpparam.processName,
+                                StatusBarHook.this::onConfigPushed);
                         }
-                        
-                        // Force add FLAG_FORCE_NOT_FULLSCREEN
-                        if ((flags & WindowManager.LayoutParams.FLAG_FORCE_NOT_FULLSCREEN) == 0) {
-                            flags |= WindowManager.LayoutParams.FLAG_FORCE_NOT_FULLSCREEN;
-                            param.args[0] = flags;
+                        for (XC_MethodHook.Unhook unhook : firstActivityTrigger) {
+                            unhook.unhook();
                         }
+                        firstActivityTrigger = null;
                     }
                 }
             );
+        } catch (Throwable t) {
+            // Fall back to installing everything up front, whether system_server enforces or not
+            uiHooksInstalled = true;
+            installUiHooks(lpparam, logLevel);
+        }
+    }
+    
+    private void installUiHooks(XC_LoadPackage.LoadPackageParam lpparam, int logLevel) {
+        HookLog.init(lpparam.packageName, logLevel);
+        
+        FrameMonitor.setEnabled(config.frameMonitor);
+        
+        this.lpparam = lpparam;
+        plan = HookPlan.await(pendingPlan, lpparam);
+        pendingPlan = null;
+        ConfigSnapshot.init(configVersion, config, plan.statusBarsType, plan.navigationBarsType);
+        CallTrace.setEnabled(config.traceCalls);
+        
+        for (int group = 0; group < HookGroups.COUNT; group++) {
+            if (needsGroup(group, config)) {
+                installGroup(group);
+            }
+        }
+        
+        HookLog.i("Initialized - " + lpparam.processName + ", strategy " + config.strategy
+            + (config.compensateDisplayMetrics ? ", display metrics compensated" : "")
+            + (config.correctTouchOffset ? ", touch offset corrected" : ""));
+    }
+    
+    /**
+     * Whether the given settings need a hook group. Strategy is taken from the install-time
+     * settings, windows already laid out for it keep their layout
+     */
+    private boolean needsGroup(int group, PackageConfig live) {
+        if (!live.enabled) {
+            return false;
+        }
+        switch (group) {
+            case HookGroups.SYSTEM_UI_VISIBILITY:
+                return Build.VERSION.SDK_INT < Build.VERSION_CODES.R;
+            case HookGroups.INSETS_CONTROLLER:
+                // Android 11+ use WindowInsetsController
+                return Build.VERSION.SDK_INT >= Build.VERSION_CODES.R;
+            case HookGroups.INSETS_LISTENER:
+                return config.strategy == PackageConfig.STRATEGY_PADDING;
+            case HookGroups.DISPLAY_METRICS:
+                // Opt-in: only the app-area getters are compensated, real metrics stay untouched
+                return live.compensateDisplayMetrics;
+            case HookGroups.TOUCH_OFFSET:
+                return live.correctTouchOffset && config.strategy != PackageConfig.STRATEGY_COLOR_ONLY;
+            default:
+                return true;
+        }
+    }
+    
+    private void installGroup(int group) {
+        switch (group) {
+            case HookGroups.WINDOW_FLAGS:
+                hookWindowMethods(lpparam);
+                break;
+            case HookGroups.SYSTEM_UI_VISIBILITY:
+                hookDecorView(lpparam, plan);
+                break;
+            case HookGroups.LIFECYCLE:
+                hookActivityLifecycle(lpparam);
+                break;
+            case HookGroups.INSETS_CONTROLLER:
+                hookWindowInsetsControllerImpl(lpparam, plan);
+                break;
+            case HookGroups.STATUS_BAR_COLOR:
+                hookStatusBarColor(lpparam);
+                break;
+            case HookGroups.INSETS_LISTENER:
+                hookInsetsListenerSetter(lpparam);
+                break;
+            case HookGroups.DISPLAY_METRICS:
+                DisplayCompensation.install(lpparam);
+                break;
+            case HookGroups.TOUCH_OFFSET:
+                TouchCorrection.install(lpparam);
+                break;
+        }
+    }
+    
+    /**
+     * Pushed settings changed, on the main thread: drop the hook groups they no longer need,
+     * install the ones they need again, then re-apply every live window
+     */
+    private void onConfigPushed() {
+        PackageConfig live = ConfigSnapshot.current().config;
+        for (int group = 0; group < HookGroups.COUNT; group++) {
+            boolean needed = needsGroup(group, live);
+            if (!needed) {
+                HookGroups.remove(group);
+            } else if (!HookGroups.isInstalled(group)) {
+                installGroup(group);
+            }
+        }
+        reapplyAll();
+    }
+    
+    /**
+     * Read the module settings for this process, returns the configured log level
+     */
+    private int loadConfig(XC_LoadPackage.LoadPackageParam lpparam) {
+        int logLevel = ModuleConfig.DEFAULT_LOG_LEVEL;
+        try {
+            XSharedPreferences prefs = new XSharedPreferences(ModuleConfig.MODULE_PACKAGE, ModuleConfig.PREFS_NAME);
+            config = ModuleConfig.forProcess(prefs, lpparam.packageName, lpparam.processName);
+            configVersion = ModuleConfig.version(prefs);
+            enforcedBySystemServer = ModuleConfig.isEnforcedBySystemServer(prefs, lpparam.packageName);
+            logLevel = ModuleConfig.logLevel(prefs);
+        } catch (Throwable t) {
+            // Settings not readable (module never opened), keep the original behavior
+            config = PackageConfig.defaults(lpparam.packageName);
+        }
+        return logLevel;
+    }
+    
+    private void hookWindowMethods(XC_LoadPackage.LoadPackageParam lpparam) {
+        // Hook Window.setFlags method
+        try {
+            HookGroups.add(HookGroups.WINDOW_FLAGS, XposedHelpers.findAndHookMethod(
+                Window.class.getName(),
+                lpparam.classLoader,
+                "setFlags",
+                int.class,
+                int.class,
+                new WindowHooks.SetFlags()
+            ));
         } catch (Exception e) {
-            XposedBridge.log(TAG + ": Failed to hook setFlags - " + e.getMessage());
+            HookLog.w("Failed to hook setFlags - " + e.getMessage());
         }
         
         // Hook addFlags method
         try {
-            XposedHelpers.findAndHookMethod(
+            HookGroups.add(HookGroups.WINDOW_FLAGS, XposedHelpers.findAndHookMethod(
                 Window.class.getName(),
                 lpparam.classLoader,
                 "addFlags",
                 int.class,
-                new XC_MethodHook() {
-                    @Override
-                    protected void beforeHookedMethod(MethodHookParam param) throws Throwable {
-                        int flags = (int) param.args[0];
-                        
-                        // If adding FLAG_FULLSCREEN, block it
-                        if ((flags & WindowManager.LayoutParams.FLAG_FULLSCREEN) != 0) {
-                            flags &= ~WindowManager.LayoutParams.FLAG_FULLSCREEN;
-                            param.args[0] = flags;
-                            XposedBridge.log(TAG + ": Intercepted addFlags FLAG_FULLSCREEN - " + lpparam.packageName);
-                        }
-                    }
-                }
-            );
+                WindowHooks.addFlags()
+            ));
         } catch (Exception e) {
-            XposedBridge.log(TAG + ": Failed to hook addFlags - " + e.getMessage());
+            HookLog.w("Failed to hook addFlags - " + e.getMessage());
         }
         
         // Hook clearFlags method
         try {
-            XposedHelpers.findAndHookMethod(
+            HookGroups.add(HookGroups.WINDOW_FLAGS, XposedHelpers.findAndHookMethod(
                 Window.class.getName(),
                 lpparam.classLoader,
                 "clearFlags",
                 int.class,
-                new XC_MethodHook() {
-                    @Override
-                    protected void beforeHookedMethod(MethodHookParam param) throws Throwable {
-                        int flags = (int) param.args[0];
-                        
-                        // If trying to clear FLAG_FORCE_NOT_FULLSCREEN, block it
-                        if ((flags & WindowManager.LayoutParams.FLAG_FORCE_NOT_FULLSCREEN) != 0) {
-                            flags &= ~WindowManager.LayoutParams.FLAG_FORCE_NOT_FULLSCREEN;
-                            param.args[0] = flags;
-                            XposedBridge.log(TAG + ": Blocked clearing FLAG_FORCE_NOT_FULLSCREEN - " + lpparam.packageName);
-                        }
-                    }
-                }
-            );
+                WindowHooks.clearFlags()
+            ));
         } catch (Exception e) {
-            XposedBridge.log(TAG + ": Failed to hook clearFlags - " + e.getMessage());
+            HookLog.w("Failed to hook clearFlags - " + e.getMessage());
         }
     }
     
-    private void hookDecorView(XC_LoadPackage.LoadPackageParam lpparam) {
-        // Hook DecorView.setSystemUiVisibility for Android 10 and below
-        if (Build.VERSION.SDK_INT < Build.VERSION_CODES.R) {
+    private void hookDecorView(XC_LoadPackage.LoadPackageParam lpparam, HookPlan plan) {
+        // Android 10 and below: enforce at the window root instead of on every View
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.R) {
+            return;
+        }
+        
+        if (plan.rootSystemUiHook) {
             try {
-                XposedHelpers.findAndHookMethod(
-                    View.class.getName(),
-                    lpparam.classLoader,
-                    "setSystemUiVisibility",
-                    int.class,
-                    new XC_MethodHook() {
-                        @Override
-                        protected void beforeHookedMethod(MethodHookParam param) throws Throwable {
-                            int visibility = (int) param.args[0];
-                            
-                            // Remove fullscreen related flags
-                            int oldVisibility = visibility;
-                            visibility &= ~View.SYSTEM_UI_FLAG_FULLSCREEN;
-                            visibility &= ~View.SYSTEM_UI_FLAG_HIDE_NAVIGATION;
-                            visibility &= ~View.SYSTEM_UI_FLAG_IMMERSIVE;
-                            visibility &= ~View.SYSTEM_UI_FLAG_IMMERSIVE_STICKY;
-                            
-                            // Ensure status bar is visible
-                            visibility |= View.SYSTEM_UI_FLAG_VISIBLE;
-                            
-                            if (visibility != oldVisibility) {
-                                param.args[0] = visibility;
-                                XposedBridge.log(TAG + ": Intercepted setSystemUiVisibility - " + lpparam.packageName);
-                            }
-                        }
-                    }
-                );
-            } catch (Exception e) {
-                XposedBridge.log(TAG + ": Failed to hook setSystemUiVisibility - " + e.getMessage());
+                hookCollectViewAttributes(lpparam);
+                return;
+            } catch (Throwable t) {
+                HookLog.w("Failed to hook ViewRootImpl.collectViewAttributes - " + t.getMessage());
+                HookPlan.discard(lpparam);
             }
         }
+        
+        // Fallback: View.setSystemUiVisibility, filtered down to root views
+        try {
+            HookGroups.add(HookGroups.SYSTEM_UI_VISIBILITY, XposedHelpers.findAndHookMethod(
+                View.class.getName(),
+                lpparam.classLoader,
+                "setSystemUiVisibility",
+                int.class,
+                new WindowHooks.SystemUiVisibility()
+            ));
+        } catch (Exception e) {
+            HookLog.w("Failed to hook setSystemUiVisibility - " + e.getMessage());
+        }
+    }
+    
+    /**
+     * Apply the policy to the system UI visibility ViewRootImpl collects from its whole
+     * hierarchy, so individual View.setSystemUiVisibility calls never run through a hook
+     */
+    private void hookCollectViewAttributes(XC_LoadPackage.LoadPackageParam lpparam) {
+        Class<?> viewRootImpl = XposedHelpers.findClass("android.view.ViewRootImpl", lpparam.classLoader);
+        Class<?> attachInfo = XposedHelpers.findClass("android.view.View$AttachInfo", lpparam.classLoader);
+        final Field windowAttributesField = XposedHelpers.findField(viewRootImpl, "mWindowAttributes");
+        final Field attachInfoField = XposedHelpers.findField(viewRootImpl, "mAttachInfo");
+        final Field viewField = XposedHelpers.findField(viewRootImpl, "mView");
+        final Field collectedVisibilityField = XposedHelpers.findField(attachInfo, "mSystemUiVisibility");
+        
+        HookGroups.add(HookGroups.SYSTEM_UI_VISIBILITY, XposedHelpers.findAndHookMethod(
+            viewRootImpl,
+            "collectViewAttributes",
+            new XC_MethodHook() {
+                @Override
+                protected void afterHookedMethod(MethodHookParam param) throws Throwable {
+                    long start = HookStats.start();
+                    FlagPolicy policy = ConfigSnapshot.current().policy;
+                    WindowManager.LayoutParams attrs =
+                        (WindowManager.LayoutParams) windowAttributesField.get(param.thisObject);
+                    if (!WindowHooks.rewriteCollectedSystemUi(policy, attrs, viewField.get(param.thisObject),
+                            start)) {
+                        HookStats.end(BridgeProtocol.HOOK_SYSTEM_UI_VISIBILITY, start, false);
+                        return;
+                    }
+                    
+                    // Keep the collected value in sync so the next collection does not see a spurious change
+                    Object info = attachInfoField.get(param.thisObject);
+                    if (info != null) {
+                        collectedVisibilityField.setInt(info,
+                            (collectedVisibilityField.getInt(info) & policy.and(FlagPolicy.SYSTEM_UI_VISIBILITY))
+                                | policy.or(FlagPolicy.SYSTEM_UI_VISIBILITY));
+                    }
+                    
+                    // Report the change so the traversal relayouts with the corrected attributes
+                    param.setResult(Boolean.TRUE);
+                    HookStats.end(BridgeProtocol.HOOK_SYSTEM_UI_VISIBILITY, start, true);
+                }
+            }
+        ));
+        HookLog.i("Hooked ViewRootImpl.collectViewAttributes for system UI visibility");
     }
     
     private void hookActivityLifecycle(XC_LoadPackage.LoadPackageParam lpparam) {
         // Hook Activity.onResume to ensure status bar is visible
         try {
-            XposedHelpers.findAndHookMethod(
+            HookGroups.add(HookGroups.LIFECYCLE, XposedHelpers.findAndHookMethod(
                 Activity.class.getName(),
                 lpparam.classLoader,
                 "onResume",
@@ -176,14 +406,14 @@ public class StatusBarHook implements IXposedHookLoadPackage {
                         forceContentViewFitsSystemWindows(activity);
                     }
                 }
-            );
+            ));
         } catch (Exception e) {
-            XposedBridge.log(TAG + ": Failed to hook Activity.onResume - " + e.getMessage());
+            HookLog.w("Failed to hook Activity.onResume - " + e.getMessage());
         }
         
         // Hook Activity.onCreate to set up from beginning
         try {
-            XposedHelpers.findAndHookMethod(
+            HookGroups.add(HookGroups.LIFECYCLE, XposedHelpers.findAndHookMethod(
                 Activity.class.getName(),
                 lpparam.classLoader,
                 "onCreate",
@@ -195,14 +425,14 @@ public class StatusBarHook implements IXposedHookLoadPackage {
                         forceContentViewFitsSystemWindows(activity);
                     }
                 }
-            );
+            ));
         } catch (Exception e) {
-            XposedBridge.log(TAG + ": Failed to hook Activity.onCreate - " + e.getMessage());
+            HookLog.w("Failed to hook Activity.onCreate - " + e.getMessage());
         }
         
         // Hook Activity.onPostResume
         try {
-            XposedHelpers.findAndHookMethod(
+            HookGroups.add(HookGroups.LIFECYCLE, XposedHelpers.findAndHookMethod(
                 Activity.class.getName(),
                 lpparam.classLoader,
                 "onPostResume",
@@ -213,14 +443,14 @@ public class StatusBarHook implements IXposedHookLoadPackage {
                         forceContentViewFitsSystemWindows(activity);
                     }
                 }
-            );
+            ));
         } catch (Exception e) {
             // Ignore
         }
         
         // Hook Activity.onWindowFocusChanged
         try {
-            XposedHelpers.findAndHookMethod(
+            HookGroups.add(HookGroups.LIFECYCLE, XposedHelpers.findAndHookMethod(
                 Activity.class.getName(),
                 lpparam.classLoader,
                 "onWindowFocusChanged",
@@ -235,75 +465,96 @@ public class StatusBarHook implements IXposedHookLoadPackage {
                         }
                     }
                 }
-            );
+            ));
         } catch (Exception e) {
             // Ignore
         }
         
-        // Hook Window.setStatusBarColor to override with theme color
+        // Hook Activity.onConfigurationChanged to drop the cached theme color (e.g. night mode switch)
+        // and mark the window for a re-apply
         try {
-            XposedHelpers.findAndHookMethod(
-                Window.class.getName(),
+            HookGroups.add(HookGroups.LIFECYCLE, XposedHelpers.findAndHookMethod(
+                Activity.class.getName(),
+                lpparam.classLoader,
+                "onConfigurationChanged",
+                Configuration.class,
+                new XC_MethodHook() {
+                    @Override
+                    protected void afterHookedMethod(MethodHookParam param) throws Throwable {
+                        Activity activity = (Activity) param.thisObject;
+                        themeColors.invalidate(activity);
+                        View decorView = activity.getWindow().peekDecorView();
+                        if (decorView != null) {
+                            EnforcementRecord record = enforcementRecords.get(decorView);
+                            if (record != null) {
+                                record.markDirty();
+                            }
+                        }
+                    }
+                }
+            ));
+        } catch (Exception e) {
+            // Ignore
+        }
+    }
+    
+    private void hookStatusBarColor(XC_LoadPackage.LoadPackageParam lpparam) {
+        // Hook setStatusBarColor to override with theme color; it is abstract in Window, PhoneWindow implements it
+        try {
+            HookGroups.add(HookGroups.STATUS_BAR_COLOR, XposedHelpers.findAndHookMethod(
+                "com.android.internal.policy.PhoneWindow",
                 lpparam.classLoader,
                 "setStatusBarColor",
                 int.class,
+                new WindowHooks.StatusBarColor(themeColors)
+            ));
+        } catch (Exception e) {
+            HookLog.w("Failed to hook setStatusBarColor - " + e.getMessage());
+        }
+    }
+    
+    /**
+     * Keep our content insets listener in place when the app sets its own, chaining to it instead
+     */
+    private void hookInsetsListenerSetter(XC_LoadPackage.LoadPackageParam lpparam) {
+        try {
+            HookGroups.add(HookGroups.INSETS_LISTENER, XposedHelpers.findAndHookMethod(
+                View.class.getName(),
+                lpparam.classLoader,
+                "setOnApplyWindowInsetsListener",
+                View.OnApplyWindowInsetsListener.class,
                 new XC_MethodHook() {
                     @Override
                     protected void beforeHookedMethod(MethodHookParam param) throws Throwable {
-                        Window window = (Window) param.thisObject;
-                        Context context = (Context) XposedHelpers.getObjectField(window, "mContext");
-                        if (context instanceof Activity) {
-                            Activity activity = (Activity) context;
-                            int themeColor = getThemeColor(activity);
-                            param.args[0] = themeColor;
+                        Object listener = param.args[0];
+                        if (listener instanceof ContentInsetsListener) {
+                            return;
+                        }
+                        ContentInsetsListener ours = ContentInsetsListener.of((View) param.thisObject);
+                        if (ours != null) {
+                            ours.appListener = (View.OnApplyWindowInsetsListener) listener;
+                            param.setResult(null);
                         }
                     }
                 }
-            );
+            ));
         } catch (Exception e) {
-            XposedBridge.log(TAG + ": Failed to hook setStatusBarColor - " + e.getMessage());
+            HookLog.w("Failed to hook setOnApplyWindowInsetsListener - " + e.getMessage());
         }
     }
     
-    private void hookWindowInsetsControllerImpl(XC_LoadPackage.LoadPackageParam lpparam) {
-        // Android 11+ try to hook WindowInsetsController implementation classes
-        String[] implClasses = {
-            "android.view.WindowInsetsControllerImpl",
-            "android.view.InsetsController",
-            "android.view.WindowInsetsController$Impl"
-        };
-        
-        for (String className : implClasses) {
+    private void hookWindowInsetsControllerImpl(XC_LoadPackage.LoadPackageParam lpparam, HookPlan plan) {
+        // Android 11+ hook the WindowInsetsController implementation classes known to exist on this build
+        for (String className : plan.insetsControllerClasses) {
             try {
-                Class<?> clazz = XposedHelpers.findClassIfExists(className, lpparam.classLoader);
-                if (clazz != null) {
-                    XposedBridge.hookAllMethods(clazz, "hide", new XC_MethodHook() {
-                        @Override
-                        protected void beforeHookedMethod(MethodHookParam param) throws Throwable {
-                            int types = (int) param.args[0];
-                            
-                            // Try to get statusBars type
-                            int statusBars = 0;
-                            try {
-                                Class<?> insetsTypeClass = Class.forName("android.view.WindowInsets$Type");
-                                statusBars = insetsTypeClass.getField("statusBars").getInt(null);
-                            } catch (Exception e) {
-                                // Fallback: use hardcoded status bar type
-                                statusBars = 1; // Usually WindowInsets.Type.statusBars()
-                            }
-                            
-                            // If trying to hide status bars, block it
-                            if ((types & statusBars) != 0) {
-                                param.setResult(null);
-                                XposedBridge.log(TAG + ": Blocked WindowInsetsController.hide(statusBars) - " + lpparam.packageName);
-                            }
-                        }
-                    });
-                    
-                    XposedBridge.log(TAG + ": Successfully hooked " + className + " for status bar protection");
-                }
-            } catch (Exception e) {
-                XposedBridge.log(TAG + ": Failed to hook " + className + " - " + e.getMessage());
+                Class<?> clazz = XposedHelpers.findClass(className, lpparam.classLoader);
+                HookGroups.addAll(HookGroups.INSETS_CONTROLLER,
+                    XposedBridge.hookAllMethods(clazz, "hide", new WindowHooks.InsetsHide()));
+                
+                HookLog.i("Successfully hooked " + className + " for status bar protection");
+            } catch (Throwable t) {
+                HookLog.w("Failed to hook " + className + " - " + t.getMessage());
+                HookPlan.discard(lpparam);
             }
         }
     }
@@ -312,102 +563,152 @@ public class StatusBarHook implements IXposedHookLoadPackage {
      * Apply status bar color based on app's theme color
      */
     private void forceContentViewFitsSystemWindows(Activity activity) {
+        forceContentViewFitsSystemWindows(activity, false);
+    }
+    
+    /**
+     * {@code pushed}: re-applying after a settings push, which settled windows take as well
+     */
+    @SuppressWarnings("deprecation")
+    private void forceContentViewFitsSystemWindows(Activity activity, boolean pushed) {
+        long start = HookStats.start();
+        boolean applied = false;
         try {
+            PackageConfig live = ConfigSnapshot.current().config;
+            if (!live.enabled) {
+                return;
+            }
             Window window = activity.getWindow();
             View decorView = window.getDecorView();
+            // The app keeps hiding the bar again, re-applying would only feed the loop. A push
+            // happens once, its new color must not wait for the backoff to run out
+            if (!pushed && FightBackDetector.isSettled(decorView)) {
+                return;
+            }
+            FrameMonitor.attach(window);
+            if (live.sampleColor && !live.hasColorOverride()) {
+                ColorSampler.attach(activity, themeColors);
+            }
             
             // Get app's theme color
-            int statusBarColor = getThemeColor(activity);
+            int statusBarColor = getThemeColor(activity, live);
             
+            // Skip when this window already matches what was applied last time
+            EnforcementRecord record = enforcementRecordFor(decorView, activity);
             if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.R) {
-                // Android 11+ (API 30+)
-                window.setStatusBarColor(statusBarColor);
-                
-                View contentView = decorView.findViewById(android.R.id.content);
-                if (contentView != null) {
-                    contentView.setOnApplyWindowInsetsListener((v, insets) -> {
-                        int statusBarHeight = insets.getInsets(android.view.WindowInsets.Type.statusBars()).top;
-                        v.setPadding(0, statusBarHeight, 0, 0);
-                        return insets;
-                    });
-                    contentView.requestApplyInsets();
+                // hide() reaches the hook on the insets controller, pending or real, not on the window
+                FightBackDetector.alias(decorView.getWindowInsetsController(), decorView);
+            }
+            Configuration config = activity.getResources().getConfiguration();
+            if (!record.needsApply(window, decorView, config, statusBarColor)) {
+                return;
+            }
+            boolean configChanged = record.state != EnforcementRecord.STATE_NEW && record.configChanged(config);
+            int strategy = this.config.strategy;
+            
+            View contentView = decorView.findViewById(android.R.id.content);
+            boolean layoutPending = false;
+            if (live.surfaceSafe && !record.isLayoutDecided()) {
+                // Wait for the content to decide, the window is not laid out before onResume anyway
+                layoutPending = !SurfaceContent.hasContent(contentView);
+                if (!layoutPending) {
+                    record.decideLayout(SurfaceContent.find(activity, contentView));
+                    if (record.isSurfaceLocked()) {
+                        SurfaceContent.fitWindow(record.attributes, decorView);
+                    }
                 }
+            }
+            // Surface windows keep the layout they got before their first surface, nothing below resizes them
+            if (layoutPending || record.isSurfaceLocked()) {
+                strategy = PackageConfig.STRATEGY_COLOR_ONLY;
+            }
+            
+            if (Build.VERSION.SDK_INT < Build.VERSION_CODES.R) {
+                // Android 8.0-10 (API 26-29)
+                record.attributes.addFlags(WindowManager.LayoutParams.FLAG_DRAWS_SYSTEM_BAR_BACKGROUNDS);
                 
-            } else if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP) {
-                // Android 5.0-10 (API 21-29)
-                window.addFlags(WindowManager.LayoutParams.FLAG_DRAWS_SYSTEM_BAR_BACKGROUNDS);
+                if (strategy != PackageConfig.STRATEGY_COLOR_ONLY) {
+                    int flags = View.SYSTEM_UI_FLAG_LAYOUT_STABLE | View.SYSTEM_UI_FLAG_LAYOUT_FULLSCREEN;
+                    if (decorView.getSystemUiVisibility() != flags) {
+                        decorView.setSystemUiVisibility(flags);
+                    }
+                }
+            }
+            // One attributes update for all of the above, view-level changes are merged by the traversal
+            record.attributes.commit(window, decorView);
+            
+            if (window.getStatusBarColor() != statusBarColor) {
                 window.setStatusBarColor(statusBarColor);
-                
-                int flags = View.SYSTEM_UI_FLAG_LAYOUT_STABLE | View.SYSTEM_UI_FLAG_LAYOUT_FULLSCREEN;
-                decorView.setSystemUiVisibility(flags);
-                
-                View contentView = decorView.findViewById(android.R.id.content);
-                if (contentView != null) {
-                    contentView.setFitsSystemWindows(true);
+            }
+            
+            if (contentView != null && strategy != PackageConfig.STRATEGY_COLOR_ONLY) {
+                if (record.needsInstall(contentView)) {
+                    if (strategy == PackageConfig.STRATEGY_PADDING) {
+                        ContentInsetsListener.install(contentView);
+                    } else {
+                        contentView.setFitsSystemWindows(true);
+                    }
+                    record.markInstalled(contentView);
+                    contentView.requestApplyInsets();
+                } else if (configChanged) {
+                    contentView.requestApplyInsets();
                 }
-                
-            } else if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.KITKAT) {
-                // Android 4.4 (API 19)
-                window.addFlags(WindowManager.LayoutParams.FLAG_TRANSLUCENT_STATUS);
-                
-                View contentView = decorView.findViewById(android.R.id.content);
-                if (contentView != null) {
-                    contentView.setFitsSystemWindows(true);
+                if (live.correctTouchOffset) {
+                    TouchCorrection.track(decorView);
                 }
             }
             
-            XposedBridge.log(TAG + ": Applied status bar color: #" + Integer.toHexString(statusBarColor));
+            if (layoutPending) {
+                // Leave the record new so onResume runs again with the content in place
+                return;
+            }
+            record.markApplied(window, decorView, config, statusBarColor);
+            applied = true;
+            FrameMonitor.markEnforced();
+            HookLog.log(HookLog.KEY_APPLIED_COLOR, statusBarColor);
             
         } catch (Exception e) {
-            XposedBridge.log(TAG + ": Failed - " + e.getMessage());
+            HookLog.w("Failed - " + e.getMessage());
+        } finally {
+            HookStats.end(BridgeProtocol.HOOK_ENFORCE, start, applied);
         }
     }
     
     /**
-     * Get app's theme color for status bar
+     * Get or create the enforcement record for a window
      */
-    private int getThemeColor(Activity activity) {
-        int color = Color.parseColor("#212121"); // Default dark gray
-        
-        try {
-            // First try to get from theme attributes
-            int[] attrs = {android.R.attr.colorPrimaryDark, android.R.attr.colorPrimary, android.R.attr.statusBarColor, android.R.attr.windowBackground};
-            android.content.res.TypedArray ta = activity.obtainStyledAttributes(attrs);
-            
-            color = ta.getColor(0, -1);
-            if (color == -1 || color == Color.TRANSPARENT) {
-                color = ta.getColor(1, -1);
-            }
-            if (color == -1 || color == Color.TRANSPARENT) {
-                color = ta.getColor(2, -1);
-            }
-            if (color == -1 || color == Color.TRANSPARENT) {
-                color = ta.getColor(3, -1);
-            }
-            ta.recycle();
-        } catch (Exception e) {
-            XposedBridge.log(TAG + ": Failed to get theme color - " + e.getMessage());
+    private EnforcementRecord enforcementRecordFor(View decorView, Activity activity) {
+        EnforcementRecord record = enforcementRecords.get(decorView);
+        if (record == null) {
+            record = new EnforcementRecord(activity);
+            enforcementRecords.put(decorView, record);
+            FightBackDetector.track(decorView, activity);
         }
-        
-        // If still not found, try to get from content view background
-        if (color == -1 || color == Color.TRANSPARENT) {
-            try {
-                View contentView = activity.getWindow().getDecorView().findViewById(android.R.id.content);
-                if (contentView != null) {
-                    Drawable bg = contentView.getBackground();
-                    if (bg instanceof ColorDrawable) {
-                        color = ((ColorDrawable) bg).getColor();
-                    }
-                }
-            } catch (Exception e) {
-                // Ignore
+        return record;
+    }
+    
+    /**
+     * Re-run enforcement on every live window after pushed settings changed, on the main thread
+     */
+    private void reapplyAll() {
+        for (EnforcementRecord record : new ArrayList<>(enforcementRecords.values())) {
+            Activity activity = record.owner();
+            if (activity == null || activity.isFinishing()) {
+                continue;
             }
+            themeColors.invalidate(activity);
+            record.markDirty();
+            forceContentViewFitsSystemWindows(activity, true);
         }
-        
-        if (color == -1 || color == Color.TRANSPARENT || color == 0) {
-            color = Color.parseColor("#212121");
+    }
+    
+    /**
+     * Get app's theme color for status bar
+     */
+    private int getThemeColor(Activity activity, PackageConfig live) {
+        if (live.hasColorOverride()) {
+            return live.colorOverride;
         }
-        
-        return color;
+        return themeColors.colorFor(activity);
     }
 }
\ No newline at end of file
@@ -0,0 +1,95 @@
+package com.example.forcestatusbar.hook;
+
+import android.app.Activity;
+import android.app.NativeActivity;
+import android.os.Build;
+import android.view.SurfaceView;
+import android.view.TextureView;
+import android.view.View;
+import android.view.ViewGroup;
+import android.view.WindowInsets;
+import android.view.WindowManager;
+
+/**
+ * Detection and window-level layout for the surface-safe mode.
+ *
+ * Games render into a SurfaceView (GLSurfaceView, Unity, Unreal), a
+ * TextureView or, for NativeActivity, the window surface itself. Padding the
+ * content after the engine created its surface resizes that surface and makes
+ * some engines restart the renderer. For such windows the status bar is kept
+ * out of the window frame instead, once, before the first traversal creates
+ * any surface, and the content is never touched afterwards.
+ */
+final class SurfaceContent {
+    
+    private SurfaceContent() {
+    }
+    
+    /**
+     * Whether the app has set its content yet
+     */
+    static boolean hasContent(View contentView) {
+        return contentView instanceof ViewGroup && ((ViewGroup) contentView).getChildCount() > 0;
+    }
+    
+    /**
+     * Whether the window renders to a surface the engine owns
+     */
+    static boolean find(Activity activity, View contentView) {
+        return activity instanceof NativeActivity || containsSurface(contentView);
+    }
+    
+    private static boolean containsSurface(View view) {
+        if (view instanceof SurfaceView || view instanceof TextureView) {
+            return true;
+        }
+        if (view instanceof ViewGroup) {
+            ViewGroup group = (ViewGroup) view;
+            for (int i = 0; i < group.getChildCount(); i++) {
+                if (containsSurface(group.getChildAt(i))) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+    
+    /**
+     * First SurfaceView in the tree, its frames never reach the window surface
+     */
+    static SurfaceView findSurfaceView(View view) {
+        if (view instanceof SurfaceView) {
+            return (SurfaceView) view;
+        }
+        if (view instanceof ViewGroup) {
+            ViewGroup group = (ViewGroup) view;
+            for (int i = 0; i < group.getChildCount(); i++) {
+                SurfaceView found = findSurfaceView(group.getChildAt(i));
+                if (found != null) {
+                    return found;
+                }
+            }
+        }
+        return null;
+    }
+    
+    /**
+     * Lay the whole window out below the status bar, so every surface in it is created at its final size
+     */
+    @SuppressWarnings("deprecation")
+    static void fitWindow(WindowAttributeBatch attributes, View decorView) {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.R) {
+            // Android 11+: the window frame itself excludes the types it fits
+            attributes.fitInsetsTypes(WindowInsets.Type.statusBars());
+        } else {
+            // Android 8.0-10: let the decor consume the status bar inset instead of the content
+            attributes.clearFlags(WindowManager.LayoutParams.FLAG_TRANSLUCENT_STATUS
+                | WindowManager.LayoutParams.FLAG_LAYOUT_NO_LIMITS);
+            int visibility = decorView.getSystemUiVisibility();
+            if ((visibility & View.SYSTEM_UI_FLAG_LAYOUT_FULLSCREEN) != 0) {
+                decorView.setSystemUiVisibility(visibility & ~View.SYSTEM_UI_FLAG_LAYOUT_FULLSCREEN);
+            }
+        }
+        HookLog.i("Surface content, window fitted below the status bar once");
+    }
+}
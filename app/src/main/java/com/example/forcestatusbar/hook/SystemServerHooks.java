@@ -0,0 +1,286 @@
+package com.example.forcestatusbar.hook;
+
+import android.os.Build;
+import android.view.WindowManager;
+
+import java.lang.reflect.Method;
+import java.util.Map;
+
+import de.robv.android.xposed.XC_MethodHook;
+import de.robv.android.xposed.XposedBridge;
+import de.robv.android.xposed.XposedHelpers;
+import de.robv.android.xposed.callbacks.XC_LoadPackage;
+
+/**
+ * Centralized enforcement inside system_server.
+ *
+ * Instead of hooking Window/View calls in every target process, the window
+ * policy applies the per-package {@link FlagPolicy} to what apps ask for:
+ * <ul>
+ *     <li>window attributes, when they are added or relaid out (all versions)</li>
+ *     <li>the bar visibility a window requests through insets (Android 11+)</li>
+ *     <li>the flags PolicyControl reports for a window (Android 10 and below)</li>
+ * </ul>
+ * Target apps listed in {@code policies} then run without any in-process hook.
+ */
+final class SystemServerHooks {
+    
+    // InsetsState.ITYPE_STATUS_BAR / ITYPE_NAVIGATION_BAR (Android 11-13)
+    private static final int ITYPE_STATUS_BAR = 0;
+    private static final int ITYPE_NAVIGATION_BAR = 1;
+    
+    private static final String[] POLICY_CLASSES = {
+        "com.android.server.wm.DisplayPolicy",
+        "com.android.server.policy.PhoneWindowManager"
+    };
+    
+    private static final String[] POLICY_CONTROL_CLASSES = {
+        "com.android.server.wm.PolicyControl",
+        "com.android.server.policy.PolicyControl"
+    };
+    
+    // Package name -> compiled policy, only packages enforced by system_server
+    private final Map<String, FlagPolicy> policies;
+    private final int statusBarsType;
+    private final int navigationBarsType;
+    
+    private Method owningPackage;
+    
+    private SystemServerHooks(Map<String, FlagPolicy> policies, HookPlan plan) {
+        this.policies = policies;
+        this.statusBarsType = plan.statusBarsType;
+        this.navigationBarsType = plan.navigationBarsType;
+    }
+    
+    /**
+     * Returns whether the window attributes are enforced, without that nothing else here keeps the bar shown
+     */
+    static boolean install(XC_LoadPackage.LoadPackageParam lpparam, Map<String, FlagPolicy> policies, HookPlan plan) {
+        SystemServerHooks hooks = new SystemServerHooks(policies, plan);
+        if (!hooks.hookWindowParams(lpparam.classLoader)) {
+            HookLog.w("Window policy not hooked, system_server enforcement inactive");
+            return false;
+        }
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.R) {
+            hooks.hookRequestedVisibility(lpparam.classLoader);
+        } else {
+            hooks.hookPolicyControl(lpparam.classLoader);
+        }
+        HookLog.i("Enforcing in system_server for " + policies.size() + " packages");
+        return true;
+    }
+    
+    /**
+     * Policy for the package owning a WindowState, null when it is not enforced here
+     */
+    private FlagPolicy policyForWindow(Object windowState) {
+        if (windowState == null) {
+            return null;
+        }
+        try {
+            if (owningPackage == null) {
+                owningPackage = XposedHelpers.findMethodExact(windowState.getClass(), "getOwningPackage");
+            }
+            return policies.get((String) owningPackage.invoke(windowState));
+        } catch (Throwable t) {
+            return null;
+        }
+    }
+    
+    private FlagPolicy policyForAttrs(WindowManager.LayoutParams attrs) {
+        return attrs != null && attrs.packageName != null ? policies.get(attrs.packageName) : null;
+    }
+    
+    /**
+     * DisplayPolicy/PhoneWindowManager.adjustWindowParamsLw sanitizes the attributes of every
+     * window on addWindow and relayoutWindow
+     */
+    private boolean hookWindowParams(ClassLoader classLoader) {
+        for (String className : POLICY_CLASSES) {
+            Class<?> clazz = XposedHelpers.findClassIfExists(className, classLoader);
+            if (clazz == null) {
+                continue;
+            }
+            try {
+                if (XposedBridge.hookAllMethods(clazz, "adjustWindowParamsLw", new XC_MethodHook() {
+                    @Override
+                    protected void beforeHookedMethod(MethodHookParam param) throws Throwable {
+                        for (Object arg : param.args) {
+                            if (arg instanceof WindowManager.LayoutParams) {
+                                adjustParams((WindowManager.LayoutParams) arg);
+                                return;
+                            }
+                        }
+                    }
+                }).isEmpty()) {
+                    continue;
+                }
+                HookLog.i("Hooked " + className + ".adjustWindowParamsLw");
+                return true;
+            } catch (Throwable t) {
+                HookLog.w("Failed to hook " + className + ".adjustWindowParamsLw - " + t.getMessage());
+            }
+        }
+        return false;
+    }
+    
+    @SuppressWarnings("deprecation")
+    private void adjustParams(WindowManager.LayoutParams attrs) {
+        FlagPolicy policy = policyForAttrs(attrs);
+        if (policy == null) {
+            return;
+        }
+        int flags = attrs.flags;
+        int sysuiAnd = policy.and(FlagPolicy.SYSTEM_UI_VISIBILITY);
+        int sysuiOr = policy.or(FlagPolicy.SYSTEM_UI_VISIBILITY);
+        attrs.flags = (flags & policy.and(FlagPolicy.SET_FLAGS)) | policy.or(FlagPolicy.SET_FLAGS);
+        attrs.systemUiVisibility = (attrs.systemUiVisibility & sysuiAnd) | sysuiOr;
+        attrs.subtreeSystemUiVisibility = (attrs.subtreeSystemUiVisibility & sysuiAnd) | sysuiOr;
+        
+        if ((flags & ~policy.and(FlagPolicy.SET_FLAGS)) == 0) {
+            return;
+        }
+        // Android 11+ clients drop the status bar from the fitted insets for FLAG_FULLSCREEN,
+        // lay the window out below the bar again
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.R) {
+            attrs.setFitInsetsTypes(attrs.getFitInsetsTypes() | (statusBarsType & forcedVisibleTypes(policy)));
+        }
+        HookLog.log(HookLog.KEY_SET_FLAGS_FULLSCREEN, 0);
+    }
+    
+    /**
+     * Types a window of this policy must keep visible, whatever it requests
+     */
+    private static int forcedVisibleTypes(FlagPolicy policy) {
+        return ~policy.and(FlagPolicy.INSETS_HIDE);
+    }
+    
+    /**
+     * Report the status bar as requested visible for enforced windows, so InsetsPolicy never hides it
+     */
+    private void hookRequestedVisibility(ClassLoader classLoader) {
+        Class<?> windowState = XposedHelpers.findClassIfExists("com.android.server.wm.WindowState", classLoader);
+        if (windowState == null) {
+            HookLog.w("WindowState not found, system_server enforcement inactive");
+            return;
+        }
+        
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.UPSIDE_DOWN_CAKE) {
+            // Android 14+: requested visibility is a WindowInsets.Type mask
+            hookAll(windowState, "getRequestedVisibleTypes", new XC_MethodHook() {
+                @Override
+                protected void afterHookedMethod(MethodHookParam param) throws Throwable {
+                    FlagPolicy policy = policyForWindow(param.thisObject);
+                    if (policy != null) {
+                        param.setResult((int) param.getResult() | forcedVisibleTypes(policy));
+                    }
+                }
+            });
+            hookAll(windowState, "isRequestedVisible", new XC_MethodHook() {
+                @Override
+                protected void afterHookedMethod(MethodHookParam param) throws Throwable {
+                    FlagPolicy policy = policyForWindow(param.thisObject);
+                    if (policy != null && ((int) param.args[0] & forcedVisibleTypes(policy)) != 0) {
+                        param.setResult(Boolean.TRUE);
+                    }
+                }
+            });
+        } else if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.S) {
+            // Android 12-13: per internal insets type
+            hookAll(windowState, "getRequestedVisibility", new XC_MethodHook() {
+                @Override
+                protected void afterHookedMethod(MethodHookParam param) throws Throwable {
+                    FlagPolicy policy = policyForWindow(param.thisObject);
+                    if (policy != null && isForcedInternalType(policy, (int) param.args[0])) {
+                        param.setResult(Boolean.TRUE);
+                    }
+                }
+            });
+        } else {
+            // Android 11: the client sends its whole requested InsetsState
+            Class<?> controller = XposedHelpers.findClassIfExists(
+                "com.android.server.wm.InsetsStateController", classLoader);
+            if (controller == null) {
+                HookLog.w("InsetsStateController not found, system_server enforcement inactive");
+                return;
+            }
+            hookAll(controller, "onInsetsModified", new XC_MethodHook() {
+                @Override
+                protected void beforeHookedMethod(MethodHookParam param) throws Throwable {
+                    FlagPolicy policy = policyForWindow(param.args[0]);
+                    if (policy == null || param.args.length < 2 || param.args[1] == null) {
+                        return;
+                    }
+                    for (int type = ITYPE_STATUS_BAR; type <= ITYPE_NAVIGATION_BAR; type++) {
+                        if (isForcedInternalType(policy, type)) {
+                            Object source = XposedHelpers.callMethod(param.args[1], "getSource", type);
+                            XposedHelpers.callMethod(source, "setVisible", true);
+                        }
+                    }
+                }
+            });
+        }
+    }
+    
+    private boolean isForcedInternalType(FlagPolicy policy, int type) {
+        int forced = forcedVisibleTypes(policy);
+        return (type == ITYPE_STATUS_BAR && (forced & statusBarsType) != 0)
+            || (type == ITYPE_NAVIGATION_BAR && (forced & navigationBarsType) != 0);
+    }
+    
+    /**
+     * PolicyControl.getWindowFlags / getSystemUiVisibility are what the window policy reads for
+     * every window on Android 10 and below
+     */
+    private void hookPolicyControl(ClassLoader classLoader) {
+        for (String className : POLICY_CONTROL_CLASSES) {
+            Class<?> clazz = XposedHelpers.findClassIfExists(className, classLoader);
+            if (clazz == null) {
+                continue;
+            }
+            hookAll(clazz, "getWindowFlags", new XC_MethodHook() {
+                @Override
+                protected void afterHookedMethod(MethodHookParam param) throws Throwable {
+                    FlagPolicy policy = policyForPolicyControl(param);
+                    if (policy != null) {
+                        param.setResult(((int) param.getResult() & policy.and(FlagPolicy.SET_FLAGS))
+                            | policy.or(FlagPolicy.SET_FLAGS));
+                    }
+                }
+            });
+            hookAll(clazz, "getSystemUiVisibility", new XC_MethodHook() {
+                @Override
+                protected void afterHookedMethod(MethodHookParam param) throws Throwable {
+                    FlagPolicy policy = policyForPolicyControl(param);
+                    if (policy != null) {
+                        param.setResult(((int) param.getResult() & policy.and(FlagPolicy.SYSTEM_UI_VISIBILITY))
+                            | policy.or(FlagPolicy.SYSTEM_UI_VISIBILITY));
+                    }
+                }
+            });
+            return;
+        }
+        HookLog.w("PolicyControl not found, relying on adjustWindowParamsLw only");
+    }
+    
+    /**
+     * PolicyControl methods take (WindowState win, LayoutParams attrs), either may be null
+     */
+    private FlagPolicy policyForPolicyControl(XC_MethodHook.MethodHookParam param) {
+        Object attrs = param.args.length > 1 ? param.args[1] : null;
+        if (attrs instanceof WindowManager.LayoutParams) {
+            return policyForAttrs((WindowManager.LayoutParams) attrs);
+        }
+        return policyForWindow(param.args[0]);
+    }
+    
+    private static void hookAll(Class<?> clazz, String method, XC_MethodHook callback) {
+        try {
+            if (XposedBridge.hookAllMethods(clazz, method, callback).isEmpty()) {
+                HookLog.w("No " + clazz.getSimpleName() + "." + method + " on this build");
+            }
+        } catch (Throwable t) {
+            HookLog.w("Failed to hook " + clazz.getSimpleName() + "." + method + " - " + t.getMessage());
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package com.example.forcestatusbar.hook;
+
+import java.util.Collection;
+
+import de.robv.android.xposed.XC_MethodHook;
+import de.robv.android.xposed.XposedBridge;
+import de.robv.android.xposed.XposedHelpers;
+
+/**
+ * Tells hooked processes which packages system_server really enforces.
+ *
+ * The settings only say which packages should be enforced there; the
+ * framework may not be in the module scope, or its hooks may have failed.
+ * Once booted, system_server sets a sys.* system property for each package
+ * its {@link SystemServerHooks} cover, and app processes skip their own
+ * hooks only for a package marked there. Apps cannot set sys.* properties,
+ * so unlike a broadcast the mark cannot be forged by another app.
+ *
+ * Properties outlive a soft reboot, so each mark holds the system_server
+ * start count it was set under and only counts for that start. Apps started
+ * before boot completes, or that cannot read the properties, enforce
+ * themselves.
+ */
+final class SystemServerStatus {
+    
+    private static final String PROPERTY_PREFIX = "sys.forcestatusbar.enforced.";
+    // Set by SystemServer on every start
+    private static final String PROPERTY_START_COUNT = "sys.system_server.start_count";
+    
+    private SystemServerStatus() {
+    }
+    
+    /**
+     * system_server: mark the enforced packages when ActivityManagerService finishes booting
+     */
+    static void publishWhenBooted(ClassLoader classLoader, Collection<String> packages) {
+        String[] names = packages.toArray(new String[0]);
+        try {
+            Class<?> ams = XposedHelpers.findClass("com.android.server.am.ActivityManagerService", classLoader);
+            XposedBridge.hookAllMethods(ams, "finishBooting", new XC_MethodHook() {
+                @Override
+                protected void afterHookedMethod(MethodHookParam param) throws Throwable {
+                    try {
+                        String startCount = getProperty(PROPERTY_START_COUNT);
+                        if (startCount.isEmpty()) {
+                            HookLog.w("No system_server start count, apps keep their own hooks");
+                            return;
+                        }
+                        for (String name : names) {
+                            setProperty(PROPERTY_PREFIX + name, startCount);
+                        }
+                    } catch (Throwable t) {
+                        HookLog.w("Failed to publish system_server enforcement - " + t.getMessage());
+                    }
+                }
+            });
+        } catch (Throwable t) {
+            HookLog.w("Failed to hook ActivityManagerService.finishBooting - " + t.getMessage());
+        }
+    }
+    
+    /**
+     * App process: whether the running system_server enforces this package
+     */
+    static boolean isEnforcing(String packageName) {
+        try {
+            String startCount = getProperty(PROPERTY_START_COUNT);
+            return !startCount.isEmpty() && startCount.equals(getProperty(PROPERTY_PREFIX + packageName));
+        } catch (Throwable t) {
+            HookLog.w("Failed to read system_server enforcement - " + t.getMessage());
+            return false;
+        }
+    }
+    
+    private static String getProperty(String key) {
+        return (String) XposedHelpers.callStaticMethod(systemProperties(), "get", key);
+    }
+    
+    private static void setProperty(String key, String value) {
+        XposedHelpers.callStaticMethod(systemProperties(), "set", key, value);
+    }
+    
+    private static Class<?> systemProperties() {
+        return XposedHelpers.findClass("android.os.SystemProperties", null);
+    }
+}
@@ -0,0 +1,246 @@
+package com.example.forcestatusbar.hook;
+
+import android.app.Activity;
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.content.res.Configuration;
+import android.content.res.TypedArray;
+import android.graphics.Color;
+import android.graphics.drawable.ColorDrawable;
+import android.graphics.drawable.Drawable;
+import android.view.View;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+import de.robv.android.xposed.XposedHelpers;
+
+/**
+ * Caches the resolved status bar color of each activity.
+ *
+ * The hot path (setStatusBarColor and every lifecycle re-apply) is a single
+ * weak-keyed lookup. Theme resolution only runs on a miss, and its result is
+ * persisted per package keyed by component, theme resource and night mode so
+ * later launches skip obtainStyledAttributes entirely.
+ *
+ * The persisted colors are read on a background thread started by the first
+ * miss; until they are loaded, misses resolve the theme. They are dropped
+ * when the app was installed or updated since they were stored, and colors
+ * that did not come from the theme are never stored.
+ */
+final class ThemeColorCache {
+    
+    static final int DEFAULT_COLOR = 0xFF212121; // Default dark gray
+    
+    private static final String PREFS_NAME = "forcestatusbar_theme_colors";
+    // PackageInfo.lastUpdateTime of the install the colors were resolved in
+    private static final String KEY_INSTALLED = "_installed";
+    
+    // Returned by resolveThemeColor when the theme defines no usable color
+    private static final int NO_COLOR = -1;
+    
+    private static final int[] THEME_ATTRS = {
+        android.R.attr.colorPrimaryDark,
+        android.R.attr.colorPrimary,
+        android.R.attr.statusBarColor,
+        android.R.attr.windowBackground
+    };
+    
+    private static final class Entry {
+        final int color;
+        final int uiMode;
+        // Boxed once so hooks can write param.args without allocating
+        final Integer boxed;
+        
+        Entry(int color, int uiMode) {
+            this.color = color;
+            this.uiMode = uiMode;
+            this.boxed = color;
+        }
+    }
+    
+    private final Map<Activity, Entry> entries = new WeakHashMap<>();
+    
+    // Colors persisted by previous launches, null until loaded
+    private Map<String, Integer> persisted;
+    // Theme colors resolved before the load finished, persisted once it has
+    private final Map<String, Integer> pending = new HashMap<>();
+    private boolean loadStarted;
+    private SharedPreferences prefs;
+    
+    /**
+     * Get the status bar color for an activity, resolving the theme only on a miss
+     */
+    int colorFor(Activity activity) {
+        return entryFor(activity).color;
+    }
+    
+    /**
+     * Same as {@link #colorFor}, boxed for writing into hook arguments
+     */
+    Integer boxedColorFor(Activity activity) {
+        return entryFor(activity).boxed;
+    }
+    
+    private synchronized Entry entryFor(Activity activity) {
+        int uiMode = activity.getResources().getConfiguration().uiMode;
+        Entry entry = entries.get(activity);
+        if (entry != null && entry.uiMode == uiMode) {
+            return entry;
+        }
+        
+        String key = persistKey(activity, uiMode);
+        if (!loadStarted) {
+            loadStarted = true;
+            startLoad(activity.getApplicationContext());
+        }
+        
+        Integer stored = persisted != null ? persisted.get(key) : null;
+        int color;
+        if (stored != null) {
+            color = stored;
+        } else {
+            color = resolveThemeColor(activity);
+            if (color != NO_COLOR) {
+                persist(key, color);
+            } else {
+                color = fallbackColor(activity);
+            }
+        }
+        
+        entry = new Entry(color, uiMode);
+        entries.put(activity, entry);
+        return entry;
+    }
+    
+    private void persist(String key, int color) {
+        if (persisted == null) {
+            pending.put(key, color);
+            return;
+        }
+        persisted.put(key, color);
+        if (prefs != null) {
+            prefs.edit().putInt(key, color).apply();
+        }
+    }
+    
+    /**
+     * Replace the color of an activity with one sampled from its content, kept in memory only
+     */
+    synchronized void putSampled(Activity activity, int color) {
+        entries.put(activity, new Entry(color, activity.getResources().getConfiguration().uiMode));
+    }
+    
+    /**
+     * Drop the cached entry after a configuration change so the next lookup re-checks the theme
+     */
+    synchronized void invalidate(Activity activity) {
+        entries.remove(activity);
+    }
+    
+    /**
+     * Read the persisted colors off the main thread, the first read of a preferences file waits for the disk
+     */
+    private void startLoad(Context context) {
+        Thread loader = new Thread(() -> loadPersisted(context), "ForceStatusBar-colors");
+        loader.setDaemon(true);
+        loader.start();
+    }
+    
+    private void loadPersisted(Context context) {
+        Map<String, Integer> loaded = new HashMap<>();
+        SharedPreferences loadedPrefs = null;
+        try {
+            loadedPrefs = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+            long installed = context.getPackageManager()
+                .getPackageInfo(context.getPackageName(), 0).lastUpdateTime;
+            if (loadedPrefs.getLong(KEY_INSTALLED, 0) != installed) {
+                // Installed or updated since, the themes may have changed
+                loadedPrefs.edit().clear().putLong(KEY_INSTALLED, installed).apply();
+            } else {
+                for (Map.Entry<String, ?> e : loadedPrefs.getAll().entrySet()) {
+                    if (e.getValue() instanceof Integer) {
+                        loaded.put(e.getKey(), (Integer) e.getValue());
+                    }
+                }
+            }
+        } catch (Exception e) {
+            HookLog.w("Failed to load cached theme colors - " + e.getMessage());
+            loadedPrefs = null;
+        }
+        
+        synchronized (this) {
+            if (loadedPrefs != null && !pending.isEmpty()) {
+                SharedPreferences.Editor editor = loadedPrefs.edit();
+                for (Map.Entry<String, Integer> e : pending.entrySet()) {
+                    editor.putInt(e.getKey(), e.getValue());
+                }
+                editor.apply();
+            }
+            loaded.putAll(pending);
+            pending.clear();
+            prefs = loadedPrefs;
+            persisted = loaded;
+        }
+    }
+    
+    private static String persistKey(Activity activity, int uiMode) {
+        int themeRes = 0;
+        try {
+            themeRes = XposedHelpers.getIntField(activity, "mThemeResource");
+        } catch (Throwable t) {
+            // Ignore
+        }
+        int night = uiMode & Configuration.UI_MODE_NIGHT_MASK;
+        return activity.getComponentName().flattenToShortString() + "/" + themeRes + "/" + night;
+    }
+    
+    /**
+     * Get app's theme color for status bar, {@link #NO_COLOR} when the theme has none
+     */
+    private static int resolveThemeColor(Activity activity) {
+        int color = NO_COLOR;
+        
+        try {
+            TypedArray ta = activity.obtainStyledAttributes(THEME_ATTRS);
+            
+            color = ta.getColor(0, NO_COLOR);
+            if (color == NO_COLOR || color == Color.TRANSPARENT) {
+                color = ta.getColor(1, NO_COLOR);
+            }
+            if (color == NO_COLOR || color == Color.TRANSPARENT) {
+                color = ta.getColor(2, NO_COLOR);
+            }
+            if (color == NO_COLOR || color == Color.TRANSPARENT) {
+                color = ta.getColor(3, NO_COLOR);
+            }
+            ta.recycle();
+        } catch (Exception e) {
+            HookLog.w("Failed to get theme color - " + e.getMessage());
+        }
+        
+        return color == Color.TRANSPARENT ? NO_COLOR : color;
+    }
+    
+    /**
+     * The content view's background, or the default color; depends on the current content, so never persisted
+     */
+    private static int fallbackColor(Activity activity) {
+        try {
+            View contentView = activity.getWindow().getDecorView().findViewById(android.R.id.content);
+            if (contentView != null) {
+                Drawable bg = contentView.getBackground();
+                if (bg instanceof ColorDrawable) {
+                    int color = ((ColorDrawable) bg).getColor();
+                    if (color != NO_COLOR && color != Color.TRANSPARENT) {
+                        return color;
+                    }
+                }
+            }
+        } catch (Exception e) {
+            // Ignore
+        }
+        return DEFAULT_COLOR;
+    }
+}
@@ -0,0 +1,120 @@
+package com.example.forcestatusbar.hook;
+
+import android.view.MotionEvent;
+import android.view.View;
+import android.view.WindowInsets;
+
+import com.example.forcestatusbar.config.PackageConfig;
+
+import java.util.Map;
+import java.util.WeakHashMap;
+
+import de.robv.android.xposed.XC_MethodHook;
+import de.robv.android.xposed.XposedBridge;
+import de.robv.android.xposed.XposedHelpers;
+import de.robv.android.xposed.callbacks.XC_LoadPackage;
+
+/**
+ * Optional touch correction for apps that map touches as if they were still fullscreen.
+ *
+ * Pointer events enter the view tree through the view root calling
+ * View.dispatchPointerEvent on the DecorView, and only there. For enforced
+ * windows the event is moved up by the status bar inset before dispatch and
+ * moved back afterwards, so the input stage finishes the event it queued.
+ * MotionEvent.offsetLocation shifts every pointer and the history in place,
+ * nothing is copied.
+ *
+ * The offset is cached per DecorView and only recomputed when the view root
+ * dispatches new insets. Only touched from the UI thread.
+ */
+final class TouchCorrection {
+    
+    private static final int CURRENT = 0;
+    // Offset applied to the event being dispatched, undone after dispatch
+    private static final int IN_FLIGHT = 1;
+    
+    // DecorView -> {current offset, offset in flight}
+    private static final Map<View, int[]> offsets = new WeakHashMap<>();
+    
+    private TouchCorrection() {
+    }
+    
+    static void install(XC_LoadPackage.LoadPackageParam lpparam) {
+        try {
+            HookGroups.add(HookGroups.TOUCH_OFFSET, XposedHelpers.findAndHookMethod(
+                View.class.getName(),
+                lpparam.classLoader,
+                "dispatchPointerEvent",
+                MotionEvent.class,
+                new XC_MethodHook() {
+                    @Override
+                    protected void beforeHookedMethod(MethodHookParam param) throws Throwable {
+                        int[] offset = offsets.get(param.thisObject);
+                        if (offset == null || offset[CURRENT] == 0) {
+                            return;
+                        }
+                        PackageConfig config = ConfigSnapshot.current().config;
+                        if (!config.enabled || !config.correctTouchOffset) {
+                            return;
+                        }
+                        offset[IN_FLIGHT] = offset[CURRENT];
+                        ((MotionEvent) param.args[0]).offsetLocation(0, -offset[IN_FLIGHT]);
+                    }
+                    
+                    @Override
+                    protected void afterHookedMethod(MethodHookParam param) throws Throwable {
+                        int[] offset = offsets.get(param.thisObject);
+                        if (offset == null || offset[IN_FLIGHT] == 0) {
+                            return;
+                        }
+                        ((MotionEvent) param.args[0]).offsetLocation(0, offset[IN_FLIGHT]);
+                        offset[IN_FLIGHT] = 0;
+                    }
+                }
+            ));
+        } catch (Throwable t) {
+            HookLog.w("Failed to hook dispatchPointerEvent - " + t.getMessage());
+            return;
+        }
+        
+        // Insets changes are the only thing that moves the content, refresh the offset there
+        try {
+            Class<?> viewRoot = XposedHelpers.findClass("android.view.ViewRootImpl", lpparam.classLoader);
+            HookGroups.addAll(HookGroups.TOUCH_OFFSET, XposedBridge.hookAllMethods(viewRoot, "dispatchApplyInsets",
+                new XC_MethodHook() {
+                    @Override
+                    protected void afterHookedMethod(MethodHookParam param) throws Throwable {
+                        if (param.args.length > 0 && param.args[0] instanceof View) {
+                            update((View) param.args[0]);
+                        }
+                    }
+                }));
+        } catch (Throwable t) {
+            HookLog.w("Failed to hook dispatchApplyInsets - " + t.getMessage());
+        }
+        
+        // Installed again after a push: insets may have changed while nothing was watching them
+        for (View decorView : offsets.keySet()) {
+            update(decorView);
+        }
+    }
+    
+    /**
+     * Start correcting touches of an enforced window
+     */
+    static void track(View decorView) {
+        if (!offsets.containsKey(decorView)) {
+            offsets.put(decorView, new int[2]);
+            update(decorView);
+        }
+    }
+    
+    private static void update(View decorView) {
+        int[] offset = offsets.get(decorView);
+        if (offset == null) {
+            return;
+        }
+        WindowInsets insets = decorView.getRootWindowInsets();
+        offset[CURRENT] = insets != null ? ContentInsetsListener.statusBarInset(insets) : 0;
+    }
+}
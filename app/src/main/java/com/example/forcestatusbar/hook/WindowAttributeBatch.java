@@ -0,0 +1,117 @@
+package com.example.forcestatusbar.hook;
+
+import android.app.Activity;
+import android.os.Build;
+import android.view.View;
+import android.view.Window;
+import android.view.WindowManager;
+
+import java.lang.ref.WeakReference;
+
+/**
+ * Window attribute changes made by enforcement, committed as one layout params update.
+ *
+ * Once a window is added, every Window.addFlags / clearFlags / setAttributes
+ * sends the whole attributes to the window manager through updateViewLayout
+ * and schedules a traversal. Enforcement stages its changes here instead.
+ * Before the window is added they are written straight into the attributes it
+ * will be added with, which costs no update at all. After that, everything
+ * staged until the next frame goes out as a single setAttributes from an
+ * animation callback, which still runs before that frame's traversal.
+ *
+ * Holds the owning Activity weakly, like its {@link EnforcementRecord}. Only
+ * touched from the UI thread.
+ */
+final class WindowAttributeBatch implements Runnable {
+    
+    private final WeakReference<Activity> owner;
+    
+    private int addFlags;
+    private int clearFlags;
+    // Inset types the window frame fits on top of its own, Android 11+
+    private int fitInsetsTypes;
+    private boolean posted;
+    
+    WindowAttributeBatch(WeakReference<Activity> owner) {
+        this.owner = owner;
+    }
+    
+    void addFlags(int flags) {
+        addFlags |= flags;
+        clearFlags &= ~flags;
+    }
+    
+    void clearFlags(int flags) {
+        clearFlags |= flags;
+        addFlags &= ~flags;
+    }
+    
+    void fitInsetsTypes(int types) {
+        fitInsetsTypes |= types;
+    }
+    
+    /**
+     * The window flags as they will be once the staged changes are committed
+     */
+    int flags(int current) {
+        return (current & ~clearFlags) | addFlags;
+    }
+    
+    /**
+     * Commit what was staged: in place before the window is added, otherwise once on the next frame
+     */
+    void commit(Window window, View decorView) {
+        if (addFlags == 0 && clearFlags == 0 && fitInsetsTypes == 0) {
+            return;
+        }
+        if (decorView.getParent() == null) {
+            // Not added yet, the window manager reads these attributes when it is
+            apply(window.getAttributes());
+            return;
+        }
+        if (!posted) {
+            posted = true;
+            decorView.postOnAnimation(this);
+        }
+    }
+    
+    @Override
+    public void run() {
+        posted = false;
+        Activity activity = owner.get();
+        if (activity == null) {
+            addFlags = 0;
+            clearFlags = 0;
+            fitInsetsTypes = 0;
+            return;
+        }
+        Window window = activity.getWindow();
+        WindowManager.LayoutParams attrs = window.getAttributes();
+        if (apply(attrs)) {
+            window.setAttributes(attrs);
+        }
+    }
+    
+    /**
+     * Write the staged changes into the attributes and forget them, returns whether they must be sent
+     */
+    private boolean apply(WindowManager.LayoutParams attrs) {
+        boolean changed = false;
+        int flags = flags(attrs.flags);
+        if (flags != attrs.flags) {
+            attrs.flags = flags;
+            changed = true;
+        }
+        if (fitInsetsTypes != 0 && Build.VERSION.SDK_INT >= Build.VERSION_CODES.R) {
+            // Always set and sent, even when the field already has the types: the default is systemBars(),
+            // but for LAYOUT_FULLSCREEN / LAYOUT_NO_LIMITS windows ViewRootImpl drops statusBars from it
+            // unless setFitInsetsTypes marked the types as controlled by the app
+            attrs.setFitInsetsTypes(attrs.getFitInsetsTypes() | fitInsetsTypes);
+            changed = true;
+        }
+        addFlags = 0;
+        clearFlags = 0;
+        fitInsetsTypes = 0;
+        return changed;
+    }
+}
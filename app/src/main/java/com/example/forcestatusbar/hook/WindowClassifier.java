@@ -0,0 +1,34 @@
+package com.example.forcestatusbar.hook;
+
+import android.app.Activity;
+import android.view.Window;
+
+/**
+ * Tells the top-level window of an Activity, the only kind that is enforced,
+ * from every other Window in the process.
+ *
+ * Dialogs (including the IME's), panel sub-windows and windows a library
+ * creates itself never decide whether the status bar shows, yet go through
+ * the same Window methods. A Dialog often runs on its Activity's context, so
+ * the context alone does not tell them apart; the window's callback and
+ * container do. The check reads two fields of the window and one of the
+ * Activity, which is cheaper than a lookup in any per-window cache and is
+ * never stale, so the hooks run it on every call.
+ */
+final class WindowClassifier {
+    
+    private WindowClassifier() {
+    }
+    
+    /**
+     * Whether the window is the one its Activity draws in; sub-windows have a container
+     */
+    static boolean isActivityWindow(Window window) {
+        if (window.getContainer() != null) {
+            return false;
+        }
+        // Set in Activity.attach, before the app can touch the window
+        Window.Callback callback = window.getCallback();
+        return callback instanceof Activity && ((Activity) callback).getWindow() == window;
+    }
+}
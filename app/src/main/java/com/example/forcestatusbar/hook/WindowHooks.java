@@ -0,0 +1,297 @@
+package com.example.forcestatusbar.hook;
+
+import android.app.Activity;
+import android.view.View;
+import android.view.ViewParent;
+import android.view.Window;
+import android.view.WindowManager;
+
+import com.example.forcestatusbar.bridge.BridgeProtocol;
+import com.example.forcestatusbar.bridge.TraceFormat;
+
+import de.robv.android.xposed.XC_MethodHook;
+
+/**
+ * Callbacks of the per-call Window/View hooks.
+ *
+ * Window hooks return at once for windows other than an Activity's own (see
+ * {@link WindowClassifier}).
+ *
+ * These run on every matching framework call of the hooked app, so they only
+ * touch their arguments, preboxed values and {@link HookStats}; flag rewrites
+ * use the masks compiled by {@link FlagPolicy}, read from the current
+ * {@link ConfigSnapshot} on every call so pushed settings apply at once.
+ * Attempts to hide the bar are reported to {@link FightBackDetector}, which
+ * quiets them on windows caught in a loop. Each counted call is also written
+ * to {@link CallTrace} while tracing is on. They are kept free of Xposed/ART
+ * specifics beyond {@link XC_MethodHook.MethodHookParam} so the benchmark
+ * module can drive them on a plain JVM.
+ */
+final class WindowHooks {
+    
+    private WindowHooks() {
+    }
+    
+    /**
+     * Window.setFlags(int, int)
+     */
+    static final class SetFlags extends XC_MethodHook {
+        
+        @Override
+        protected void beforeHookedMethod(MethodHookParam param) throws Throwable {
+            Window window = (Window) param.thisObject;
+            if (!WindowClassifier.isActivityWindow(window)) {
+                return;
+            }
+            long start = HookStats.start();
+            FlagPolicy policy = ConfigSnapshot.current().policy;
+            int flagsAnd = policy.and(FlagPolicy.SET_FLAGS);
+            int flagsOr = policy.or(FlagPolicy.SET_FLAGS);
+            int maskAnd = policy.and(FlagPolicy.SET_FLAGS_MASK);
+            int maskOr = policy.or(FlagPolicy.SET_FLAGS_MASK);
+            int flags = (int) param.args[0];
+            int mask = (int) param.args[1];
+            int newFlags = (flags & flagsAnd) | flagsOr;
+            int newMask = (mask & maskAnd) | maskOr;
+            
+            if (newFlags != flags) {
+                param.args[0] = newFlags;
+            }
+            if (newMask != mask) {
+                param.args[1] = newMask;
+            }
+            // Forced bits are routine, only stripped ones are an attempt worth a log line
+            boolean swallowed = false;
+            if ((flags & ~flagsAnd) != 0) {
+                if (FightBackDetector.attempt(window.peekDecorView())) {
+                    int current = window.getAttributes().flags;
+                    swallowed = swallowIfUnchanged(param, current, (current & ~newMask) | (newFlags & newMask));
+                } else {
+                    HookLog.log(HookLog.KEY_SET_FLAGS_FULLSCREEN, 0);
+                }
+            }
+            boolean rewritten = newFlags != flags || newMask != mask;
+            if (CallTrace.isEnabled()) {
+                CallTrace.record(BridgeProtocol.HOOK_SET_FLAGS, start, window.peekDecorView(), flags, mask,
+                    newFlags, newMask, window.getAttributes().flags, outcome(rewritten, swallowed));
+            }
+            // Nearly every call gets the forced bits, the stats only count calls that lost a bit
+            boolean stripped = ((newFlags ^ flags) & ~flagsOr) != 0 || ((newMask ^ mask) & ~maskOr) != 0;
+            HookStats.end(BridgeProtocol.HOOK_SET_FLAGS, start, stripped);
+        }
+    }
+    
+    /**
+     * Single int argument rewritten with the policy masks: Window.addFlags and Window.clearFlags
+     */
+    static final class MaskedFlags extends XC_MethodHook {
+        private final int arg;
+        private final int statsHook;
+        private final int logKey;
+        
+        MaskedFlags(int arg, int statsHook, int logKey) {
+            this.arg = arg;
+            this.statsHook = statsHook;
+            this.logKey = logKey;
+        }
+        
+        @Override
+        protected void beforeHookedMethod(MethodHookParam param) throws Throwable {
+            Window window = (Window) param.thisObject;
+            if (!WindowClassifier.isActivityWindow(window)) {
+                return;
+            }
+            long start = HookStats.start();
+            FlagPolicy policy = ConfigSnapshot.current().policy;
+            int flags = (int) param.args[0];
+            int rewritten = (flags & policy.and(arg)) | policy.or(arg);
+            boolean swallowed = false;
+            if (rewritten != flags) {
+                param.args[0] = rewritten;
+                if (FightBackDetector.attempt(window.peekDecorView())) {
+                    int current = window.getAttributes().flags;
+                    swallowed = swallowIfUnchanged(param, current,
+                        arg == FlagPolicy.CLEAR_FLAGS ? current & ~rewritten : current | rewritten);
+                } else {
+                    HookLog.log(logKey, 0);
+                }
+            }
+            if (CallTrace.isEnabled()) {
+                CallTrace.record(statsHook, start, window.peekDecorView(), flags, 0, rewritten, 0,
+                    window.getAttributes().flags, outcome(rewritten != flags, swallowed));
+            }
+            HookStats.end(statsHook, start, rewritten != flags);
+        }
+    }
+    
+    static MaskedFlags addFlags() {
+        return new MaskedFlags(FlagPolicy.ADD_FLAGS,
+            BridgeProtocol.HOOK_ADD_FLAGS, HookLog.KEY_ADD_FLAGS_FULLSCREEN);
+    }
+    
+    static MaskedFlags clearFlags() {
+        return new MaskedFlags(FlagPolicy.CLEAR_FLAGS,
+            BridgeProtocol.HOOK_CLEAR_FLAGS, HookLog.KEY_CLEAR_FORCE_NOT_FULLSCREEN);
+    }
+    
+    /**
+     * View.setSystemUiVisibility(int), the fallback when ViewRootImpl cannot be hooked
+     */
+    static final class SystemUiVisibility extends XC_MethodHook {
+        
+        private static final String DECOR_VIEW_CLASS = "com.android.internal.policy.DecorView";
+        
+        @Override
+        protected void beforeHookedMethod(MethodHookParam param) throws Throwable {
+            FlagPolicy policy = ConfigSnapshot.current().policy;
+            int visibility = (int) param.args[0];
+            int rewritten = (visibility & policy.and(FlagPolicy.SYSTEM_UI_VISIBILITY))
+                | policy.or(FlagPolicy.SYSTEM_UI_VISIBILITY);
+            if (rewritten == visibility) {
+                return;
+            }
+            
+            // Only the root of a window hierarchy matters here, detached and inflated views are left alone
+            if (!isWindowRoot((View) param.thisObject)) {
+                return;
+            }
+            
+            long start = HookStats.start();
+            param.args[0] = rewritten;
+            if (!FightBackDetector.attempt(param.thisObject)) {
+                HookLog.log(HookLog.KEY_SET_SYSTEM_UI_VISIBILITY, visibility);
+            }
+            if (CallTrace.isEnabled()) {
+                CallTrace.record(BridgeProtocol.HOOK_SYSTEM_UI_VISIBILITY, start, param.thisObject, visibility, 0,
+                    rewritten, 0, 0, TraceFormat.OUTCOME_REWRITTEN);
+            }
+            HookStats.end(BridgeProtocol.HOOK_SYSTEM_UI_VISIBILITY, start, true);
+        }
+        
+        /**
+         * Attached under a ViewRootImpl, or a DecorView its window has not added yet
+         */
+        private static boolean isWindowRoot(View view) {
+            ViewParent parent = view.getParent();
+            if (parent != null) {
+                return !(parent instanceof View);
+            }
+            return DECOR_VIEW_CLASS.equals(view.getClass().getName());
+        }
+    }
+    
+    /**
+     * WindowInsetsController.hide(int) on Android 11+
+     */
+    static final class InsetsHide extends XC_MethodHook {
+        
+        @Override
+        protected void beforeHookedMethod(MethodHookParam param) throws Throwable {
+            long start = HookStats.start();
+            int types = (int) param.args[0];
+            int allowed = types & ConfigSnapshot.current().policy.and(FlagPolicy.INSETS_HIDE);
+            
+            if (allowed != types) {
+                if (allowed == 0) {
+                    // Nothing left to hide, skip the call
+                    param.setResult(null);
+                } else {
+                    param.args[0] = allowed;
+                }
+                if (!FightBackDetector.attempt(param.thisObject)) {
+                    HookLog.log(HookLog.KEY_INSETS_HIDE, types);
+                }
+            }
+            if (CallTrace.isEnabled()) {
+                CallTrace.record(BridgeProtocol.HOOK_INSETS_HIDE, start, param.thisObject, types, 0, allowed, 0, 0,
+                    outcome(allowed != types, allowed != types && allowed == 0));
+            }
+            HookStats.end(BridgeProtocol.HOOK_INSETS_HIDE, start, allowed != types);
+        }
+    }
+    
+    /**
+     * ViewRootImpl.collectViewAttributes, after the hierarchy's system UI visibility is collected into
+     * {@code attrs}: applies the policy to it and returns whether it changed. {@code view} is the root
+     * of the hierarchy
+     */
+    static boolean rewriteCollectedSystemUi(FlagPolicy policy, WindowManager.LayoutParams attrs, Object view,
+            long start) {
+        // Added Activity windows are the only base application windows, dialogs and panels are not
+        if (attrs.type != WindowManager.LayoutParams.TYPE_BASE_APPLICATION) {
+            return false;
+        }
+        int and = policy.and(FlagPolicy.SYSTEM_UI_VISIBILITY);
+        int or = policy.or(FlagPolicy.SYSTEM_UI_VISIBILITY);
+        int subtree = attrs.subtreeSystemUiVisibility;
+        int own = attrs.systemUiVisibility;
+        int newSubtree = (subtree & and) | or;
+        int newOwn = (own & and) | or;
+        boolean rewritten = newSubtree != subtree || newOwn != own;
+        if (rewritten) {
+            attrs.subtreeSystemUiVisibility = newSubtree;
+            attrs.systemUiVisibility = newOwn;
+            if (!FightBackDetector.attempt(view)) {
+                HookLog.log(HookLog.KEY_SET_SYSTEM_UI_VISIBILITY, subtree | own);
+            }
+        }
+        if (CallTrace.isEnabled()) {
+            CallTrace.record(TraceFormat.HOOK_COLLECT_VIEW_ATTRIBUTES, start, view, subtree, own,
+                newSubtree, newOwn, 0, outcome(rewritten, false));
+        }
+        return rewritten;
+    }
+    
+    /**
+     * On a settled window, skip a call whose rewrite leaves the flags as they are: the window
+     * would still dispatch an attribute update and the app would see another relayout
+     */
+    private static boolean swallowIfUnchanged(XC_MethodHook.MethodHookParam param, int current, int result) {
+        if (result != current) {
+            return false;
+        }
+        param.setResult(null);
+        FightBackDetector.countSwallowed();
+        return true;
+    }
+    
+    private static int outcome(boolean rewritten, boolean skipped) {
+        if (skipped) {
+            return TraceFormat.OUTCOME_SKIPPED;
+        }
+        return rewritten ? TraceFormat.OUTCOME_REWRITTEN : TraceFormat.OUTCOME_PASSED;
+    }
+    
+    /**
+     * Window.setStatusBarColor(int), replaced with the override or the app's theme color
+     */
+    static final class StatusBarColor extends XC_MethodHook {
+        private final ThemeColorCache themeColors;
+        
+        StatusBarColor(ThemeColorCache themeColors) {
+            this.themeColors = themeColors;
+        }
+        
+        @Override
+        protected void beforeHookedMethod(MethodHookParam param) throws Throwable {
+            ConfigSnapshot snapshot = ConfigSnapshot.current();
+            Window window = (Window) param.thisObject;
+            if (!snapshot.config.enabled || !WindowClassifier.isActivityWindow(window)) {
+                return;
+            }
+            long start = HookStats.start();
+            int requested = (int) param.args[0];
+            Integer color;
+            if (snapshot.config.hasColorOverride()) {
+                color = snapshot.boxedColorOverride;
+            } else {
+                color = themeColors.boxedColorFor((Activity) window.getCallback());
+            }
+            if (color != null) {
+                param.args[0] = color;
+            }
+            HookStats.end(BridgeProtocol.HOOK_STATUS_BAR_COLOR, start,
+                color != null && color != requested);
+        }
+    }
+}
\ No newline at end of file
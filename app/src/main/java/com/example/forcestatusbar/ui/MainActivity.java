@@ -1,15 +1,241 @@
 package com.example.forcestatusbar.ui;
 
 import android.app.Activity;
+import android.app.PendingIntent;
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
+import android.content.SharedPreferences;
+import android.graphics.Color;
+import android.os.Build;
 import android.os.Bundle;
+import android.text.TextUtils;
+import android.view.View;
+import android.widget.EditText;
+import android.widget.LinearLayout;
+import android.widget.RadioGroup;
+import android.widget.Switch;
+import android.widget.TextView;
+import android.widget.Toast;
 
 import com.example.forcestatusbar.R;
+import com.example.forcestatusbar.bridge.BridgeProtocol;
+import com.example.forcestatusbar.config.ModuleConfig;
+import com.example.forcestatusbar.config.PackageConfig;
 
 public class MainActivity extends Activity {
     
+    private SharedPreferences prefs;
+    
+    private EditText packageName;
+    private Switch enabled;
+    private RadioGroup strategy;
+    private EditText color;
+    private Switch allowHideNavigation;
+    private Switch frameMonitor;
+    private Switch displayMetrics;
+    private Switch touchOffset;
+    private Switch surfaceSafe;
+    private Switch sampleColor;
+    private Switch traceCalls;
+    private LinearLayout packageList;
+    private TextView statsView;
+    
+    private final StatsAggregator stats = new StatsAggregator();
+    
+    private final BroadcastReceiver statsReceiver = new BroadcastReceiver() {
+        @Override
+        public void onReceive(Context context, Intent intent) {
+            if (!fromReportedPackage(intent)) {
+                return;
+            }
+            stats.add(intent);
+            statsView.setText(stats.format());
+        }
+    };
+    
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
         setContentView(R.layout.activity_main);
+        
+        packageName = findViewById(R.id.package_name);
+        enabled = findViewById(R.id.enabled);
+        strategy = findViewById(R.id.strategy);
+        color = findViewById(R.id.color);
+        allowHideNavigation = findViewById(R.id.allow_hide_navigation);
+        frameMonitor = findViewById(R.id.frame_monitor);
+        displayMetrics = findViewById(R.id.display_metrics);
+        touchOffset = findViewById(R.id.touch_offset);
+        surfaceSafe = findViewById(R.id.surface_safe);
+        sampleColor = findViewById(R.id.sample_color);
+        traceCalls = findViewById(R.id.trace_calls);
+        packageList = findViewById(R.id.package_list);
+        statsView = findViewById(R.id.stats);
+        
+        prefs = openConfig();
+        
+        findViewById(R.id.save).setOnClickListener(v -> save());
+        findViewById(R.id.delete).setOnClickListener(v -> delete());
+        findViewById(R.id.collect_stats).setOnClickListener(v -> collectStats());
+        
+        Switch systemServerMode = findViewById(R.id.system_server_mode);
+        systemServerMode.setChecked(ModuleConfig.systemServerMode(prefs));
+        systemServerMode.setOnCheckedChangeListener((v, checked) -> ModuleConfig.setSystemServerMode(prefs, checked));
+        
+        showConfig(PackageConfig.defaults(""));
+        refreshList();
+    }
+    
+    @Override
+    protected void onResume() {
+        super.onResume();
+        IntentFilter filter = new IntentFilter(BridgeProtocol.ACTION_STATS_REPORT);
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.TIRAMISU) {
+            registerReceiver(statsReceiver, filter, RECEIVER_EXPORTED);
+        } else {
+            registerReceiver(statsReceiver, filter);
+        }
+    }
+    
+    @Override
+    protected void onPause() {
+        super.onPause();
+        unregisterReceiver(statsReceiver);
+    }
+    
+    /**
+     * Whether a report was sent by the package it names. Hooked processes cannot hold
+     * {@link BridgeProtocol#PERMISSION_PUSH_CONFIG}, so the creator of the PendingIntent
+     * in the report, which only that package can create, stands in for the sender check
+     */
+    @SuppressWarnings("deprecation")
+    private static boolean fromReportedPackage(Intent report) {
+        PendingIntent sender = report.getParcelableExtra(BridgeProtocol.EXTRA_SENDER);
+        String name = report.getStringExtra(BridgeProtocol.EXTRA_PACKAGE);
+        return sender != null && name != null && name.equals(sender.getCreatorPackage());
+    }
+    
+    /**
+     * Open the settings world-readable so hooked processes can read them through XSharedPreferences
+     */
+    @SuppressWarnings("deprecation")
+    private SharedPreferences openConfig() {
+        try {
+            return getSharedPreferences(ModuleConfig.PREFS_NAME, MODE_WORLD_READABLE);
+        } catch (SecurityException e) {
+            // LSPosed only allows this while the module is enabled
+            findViewById(R.id.prefs_warning).setVisibility(View.VISIBLE);
+            return getSharedPreferences(ModuleConfig.PREFS_NAME, MODE_PRIVATE);
+        }
+    }
+    
+    private void save() {
+        String name = packageName.getText().toString().trim();
+        if (TextUtils.isEmpty(name)) {
+            Toast.makeText(this, "请输入包名", Toast.LENGTH_SHORT).show();
+            return;
+        }
+        
+        int colorOverride = PackageConfig.COLOR_THEME;
+        String colorText = color.getText().toString().trim();
+        if (!colorText.isEmpty()) {
+            try {
+                colorOverride = Color.parseColor(colorText.startsWith("#") ? colorText : "#" + colorText);
+            } catch (IllegalArgumentException e) {
+                Toast.makeText(this, "颜色格式错误", Toast.LENGTH_SHORT).show();
+                return;
+            }
+        }
+        
+        ModuleConfig.write(prefs, new PackageConfig(name, enabled.isChecked(), selectedStrategy(),
+            colorOverride, allowHideNavigation.isChecked(), frameMonitor.isChecked(), displayMetrics.isChecked(),
+            touchOffset.isChecked(), surfaceSafe.isChecked(), sampleColor.isChecked(),
+            traceCalls.isChecked()));
+        pushConfig(name);
+        Toast.makeText(this, "已保存，运行中的应用立即生效", Toast.LENGTH_SHORT).show();
+        refreshList();
+    }
+    
+    private void delete() {
+        String name = packageName.getText().toString().trim();
+        if (TextUtils.isEmpty(name)) {
+            return;
+        }
+        ModuleConfig.remove(prefs, name);
+        pushConfig(name);
+        showConfig(PackageConfig.defaults(""));
+        refreshList();
+    }
+    
+    private void showConfig(PackageConfig config) {
+        packageName.setText(config.name);
+        enabled.setChecked(config.enabled);
+        switch (config.strategy) {
+            case PackageConfig.STRATEGY_FITS_SYSTEM_WINDOWS:
+                strategy.check(R.id.strategy_fits);
+                break;
+            case PackageConfig.STRATEGY_COLOR_ONLY:
+                strategy.check(R.id.strategy_color_only);
+                break;
+            default:
+                strategy.check(R.id.strategy_padding);
+                break;
+        }
+        color.setText(config.hasColorOverride()
+            ? String.format("#%06X", config.colorOverride & 0xFFFFFF) : "");
+        allowHideNavigation.setChecked(config.allowHideNavigation);
+        frameMonitor.setChecked(config.frameMonitor);
+        displayMetrics.setChecked(config.compensateDisplayMetrics);
+        touchOffset.setChecked(config.correctTouchOffset);
+        surfaceSafe.setChecked(config.surfaceSafe);
+        sampleColor.setChecked(config.sampleColor);
+        traceCalls.setChecked(config.traceCalls);
+    }
+    
+    private int selectedStrategy() {
+        int checked = strategy.getCheckedRadioButtonId();
+        if (checked == R.id.strategy_fits) {
+            return PackageConfig.STRATEGY_FITS_SYSTEM_WINDOWS;
+        } else if (checked == R.id.strategy_color_only) {
+            return PackageConfig.STRATEGY_COLOR_ONLY;
+        }
+        return PackageConfig.STRATEGY_PADDING;
+    }
+    
+    /**
+     * Send the settings now in effect for a name to its running processes
+     */
+    private void pushConfig(String name) {
+        Intent intent = new Intent(BridgeProtocol.ACTION_CONFIG_CHANGED);
+        intent.putExtra(BridgeProtocol.EXTRA_NAME, name);
+        intent.putExtra(BridgeProtocol.EXTRA_VERSION, ModuleConfig.version(prefs));
+        intent.putExtra(BridgeProtocol.EXTRA_CONFIG, ModuleConfig.toBundle(ModuleConfig.effective(prefs, name)));
+        sendBroadcast(intent);
+    }
+    
+    /**
+     * Ask every hooked process for its stats, the reports arrive in {@link #statsReceiver}
+     */
+    private void collectStats() {
+        stats.clear();
+        statsView.setText("等待目标应用响应…");
+        // Hooked processes only answer holders of the permission; they cannot hold it themselves,
+        // so the request itself is not restricted to holders
+        sendBroadcast(new Intent(BridgeProtocol.ACTION_REQUEST_STATS));
+    }
+    
+    private void refreshList() {
+        packageList.removeAllViews();
+        for (String name : ModuleConfig.configuredNames(prefs)) {
+            PackageConfig config = ModuleConfig.read(prefs, name);
+            TextView item = new TextView(this);
+            item.setText((config.enabled ? "✓ " : "✗ ") + name);
+            item.setTextSize(14);
+            item.setPadding(0, 12, 0, 12);
+            item.setOnClickListener(v -> showConfig(config));
+            packageList.addView(item);
+        }
     }
 }
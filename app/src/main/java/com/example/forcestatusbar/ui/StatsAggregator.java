@@ -0,0 +1,176 @@
+package com.example.forcestatusbar.ui;
+
+import android.content.Intent;
+
+import com.example.forcestatusbar.bridge.BridgeProtocol;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Sums stats reports of all processes of a package and formats them for display
+ */
+final class StatsAggregator {
+    
+    private static final int HOOKS = BridgeProtocol.HOOK_COUNT;
+    private static final int BUCKETS = BridgeProtocol.LATENCY_BUCKETS;
+    private static final int PHASES = BridgeProtocol.FRAME_PHASES;
+    private static final int FRAME_BUCKETS = BridgeProtocol.FRAME_BUCKETS;
+    private static final String[] PHASE_NAMES = {"基线", "强制后"};
+    
+    private static final class PackageStats {
+        final String packageName;
+        final Set<String> processes = new HashSet<>();
+        final long[] calls = new long[HOOKS];
+        final long[] rewrites = new long[HOOKS];
+        final long[] totalNs = new long[HOOKS];
+        final long[] latency = new long[HOOKS * BUCKETS];
+        final long[] frames = new long[PHASES * FRAME_BUCKETS];
+        final long[] janks = new long[PHASES];
+        final long[] fightBacks = new long[2];
+        
+        PackageStats(String packageName) {
+            this.packageName = packageName;
+        }
+        
+        long totalRewrites() {
+            long sum = 0;
+            for (long r : rewrites) {
+                sum += r;
+            }
+            return sum;
+        }
+    }
+    
+    private final Map<String, PackageStats> packages = new HashMap<>();
+    
+    void clear() {
+        packages.clear();
+    }
+    
+    /**
+     * Add one {@link BridgeProtocol#ACTION_STATS_REPORT}, repeated reports of the same process are ignored
+     */
+    void add(Intent report) {
+        String packageName = report.getStringExtra(BridgeProtocol.EXTRA_PACKAGE);
+        String process = report.getStringExtra(BridgeProtocol.EXTRA_PROCESS);
+        if (packageName == null) {
+            return;
+        }
+        
+        PackageStats stats = packages.get(packageName);
+        if (stats == null) {
+            stats = new PackageStats(packageName);
+            packages.put(packageName, stats);
+        }
+        if (!stats.processes.add(process != null ? process : packageName)) {
+            return;
+        }
+        
+        addAll(stats.calls, report.getLongArrayExtra(BridgeProtocol.EXTRA_CALLS));
+        addAll(stats.rewrites, report.getLongArrayExtra(BridgeProtocol.EXTRA_REWRITES));
+        addAll(stats.totalNs, report.getLongArrayExtra(BridgeProtocol.EXTRA_TOTAL_NS));
+        addAll(stats.latency, report.getLongArrayExtra(BridgeProtocol.EXTRA_LATENCY));
+        addAll(stats.frames, report.getLongArrayExtra(BridgeProtocol.EXTRA_FRAMES));
+        addAll(stats.janks, report.getLongArrayExtra(BridgeProtocol.EXTRA_JANKS));
+        addAll(stats.fightBacks, report.getLongArrayExtra(BridgeProtocol.EXTRA_FIGHT_BACKS));
+    }
+    
+    private static void addAll(long[] into, long[] values) {
+        if (values == null) {
+            return;
+        }
+        for (int i = 0; i < into.length && i < values.length; i++) {
+            into[i] += values[i];
+        }
+    }
+    
+    /**
+     * Packages ordered by how often the module had to rewrite their calls
+     */
+    String format() {
+        List<PackageStats> sorted = new ArrayList<>(packages.values());
+        Collections.sort(sorted, (a, b) -> Long.compare(b.totalRewrites(), a.totalRewrites()));
+        
+        StringBuilder sb = new StringBuilder();
+        for (PackageStats stats : sorted) {
+            sb.append(stats.packageName)
+                .append("  (").append(stats.processes.size()).append(" 进程, 改写 ")
+                .append(stats.totalRewrites()).append(" 次)\n");
+            sb.append(String.format(Locale.ROOT, "  %-22s %9s %9s %8s %8s%n", "hook", "calls", "rewrites", "avg µs", "p99"));
+            for (int hook = 0; hook < HOOKS; hook++) {
+                if (stats.calls[hook] == 0) {
+                    continue;
+                }
+                double avgUs = stats.totalNs[hook] / (double) stats.calls[hook] / 1000.0;
+                sb.append(String.format(Locale.ROOT, "  %-22s %9d %9d %8.1f %8s%n",
+                    BridgeProtocol.HOOK_NAMES[hook], stats.calls[hook], stats.rewrites[hook], avgUs,
+                    percentileLabel(stats.latency, hook, 0.99)));
+            }
+            if (stats.fightBacks[0] > 0) {
+                sb.append(String.format(Locale.ROOT, "  对抗循环 %d 次, 静默丢弃 %d 次调用%n",
+                    stats.fightBacks[0], stats.fightBacks[1]));
+            }
+            formatFrames(sb, stats);
+            sb.append('\n');
+        }
+        return sb.toString();
+    }
+    
+    /**
+     * Frame counts, jank rate and p90 frame time per phase, when the frame monitor reported any
+     */
+    private static void formatFrames(StringBuilder sb, PackageStats stats) {
+        for (int phase = 0; phase < PHASES; phase++) {
+            long total = 0;
+            for (int b = 0; b < FRAME_BUCKETS; b++) {
+                total += stats.frames[phase * FRAME_BUCKETS + b];
+            }
+            if (total == 0) {
+                continue;
+            }
+            sb.append(String.format(Locale.ROOT, "  帧(%s) %d, 卡顿 %d (%.1f%%), p90 %s%n",
+                PHASE_NAMES[phase], total, stats.janks[phase], stats.janks[phase] * 100.0 / total,
+                percentileLabel(stats.frames, phase, FRAME_BUCKETS, BridgeProtocol.FRAME_BOUNDS_NS, 0.90)));
+        }
+    }
+    
+    private static String percentileLabel(long[] latency, int hook, double percentile) {
+        return percentileLabel(latency, hook, BUCKETS, BridgeProtocol.LATENCY_BOUNDS_NS, percentile);
+    }
+    
+    /**
+     * Upper bound of the histogram bucket holding the given percentile
+     */
+    private static String percentileLabel(long[] histogram, int row, int buckets, long[] bounds, double percentile) {
+        long total = 0;
+        for (int b = 0; b < buckets; b++) {
+            total += histogram[row * buckets + b];
+        }
+        long target = (long) Math.ceil(total * percentile);
+        long seen = 0;
+        for (int b = 0; b < buckets; b++) {
+            seen += histogram[row * buckets + b];
+            if (seen >= target) {
+                if (b == bounds.length) {
+                    return ">=" + formatNs(bounds[b - 1]);
+                }
+                return "<" + formatNs(bounds[b]);
+            }
+        }
+        return "-";
+    }
+    
+    private static String formatNs(long ns) {
+        if (ns >= 1000000L) {
+            return String.format(Locale.ROOT, "%.1fms", ns / 1000000.0);
+        }
+        return (ns / 1000L) + "µs";
+    }
+}
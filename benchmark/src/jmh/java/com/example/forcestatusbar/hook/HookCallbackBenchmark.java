@@ -0,0 +1,231 @@
+package com.example.forcestatusbar.hook;
+
+import android.app.Activity;
+import android.app.ActivityThread;
+import android.content.res.Resources;
+import android.view.View;
+import android.view.WindowManager;
+
+import com.android.internal.policy.PhoneWindow;
+import com.example.forcestatusbar.config.PackageConfig;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.nio.file.Files;
+
+import de.robv.android.xposed.XC_MethodHook;
+
+/**
+ * Cost of one invocation of each per-call hook callback.
+ *
+ * Each benchmark feeds a reused {@link XC_MethodHook.MethodHookParam} with a
+ * preboxed argument, so ns/op and gc.alloc.rate.norm (bytes/op) are those of
+ * the callback alone. "Pass" cases are calls the hook lets through unchanged,
+ * "Rewrite" cases are calls it has to alter.
+ */
+@State(Scope.Thread)
+public class HookCallbackBenchmark {
+    
+    private static final Integer FLAGS_PLAIN = WindowManager.LayoutParams.FLAG_LAYOUT_IN_SCREEN;
+    private static final Integer FLAGS_FULLSCREEN = WindowManager.LayoutParams.FLAG_FULLSCREEN;
+    private static final Integer FLAGS_FORCE_NOT_FULLSCREEN = WindowManager.LayoutParams.FLAG_FORCE_NOT_FULLSCREEN;
+    private static final Integer MASK_ALL = 0xFFFFFFFF;
+    private static final Integer SYSUI_LAYOUT = View.SYSTEM_UI_FLAG_LAYOUT_STABLE;
+    private static final Integer SYSUI_FULLSCREEN = View.SYSTEM_UI_FLAG_FULLSCREEN;
+    private static final Integer TYPES_NAVIGATION = 2;
+    private static final Integer TYPES_STATUS = 1;
+    private static final Integer COLOR_REQUESTED = 0xFF000000;
+    
+    // WindowInsets.Type.statusBars() / navigationBars() on AOSP
+    private static final int STATUS_BARS = 1;
+    private static final int NAVIGATION_BARS = 2;
+    
+    private WindowHooks.SetFlags setFlags;
+    private WindowHooks.MaskedFlags addFlags;
+    private WindowHooks.MaskedFlags clearFlags;
+    private WindowHooks.SystemUiVisibility systemUiVisibility;
+    private WindowHooks.InsetsHide insetsHide;
+    private WindowHooks.StatusBarColor statusBarColor;
+    
+    private XC_MethodHook.MethodHookParam oneArg;
+    private XC_MethodHook.MethodHookParam twoArgs;
+    private XC_MethodHook.MethodHookParam dialogArgs;
+    private XC_MethodHook.MethodHookParam rootView;
+    private XC_MethodHook.MethodHookParam childView;
+    private XC_MethodHook.MethodHookParam window;
+    
+    @Setup(Level.Trial)
+    public void setUp() throws Throwable {
+        HookLog.init("benchmark", HookLog.INFO);
+        
+        PackageConfig config = new PackageConfig("com.example.app", true, PackageConfig.STRATEGY_PADDING,
+            PackageConfig.COLOR_THEME, false, false, false, false, false, false, false);
+        ConfigSnapshot.init(1, config, STATUS_BARS, NAVIGATION_BARS);
+        setFlags = new WindowHooks.SetFlags();
+        addFlags = WindowHooks.addFlags();
+        clearFlags = WindowHooks.clearFlags();
+        systemUiVisibility = new WindowHooks.SystemUiVisibility();
+        insetsHide = new WindowHooks.InsetsHide();
+        
+        ActivityThread thread = ActivityThread.create("com.example.app",
+            Files.createTempDirectory("forcestatusbar-bench").toFile());
+        Activity activity = thread.launch(new ThemedActivity(), 0x7f0f0001, null);
+        statusBarColor = new WindowHooks.StatusBarColor(new ThemeColorCache());
+        
+        View decor = activity.getWindow().getDecorView();
+        
+        // Window hooks look up the window's fight-back track, untracked here as in most apps
+        oneArg = param(activity.getWindow(), new Object[1]);
+        twoArgs = param(activity.getWindow(), new Object[2]);
+        // A Dialog's window: same context, no activity callback
+        dialogArgs = param(new PhoneWindow(activity), new Object[2]);
+        rootView = param(decor, new Object[1]);
+        childView = param(decor.findViewById(android.R.id.content), new Object[1]);
+        window = param(activity.getWindow(), new Object[1]);
+        
+        // Resolve the theme color once, the hook path is a cache hit from then on
+        window.args[0] = COLOR_REQUESTED;
+        statusBarColor.beforeHookedMethod(window);
+    }
+    
+    /**
+     * Theme with the colors of a typical Material app, statusBarColor left to colorPrimaryDark
+     */
+    public static class ThemedActivity extends Activity {
+        
+        @Override
+        protected void onApplyThemeResource(Resources.Theme theme, int resid, boolean first) {
+            theme.setColor(android.R.attr.colorPrimaryDark, 0xFF3F51B5);
+            theme.setColor(android.R.attr.colorPrimary, 0xFF303F9F);
+            theme.setColor(android.R.attr.windowBackground, 0xFFFAFAFA);
+        }
+    }
+    
+    private static XC_MethodHook.MethodHookParam param(Object thisObject, Object[] args) {
+        XC_MethodHook.MethodHookParam param = new XC_MethodHook.MethodHookParam();
+        param.thisObject = thisObject;
+        param.args = args;
+        return param;
+    }
+    
+    @Benchmark
+    public Object setFlagsPass() throws Throwable {
+        twoArgs.args[0] = FLAGS_FORCE_NOT_FULLSCREEN;
+        twoArgs.args[1] = MASK_ALL;
+        setFlags.beforeHookedMethod(twoArgs);
+        return twoArgs.args[0];
+    }
+    
+    @Benchmark
+    public Object setFlagsRewrite() throws Throwable {
+        twoArgs.args[0] = FLAGS_FULLSCREEN;
+        twoArgs.args[1] = MASK_ALL;
+        setFlags.beforeHookedMethod(twoArgs);
+        return twoArgs.args[0];
+    }
+    
+    @Benchmark
+    public Object setFlagsDialogWindow() throws Throwable {
+        dialogArgs.args[0] = FLAGS_FULLSCREEN;
+        dialogArgs.args[1] = MASK_ALL;
+        setFlags.beforeHookedMethod(dialogArgs);
+        return dialogArgs.args[0];
+    }
+    
+    @Benchmark
+    public Object addFlagsPass() throws Throwable {
+        oneArg.args[0] = FLAGS_PLAIN;
+        addFlags.beforeHookedMethod(oneArg);
+        return oneArg.args[0];
+    }
+    
+    @Benchmark
+    public Object addFlagsRewrite() throws Throwable {
+        oneArg.args[0] = FLAGS_FULLSCREEN;
+        addFlags.beforeHookedMethod(oneArg);
+        return oneArg.args[0];
+    }
+    
+    @Benchmark
+    public Object clearFlagsPass() throws Throwable {
+        oneArg.args[0] = FLAGS_PLAIN;
+        clearFlags.beforeHookedMethod(oneArg);
+        return oneArg.args[0];
+    }
+    
+    @Benchmark
+    public Object clearFlagsRewrite() throws Throwable {
+        oneArg.args[0] = FLAGS_FORCE_NOT_FULLSCREEN;
+        clearFlags.beforeHookedMethod(oneArg);
+        return oneArg.args[0];
+    }
+    
+    @Benchmark
+    public Object setSystemUiVisibilityPass() throws Throwable {
+        rootView.args[0] = SYSUI_LAYOUT;
+        systemUiVisibility.beforeHookedMethod(rootView);
+        return rootView.args[0];
+    }
+    
+    @Benchmark
+    public Object setSystemUiVisibilityChildView() throws Throwable {
+        childView.args[0] = SYSUI_FULLSCREEN;
+        systemUiVisibility.beforeHookedMethod(childView);
+        return childView.args[0];
+    }
+    
+    @Benchmark
+    public Object setSystemUiVisibilityRewrite() throws Throwable {
+        rootView.args[0] = SYSUI_FULLSCREEN;
+        systemUiVisibility.beforeHookedMethod(rootView);
+        return rootView.args[0];
+    }
+    
+    @Benchmark
+    public boolean insetsHidePass() throws Throwable {
+        oneArg.reset();
+        oneArg.args[0] = TYPES_NAVIGATION;
+        insetsHide.beforeHookedMethod(oneArg);
+        return oneArg.returnEarly();
+    }
+    
+    @Benchmark
+    public boolean insetsHideRewrite() throws Throwable {
+        oneArg.reset();
+        oneArg.args[0] = TYPES_STATUS;
+        insetsHide.beforeHookedMethod(oneArg);
+        return oneArg.returnEarly();
+    }
+    
+    @Benchmark
+    public Object setStatusBarColorTheme() throws Throwable {
+        window.args[0] = COLOR_REQUESTED;
+        statusBarColor.beforeHookedMethod(window);
+        return window.args[0];
+    }
+    
+    @Benchmark
+    public Object setStatusBarColorOverride(OverrideColor pushed) throws Throwable {
+        window.args[0] = COLOR_REQUESTED;
+        statusBarColor.beforeHookedMethod(window);
+        return window.args[0];
+    }
+    
+    /**
+     * Swaps in a pushed snapshot with a fixed color, after the benchmark's own setup
+     */
+    @State(Scope.Thread)
+    public static class OverrideColor {
+        
+        @Setup(Level.Trial)
+        public void setUp(HookCallbackBenchmark benchmark) {
+            ConfigSnapshot.update(ConfigSnapshot.current().version + 1,
+                new PackageConfig("com.example.app", true, PackageConfig.STRATEGY_PADDING, 0xFF6200EE,
+                    false, false, false, false, false, false, false));
+        }
+    }
+}
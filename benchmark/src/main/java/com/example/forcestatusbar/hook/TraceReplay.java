@@ -0,0 +1,389 @@
+package com.example.forcestatusbar.hook;
+
+import android.app.Activity;
+import android.app.ActivityThread;
+import android.view.View;
+import android.view.Window;
+import android.view.WindowManager;
+
+import com.example.forcestatusbar.bridge.BridgeProtocol;
+import com.example.forcestatusbar.bridge.TraceFormat;
+import com.example.forcestatusbar.config.PackageConfig;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Locale;
+
+import de.robv.android.xposed.XC_MethodHook;
+
+/**
+ * Replays a call trace written by {@link CallTrace} through the hook callbacks on a JVM.
+ *
+ * Every recorded call is made again on a stand-in window with the recorded
+ * settings, window flags and times (the fight-back detector runs on the
+ * recorded clock), and the outcome and rewritten arguments are compared with
+ * the recorded ones; the arguments of skipped calls are not. The exit status
+ * is 1 when any call decides differently, so a trace pulled from a device
+ * doubles as a regression test. A trace whose ring wrapped lost the fight-back
+ * history of its windows, so its first {@link FightBackDetector#MAX_BACKOFF_NS}
+ * are replayed without being compared.
+ *
+ * <pre>
+ * adb pull /data/data/&lt;package&gt;/cache/forcestatusbar-&lt;process&gt;.trace
+ * ./gradlew :benchmark:replay --args="forcestatusbar-&lt;process&gt;.trace [passes] [--dump]"
+ * </pre>
+ *
+ * Further passes replay the same calls on fresh windows to measure the
+ * decision throughput; {@code --dump} prints the records instead.
+ */
+public final class TraceReplay {
+    
+    // Mismatches printed in full, the rest are only counted
+    private static final int MAX_PRINTED = 20;
+    
+    // Recorded time of the call being replayed, the detector's clock
+    private static long now;
+    
+    private final int count;
+    private final long[] time;
+    private final int[] hook;
+    private final int[] outcome;
+    private final int[] window;
+    private final int[] arg0;
+    private final int[] arg1;
+    private final int[] out0;
+    private final int[] out1;
+    private final int[] state;
+    // Boxed once, like the hooks' preboxed values, so a pass allocates nothing itself
+    private final Integer[] boxed0;
+    private final Integer[] boxed1;
+    private final int maxWindow;
+    // Calls before this one may depend on history the ring dropped
+    private final int firstCompared;
+    
+    private final WindowHooks.SetFlags setFlags = new WindowHooks.SetFlags();
+    private final WindowHooks.MaskedFlags addFlags = WindowHooks.addFlags();
+    private final WindowHooks.MaskedFlags clearFlags = WindowHooks.clearFlags();
+    private final WindowHooks.SystemUiVisibility systemUiVisibility = new WindowHooks.SystemUiVisibility();
+    private final WindowHooks.InsetsHide insetsHide = new WindowHooks.InsetsHide();
+    private final XC_MethodHook.MethodHookParam param = new XC_MethodHook.MethodHookParam();
+    private final Object[] oneArg = new Object[1];
+    private final Object[] twoArgs = new Object[2];
+    private final WindowManager.LayoutParams collected = new WindowManager.LayoutParams();
+    
+    // The replayed process, every window of the trace is an activity launched into it
+    private ActivityThread thread;
+    private long settingsVersion;
+    private int mismatches;
+    
+    /**
+     * A stand-in for one window of the trace: its Activity and the insets controller hooks see
+     */
+    private static final class ReplayWindow {
+        final Activity activity;
+        final Window window;
+        final View decorView;
+        final Object insetsController = new Object();
+        
+        ReplayWindow(ActivityThread thread, int id) {
+            activity = thread.launch(new Activity(), 0, null);
+            window = activity.getWindow();
+            decorView = window.getDecorView();
+            // Id 0 stands for all windows the process never tracked
+            if (id != 0) {
+                FightBackDetector.track(decorView, activity);
+                FightBackDetector.alias(insetsController, decorView);
+            }
+        }
+    }
+    
+    private TraceReplay(ByteBuffer buffer) throws IOException {
+        buffer.order(TraceFormat.ORDER);
+        if (buffer.remaining() < TraceFormat.HEADER_SIZE
+                || buffer.getInt(TraceFormat.HEADER_MAGIC) != TraceFormat.MAGIC) {
+            throw new IOException("not a call trace");
+        }
+        if (buffer.getInt(TraceFormat.HEADER_VERSION) != TraceFormat.VERSION
+                || buffer.getInt(TraceFormat.HEADER_RECORD_SIZE) != TraceFormat.RECORD_SIZE) {
+            throw new IOException("unsupported trace version " + buffer.getInt(TraceFormat.HEADER_VERSION));
+        }
+        int capacity = buffer.getInt(TraceFormat.HEADER_CAPACITY);
+        if (capacity <= 0 || buffer.remaining() < TraceFormat.fileSize(capacity)) {
+            throw new IOException("truncated trace");
+        }
+        long next = buffer.getLong(TraceFormat.HEADER_NEXT);
+        count = (int) Math.min(next, capacity);
+        time = new long[count];
+        hook = new int[count];
+        outcome = new int[count];
+        window = new int[count];
+        arg0 = new int[count];
+        arg1 = new int[count];
+        out0 = new int[count];
+        out1 = new int[count];
+        state = new int[count];
+        boxed0 = new Integer[count];
+        boxed1 = new Integer[count];
+        
+        int max = 0;
+        for (int i = 0; i < count; i++) {
+            int base = TraceFormat.HEADER_SIZE + (int) ((next - count + i) % capacity) * TraceFormat.RECORD_SIZE;
+            time[i] = buffer.getLong(base + TraceFormat.RECORD_TIME);
+            hook[i] = buffer.get(base + TraceFormat.RECORD_HOOK) & 0xFF;
+            outcome[i] = buffer.get(base + TraceFormat.RECORD_OUTCOME);
+            window[i] = buffer.getInt(base + TraceFormat.RECORD_WINDOW);
+            arg0[i] = buffer.getInt(base + TraceFormat.RECORD_ARG0);
+            arg1[i] = buffer.getInt(base + TraceFormat.RECORD_ARG1);
+            out0[i] = buffer.getInt(base + TraceFormat.RECORD_OUT0);
+            out1[i] = buffer.getInt(base + TraceFormat.RECORD_OUT1);
+            state[i] = buffer.getInt(base + TraceFormat.RECORD_STATE);
+            boxed0[i] = arg0[i];
+            boxed1[i] = arg1[i];
+            if (window[i] < 0) {
+                throw new IOException("bad window id in record " + i);
+            }
+            max = Math.max(max, window[i]);
+        }
+        maxWindow = max;
+        
+        int first = 0;
+        if (next > capacity) {
+            while (first < count && time[first] - time[0] < FightBackDetector.MAX_BACKOFF_NS) {
+                first++;
+            }
+        }
+        firstCompared = first;
+    }
+    
+    public static void main(String[] args) throws Throwable {
+        String path = null;
+        int passes = 1;
+        boolean dump = false;
+        for (String arg : args) {
+            if (arg.equals("--dump")) {
+                dump = true;
+            } else if (path == null) {
+                path = arg;
+            } else {
+                passes = Math.max(1, Integer.parseInt(arg));
+            }
+        }
+        if (path == null) {
+            System.err.println("usage: TraceReplay <trace> [passes] [--dump]");
+            System.exit(2);
+        }
+        
+        TraceReplay replay;
+        try {
+            replay = new TraceReplay(ByteBuffer.wrap(Files.readAllBytes(Paths.get(path))));
+        } catch (IOException e) {
+            System.err.println(path + ": " + e.getMessage());
+            System.exit(2);
+            return;
+        }
+        if (dump) {
+            replay.dump();
+            return;
+        }
+        
+        HookLog.init("replay", HookLog.NONE);
+        FightBackDetector.setClock(() -> now);
+        System.exit(replay.run(passes) ? 0 : 1);
+    }
+    
+    /**
+     * Replay all passes and print the summary, returns whether every call decided as recorded
+     */
+    private boolean run(int passes) throws Throwable {
+        thread = ActivityThread.create("replay", Files.createTempDirectory("forcestatusbar-replay").toFile());
+        int calls = 0;
+        int configs = 0;
+        for (int i = 0; i < count; i++) {
+            if (hook[i] == TraceFormat.HOOK_CONFIG) {
+                configs++;
+            } else {
+                calls++;
+            }
+        }
+        if (calls > 0 && configs == 0) {
+            System.err.println("The trace holds no settings, cannot replay it");
+            return false;
+        }
+        
+        long[] before = FightBackDetector.snapshot();
+        replay(true);
+        long[] after = FightBackDetector.snapshot();
+        long elapsed = 0;
+        for (int pass = 1; pass < passes; pass++) {
+            long start = System.nanoTime();
+            replay(false);
+            elapsed += System.nanoTime() - start;
+        }
+        
+        System.out.printf(Locale.ROOT, "%d calls on %d tracked windows, %d settings records%n",
+            calls, maxWindow, configs);
+        if (firstCompared > 0) {
+            System.out.printf(Locale.ROOT, "The trace wrapped, the first %d records were not compared%n",
+                firstCompared);
+        }
+        System.out.printf(Locale.ROOT, "Fight-back loops %d, swallowed calls %d%n",
+            after[0] - before[0], after[1] - before[1]);
+        if (passes > 1 && calls > 0) {
+            double perCall = (double) elapsed / ((long) calls * (passes - 1));
+            System.out.printf(Locale.ROOT, "%.1f ns per decision, %.0f decisions/s over %d passes%n",
+                perCall, 1e9 / perCall, passes - 1);
+        }
+        System.out.printf(Locale.ROOT, "%d mismatches%n", mismatches);
+        return mismatches == 0;
+    }
+    
+    /**
+     * One pass over the trace on fresh windows
+     */
+    private void replay(boolean verify) throws Throwable {
+        ReplayWindow[] windows = new ReplayWindow[maxWindow + 1];
+        // Calls before the first settings record ran under the settings it repeats
+        for (int i = 0; i < count; i++) {
+            if (hook[i] == TraceFormat.HOOK_CONFIG) {
+                applyConfig(i);
+                break;
+            }
+        }
+        
+        for (int i = 0; i < count; i++) {
+            if (hook[i] == TraceFormat.HOOK_CONFIG) {
+                applyConfig(i);
+                continue;
+            }
+            ReplayWindow target = windows[window[i]];
+            if (target == null) {
+                target = windows[window[i]] = new ReplayWindow(thread, window[i]);
+            }
+            now = time[i];
+            int result = call(i, target);
+            if (verify && i >= firstCompared) {
+                verify(i, result);
+            }
+        }
+    }
+    
+    private void applyConfig(int i) {
+        PackageConfig config = new PackageConfig("replay",
+            (arg0[i] & TraceFormat.CONFIG_ENABLED) != 0, state[i], arg1[i],
+            (arg0[i] & TraceFormat.CONFIG_ALLOW_HIDE_NAVIGATION) != 0,
+            false, false, false, false, false, false);
+        ConfigSnapshot.init(++settingsVersion, config, out0[i], out1[i]);
+    }
+    
+    /**
+     * Make the recorded call, leaves the arguments it went on with in {@link #param}; returns the outcome
+     */
+    private int call(int i, ReplayWindow target) throws Throwable {
+        switch (hook[i]) {
+            case BridgeProtocol.HOOK_SET_FLAGS:
+                target.window.getAttributes().flags = state[i];
+                prepare(target.window, twoArgs, i);
+                setFlags.beforeHookedMethod(param);
+                break;
+            case BridgeProtocol.HOOK_ADD_FLAGS:
+                target.window.getAttributes().flags = state[i];
+                prepare(target.window, oneArg, i);
+                addFlags.beforeHookedMethod(param);
+                break;
+            case BridgeProtocol.HOOK_CLEAR_FLAGS:
+                target.window.getAttributes().flags = state[i];
+                prepare(target.window, oneArg, i);
+                clearFlags.beforeHookedMethod(param);
+                break;
+            case BridgeProtocol.HOOK_SYSTEM_UI_VISIBILITY:
+                prepare(target.decorView, oneArg, i);
+                systemUiVisibility.beforeHookedMethod(param);
+                break;
+            case BridgeProtocol.HOOK_INSETS_HIDE:
+                prepare(target.insetsController, oneArg, i);
+                insetsHide.beforeHookedMethod(param);
+                break;
+            case TraceFormat.HOOK_COLLECT_VIEW_ATTRIBUTES:
+                collected.type = WindowManager.LayoutParams.TYPE_BASE_APPLICATION;
+                collected.subtreeSystemUiVisibility = arg0[i];
+                collected.systemUiVisibility = arg1[i];
+                WindowHooks.rewriteCollectedSystemUi(ConfigSnapshot.current().policy, collected,
+                    target.decorView, time[i]);
+                // Leave the result where the Window hooks leave theirs
+                prepare(target.decorView, twoArgs, i);
+                twoArgs[0] = collected.subtreeSystemUiVisibility;
+                twoArgs[1] = collected.systemUiVisibility;
+                break;
+            default:
+                throw new IllegalStateException("Unknown hook id " + hook[i] + " in record " + i);
+        }
+        if (param.returnEarly()) {
+            return TraceFormat.OUTCOME_SKIPPED;
+        }
+        boolean rewritten = (int) param.args[0] != arg0[i]
+            || (param.args.length > 1 && (int) param.args[1] != arg1[i]);
+        return rewritten ? TraceFormat.OUTCOME_REWRITTEN : TraceFormat.OUTCOME_PASSED;
+    }
+    
+    private void prepare(Object thisObject, Object[] args, int i) {
+        param.reset();
+        param.thisObject = thisObject;
+        param.args = args;
+        args[0] = boxed0[i];
+        if (args.length > 1) {
+            args[1] = boxed1[i];
+        }
+    }
+    
+    private void verify(int i, int result) {
+        int replayed0 = (int) param.args[0];
+        int replayed1 = param.args.length > 1 ? (int) param.args[1] : 0;
+        boolean same = result == outcome[i];
+        if (same && result != TraceFormat.OUTCOME_SKIPPED) {
+            same = replayed0 == out0[i] && replayed1 == out1[i];
+        }
+        if (same) {
+            return;
+        }
+        if (++mismatches <= MAX_PRINTED) {
+            System.out.println("Mismatch at " + format(i) + "\n    replayed " + outcomeName(result)
+                + String.format(Locale.ROOT, " 0x%08x 0x%08x", replayed0, replayed1));
+        }
+    }
+    
+    private void dump() {
+        for (int i = 0; i < count; i++) {
+            System.out.println(format(i));
+        }
+    }
+    
+    private String format(int i) {
+        if (hook[i] == TraceFormat.HOOK_CONFIG) {
+            return String.format(Locale.ROOT, "#%d %d settings options 0x%x color 0x%08x strategy %d"
+                + " insets 0x%x 0x%x", i, time[i], arg0[i], arg1[i], state[i], out0[i], out1[i]);
+        }
+        return String.format(Locale.ROOT, "#%d %d %s window %d flags 0x%08x: 0x%08x 0x%08x -> %s 0x%08x 0x%08x",
+            i, time[i], hookName(hook[i]), window[i], state[i], arg0[i], arg1[i], outcomeName(outcome[i]),
+            out0[i], out1[i]);
+    }
+    
+    private static String hookName(int hook) {
+        if (hook == TraceFormat.HOOK_COLLECT_VIEW_ATTRIBUTES) {
+            return "collectViewAttributes";
+        }
+        return hook < BridgeProtocol.HOOK_COUNT ? BridgeProtocol.HOOK_NAMES[hook] : "hook " + hook;
+    }
+    
+    private static String outcomeName(int outcome) {
+        switch (outcome) {
+            case TraceFormat.OUTCOME_PASSED:
+                return "passed";
+            case TraceFormat.OUTCOME_REWRITTEN:
+                return "rewritten";
+            default:
+                return "skipped";
+        }
+    }
+}
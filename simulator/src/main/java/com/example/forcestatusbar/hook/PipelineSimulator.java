@@ -0,0 +1,577 @@
+package com.example.forcestatusbar.hook;
+
+import android.app.ActivityThread;
+import android.app.Application;
+import android.app.Dialog;
+import android.app.PendingIntent;
+import android.content.Intent;
+import android.content.pm.ApplicationInfo;
+import android.content.res.Configuration;
+import android.os.Build;
+import android.os.Looper;
+import android.view.Choreographer;
+import android.view.View;
+import android.view.ViewParent;
+import android.view.ViewRootImpl;
+import android.view.Window;
+import android.view.WindowManager;
+
+import com.example.forcestatusbar.bridge.BridgeProtocol;
+import com.example.forcestatusbar.config.ModuleConfig;
+import com.example.forcestatusbar.config.PackageConfig;
+import com.example.forcestatusbar.sim.MemoryPreferences;
+import com.example.forcestatusbar.sim.SimClock;
+import com.example.forcestatusbar.sim.WindowServer;
+
+import java.io.File;
+import java.lang.ref.WeakReference;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import de.robv.android.xposed.XSharedPreferences;
+import de.robv.android.xposed.callbacks.XC_LoadPackage;
+
+/**
+ * Runs the whole hook pipeline against the simulated window system: the
+ * module is loaded into a simulated app process as Xposed would load it, and
+ * thousands of activities go through create, resume, focus, rotation,
+ * backgrounding and finish, some of them fighting the module on every frame.
+ *
+ * After each step, once the top window has drawn, the simulator checks what
+ * the user would see: the status bar is shown, the content starts right
+ * below it, the bar has the theme (or configured) color and dialogs keep
+ * their own flags. At the end it checks that no finished activity is still
+ * reachable. Counts of hook decisions, relayouts and the allocations of the
+ * callbacks go into the {@link SimulationReport}.
+ *
+ * The simulated framework and the module keep their state in statics, so a
+ * JVM runs one simulation, at the SDK level of the {@code simulator.sdk}
+ * system property. Runs are reproducible for a given seed: time only moves
+ * with the simulated vsync.
+ */
+public final class PipelineSimulator {
+    
+    static final String PACKAGE_NAME = "com.example.simulated";
+    
+    // Frames the top activity runs between two steps
+    private static final int MIN_FRAMES = 4;
+    private static final int MAX_FRAMES = 24;
+    // Frames a window gets to settle before the checks
+    private static final int SETTLE_FRAMES = 8;
+    // Frames, 10 s, the queued messages get to run out before the leak check
+    private static final int DRAIN_FRAMES = 600;
+    private static final int THEMES = 6;
+    
+    private final int activities;
+    private final long seed;
+    private final int maxDepth;
+    private final int configPushes;
+    private final PackageConfig config;
+    private final Map<SimulatedActivity.Behavior, Integer> weights;
+    
+    private Random random;
+    private ActivityThread thread;
+    private Application application;
+    private MemoryPreferences modulePrefs;
+    private final List<SimulatedActivity> stack = new ArrayList<>();
+    private final List<WeakReference<SimulatedActivity>> destroyed = new ArrayList<>();
+    private final SimulationReport report = new SimulationReport();
+    private int launched;
+    private int pushed;
+    
+    private PipelineSimulator(Builder builder) {
+        activities = builder.activities;
+        seed = builder.seed;
+        maxDepth = builder.maxDepth;
+        configPushes = builder.configPushes;
+        config = builder.config != null ? builder.config : PackageConfig.defaults(PACKAGE_NAME);
+        weights = builder.weights;
+    }
+    
+    public static final class Builder {
+        private int activities = 1000;
+        private long seed = 1;
+        private int maxDepth = 4;
+        private int configPushes;
+        private PackageConfig config;
+        private final Map<SimulatedActivity.Behavior, Integer> weights =
+            new EnumMap<>(SimulatedActivity.Behavior.class);
+        
+        public Builder() {
+            for (SimulatedActivity.Behavior behavior : SimulatedActivity.Behavior.values()) {
+                weights.put(behavior, 1);
+            }
+            weights.put(SimulatedActivity.Behavior.PLAIN, 4);
+        }
+        
+        /**
+         * Activities launched over the run
+         */
+        public Builder activities(int count) {
+            activities = count;
+            return this;
+        }
+        
+        public Builder seed(long seed) {
+            this.seed = seed;
+            return this;
+        }
+        
+        /**
+         * Most activities on the back stack at once
+         */
+        public Builder maxDepth(int depth) {
+            maxDepth = depth;
+            return this;
+        }
+        
+        /**
+         * Settings for the simulated package, the defaults of an unconfigured package when not set
+         */
+        public Builder config(PackageConfig config) {
+            this.config = config;
+            return this;
+        }
+        
+        /**
+         * Settings pushes over the run, alternating a color override on and off
+         */
+        public Builder configPushes(int count) {
+            configPushes = count;
+            return this;
+        }
+        
+        Builder weight(SimulatedActivity.Behavior behavior, int weight) {
+            weights.put(behavior, weight);
+            return this;
+        }
+        
+        public PipelineSimulator build() {
+            if (config != null && !PACKAGE_NAME.equals(config.name)) {
+                throw new IllegalArgumentException("Settings must be for " + PACKAGE_NAME);
+            }
+            return new PipelineSimulator(this);
+        }
+    }
+    
+    /**
+     * Run the simulation; call once per JVM
+     */
+    public SimulationReport run() throws Throwable {
+        long wallStart = System.nanoTime();
+        random = new Random(seed);
+        report.sdk = Build.VERSION.SDK_INT;
+        report.seed = seed;
+        startProcess();
+        
+        int pushEvery = configPushes > 0 ? Math.max(1, activities / (configPushes + 1)) : Integer.MAX_VALUE;
+        while (launched < activities || !stack.isEmpty()) {
+            if (stack.isEmpty()) {
+                launch();
+            }
+            runFrames(MIN_FRAMES + random.nextInt(MAX_FRAMES - MIN_FRAMES + 1));
+            check(top());
+            
+            if (pushed < configPushes && launched >= pushEvery * (pushed + 1)) {
+                pushConfig();
+            }
+            int action = random.nextInt(100);
+            if (launched < activities && stack.size() < maxDepth && action < 45) {
+                launch();
+            } else if (action < 80 || launched >= activities) {
+                finishTop();
+            } else if (action < 88) {
+                rotate();
+            } else if (action < 96) {
+                background();
+            } else {
+                toggleNightMode();
+            }
+        }
+        
+        runFrames(SETTLE_FRAMES);
+        requestStats();
+        checkLeaks();
+        
+        report.activities = launched;
+        report.simulatedNs = SimClock.nanoTime() - report.simulatedNs;
+        report.wallNs = System.nanoTime() - wallStart;
+        report.collect();
+        return report;
+    }
+    
+    /**
+     * Write the settings where the module reads them, start the app process and load the module into it
+     */
+    private void startProcess() throws Throwable {
+        modulePrefs = XSharedPreferences.store(ModuleConfig.MODULE_PACKAGE, ModuleConfig.PREFS_NAME);
+        ModuleConfig.write(modulePrefs, config);
+        report.config = config;
+        report.simulatedNs = SimClock.nanoTime();
+        FightBackDetector.setClock(SimClock::nanoTime);
+        
+        File dataDir = Files.createTempDirectory("forcestatusbar-sim").toFile();
+        dataDir.deleteOnExit();
+        thread = ActivityThread.create(PACKAGE_NAME, dataDir);
+        application = thread.getApplication();
+        
+        XC_LoadPackage.LoadPackageParam lpparam = new XC_LoadPackage.LoadPackageParam();
+        lpparam.packageName = PACKAGE_NAME;
+        lpparam.processName = PACKAGE_NAME;
+        lpparam.classLoader = PipelineSimulator.class.getClassLoader();
+        lpparam.appInfo = new ApplicationInfo();
+        lpparam.appInfo.packageName = PACKAGE_NAME;
+        lpparam.appInfo.processName = PACKAGE_NAME;
+        lpparam.appInfo.dataDir = dataDir.getPath();
+        lpparam.isFirstApplication = true;
+        new StatusBarHook().handleLoadPackage(lpparam);
+    }
+    
+    private SimulatedActivity top() {
+        return stack.isEmpty() ? null : stack.get(stack.size() - 1);
+    }
+    
+    /**
+     * One vsync: the app's frame work, due messages, then the choreographer's callbacks
+     */
+    private void runFrames(int frames) {
+        Looper looper = Looper.getMainLooper();
+        Choreographer choreographer = Choreographer.getInstance();
+        for (int i = 0; i < frames; i++) {
+            SimClock.advance(SimClock.FRAME_NS);
+            SimulatedActivity top = top();
+            if (top != null && !top.isStopped()) {
+                top.onFrame();
+                report.countFrame(top.behavior);
+            }
+            looper.runDue();
+            choreographer.doFrame(SimClock.nanoTime());
+            report.frames++;
+        }
+    }
+    
+    private SimulatedActivity.Behavior pickBehavior() {
+        int total = 0;
+        for (int weight : weights.values()) {
+            total += weight;
+        }
+        int pick = random.nextInt(total);
+        for (Map.Entry<SimulatedActivity.Behavior, Integer> e : weights.entrySet()) {
+            pick -= e.getValue();
+            if (pick < 0) {
+                return e.getKey();
+            }
+        }
+        throw new IllegalStateException();
+    }
+    
+    private SimulatedActivity create(SimulatedActivity.Behavior behavior, int themeResource) {
+        SimulatedActivity activity = thread.launch(new SimulatedActivity(behavior), themeResource, null);
+        thread.resume(activity);
+        thread.focus(activity, true);
+        return activity;
+    }
+    
+    /**
+     * Start a new activity on top of the current one
+     */
+    private void launch() {
+        SimulatedActivity previous = top();
+        if (previous != null) {
+            thread.focus(previous, false);
+            thread.pause(previous);
+        }
+        SimulatedActivity.Behavior behavior = pickBehavior();
+        stack.add(create(behavior, 0x7f130000 + random.nextInt(THEMES)));
+        launched++;
+        report.countLaunch(behavior);
+        if (previous != null) {
+            runFrames(1);
+            thread.stop(previous);
+        }
+    }
+    
+    /**
+     * Finish the top activity and go back to the one below
+     */
+    private void finishTop() {
+        SimulatedActivity finishing = stack.remove(stack.size() - 1);
+        finishing.finish();
+        thread.focus(finishing, false);
+        thread.pause(finishing);
+        SimulatedActivity previous = top();
+        if (previous != null) {
+            bringBack(previous);
+        }
+        runFrames(1);
+        thread.stop(finishing);
+        destroy(finishing);
+    }
+    
+    /**
+     * Resume an activity that was stopped, relaunching it if the configuration changed meanwhile
+     */
+    private void bringBack(SimulatedActivity activity) {
+        Configuration current = thread.getConfiguration();
+        if (activity.getResources().getConfiguration().differs(current)) {
+            if (handlesItself(activity, current)) {
+                thread.configurationChanged(activity, current);
+            } else {
+                int index = stack.indexOf(activity);
+                activity = relaunch(activity);
+                stack.set(index, activity);
+                return;
+            }
+        }
+        if (activity.isStopped()) {
+            thread.restart(activity);
+        }
+        thread.resume(activity);
+        thread.focus(activity, true);
+    }
+    
+    /**
+     * Config-aware activities handle rotation but not a night mode switch
+     */
+    private static boolean handlesItself(SimulatedActivity activity, Configuration newConfig) {
+        Configuration old = activity.getResources().getConfiguration();
+        return activity.behavior == SimulatedActivity.Behavior.CONFIG_AWARE && old.uiMode == newConfig.uiMode;
+    }
+    
+    private SimulatedActivity relaunch(SimulatedActivity activity) {
+        if (!activity.isStopped()) {
+            thread.focus(activity, false);
+            thread.pause(activity);
+            thread.stop(activity);
+        }
+        destroy(activity);
+        report.relaunches++;
+        return create(activity.behavior, activity.themeResource());
+    }
+    
+    private void destroy(SimulatedActivity activity) {
+        View decor = activity.getWindow().peekDecorView();
+        ViewParent parent = decor != null ? decor.getParent() : null;
+        if (parent instanceof ViewRootImpl) {
+            report.countWindow(activity.behavior, (ViewRootImpl) parent);
+        }
+        thread.destroy(activity);
+        destroyed.add(new WeakReference<>(activity));
+    }
+    
+    /**
+     * Rotate the display; the top activity is relaunched or told, the others when they come back
+     */
+    private void rotate() {
+        WindowServer.rotate();
+        Configuration next = new Configuration(thread.getConfiguration());
+        WindowServer.fillConfiguration(next);
+        thread.applyConfiguration(next);
+        application.notifyDisplayChanged(0);
+        report.rotations++;
+        updateTop(next);
+    }
+    
+    private void toggleNightMode() {
+        Configuration next = new Configuration(thread.getConfiguration());
+        int night = next.uiMode & Configuration.UI_MODE_NIGHT_MASK;
+        next.uiMode = next.uiMode & ~Configuration.UI_MODE_NIGHT_MASK
+            | (night == Configuration.UI_MODE_NIGHT_YES ? Configuration.UI_MODE_NIGHT_NO
+                : Configuration.UI_MODE_NIGHT_YES);
+        thread.applyConfiguration(next);
+        report.nightSwitches++;
+        updateTop(next);
+    }
+    
+    private void updateTop(Configuration next) {
+        SimulatedActivity top = top();
+        if (handlesItself(top, next)) {
+            thread.configurationChanged(top, next);
+        } else {
+            stack.set(stack.size() - 1, relaunch(top));
+        }
+    }
+    
+    /**
+     * Leave the app for the launcher and come back
+     */
+    private void background() {
+        SimulatedActivity top = top();
+        thread.focus(top, false);
+        thread.pause(top);
+        thread.stop(top);
+        runFrames(MIN_FRAMES);
+        bringBack(top);
+        report.backgrounds++;
+    }
+    
+    /**
+     * The module app saved new settings and broadcasts them, as its settings screen does
+     */
+    private void pushConfig() {
+        pushed++;
+        int color = pushed % 2 == 1 ? 0xFF3F51B5 : PackageConfig.COLOR_THEME;
+        PackageConfig next = new PackageConfig(config.name, config.enabled, config.strategy, color,
+            config.allowHideNavigation, config.frameMonitor, config.compensateDisplayMetrics,
+            config.correctTouchOffset, config.surfaceSafe, config.sampleColor, config.traceCalls);
+        ModuleConfig.write(modulePrefs, next);
+        Intent intent = new Intent(BridgeProtocol.ACTION_CONFIG_CHANGED);
+        intent.setPackage(PACKAGE_NAME);
+        intent.putExtra(BridgeProtocol.EXTRA_NAME, next.name);
+        intent.putExtra(BridgeProtocol.EXTRA_VERSION, ModuleConfig.version(modulePrefs));
+        intent.putExtra(BridgeProtocol.EXTRA_CONFIG, ModuleConfig.toBundle(next));
+        application.sendBroadcast(intent);
+        report.configPushes++;
+    }
+    
+    /**
+     * Ask for the hook statistics as the module app's statistics screen does
+     */
+    private void requestStats() {
+        int before = application.sentBroadcasts().size();
+        Intent request = new Intent(BridgeProtocol.ACTION_REQUEST_STATS);
+        request.setPackage(PACKAGE_NAME);
+        application.sendBroadcast(request);
+        runFrames(1);
+        for (Intent sent : application.sentBroadcasts().subList(before, application.sentBroadcasts().size())) {
+            if (BridgeProtocol.ACTION_STATS_REPORT.equals(sent.getAction())) {
+                report.statsReport = sent;
+            }
+        }
+        if (report.statsReport == null) {
+            report.violation("No statistics report in answer to a request");
+            return;
+        }
+        if (!BridgeProtocol.PERMISSION_PUSH_CONFIG.equals(application.receiverPermission(report.statsReport))) {
+            report.violation("Statistics report readable without the module permission");
+        }
+        PendingIntent sender = report.statsReport.getParcelableExtra(BridgeProtocol.EXTRA_SENDER);
+        if (sender == null || !PACKAGE_NAME.equals(sender.getCreatorPackage())) {
+            report.violation("Statistics report without proof of its package");
+        }
+    }
+    
+    /**
+     * Check what the user sees of the top activity, once its window has settled
+     */
+    @SuppressWarnings("deprecation")
+    private void check(SimulatedActivity activity) {
+        View decor = activity.getWindow().peekDecorView();
+        if (decor == null || !(decor.getParent() instanceof ViewRootImpl)) {
+            report.violation(activity + ": window not added");
+            return;
+        }
+        ViewRootImpl root = (ViewRootImpl) decor.getParent();
+        for (int i = 0; root.isTraversalScheduled() && i < SETTLE_FRAMES; i++) {
+            runFrames(1);
+        }
+        if (root.isTraversalScheduled()) {
+            report.violation(activity.behavior + ": window does not settle");
+            return;
+        }
+        report.checks++;
+        
+        WindowServer.Frame frame = root.frame();
+        // A tap through the input stage, for the touch correction
+        root.dispatchTouch(frame.width / 2f, frame.height / 2f);
+        if (!frame.statusBarVisible) {
+            report.violation(activity.behavior + ": status bar hidden");
+        }
+        
+        // Nothing is installed for a disabled package
+        ConfigSnapshot snapshot = ConfigSnapshot.current();
+        PackageConfig live = snapshot != null ? snapshot.config : config;
+        int[] location = new int[2];
+        if (activity.surfaceView() != null && live.surfaceSafe) {
+            // The whole window is laid out below the bar before the surface exists, content is not padded
+            View surface = activity.surfaceView();
+            surface.getLocationInWindow(location);
+            int surfaceTop = frame.top + location[1];
+            if (surfaceTop != WindowServer.statusBarHeight()) {
+                report.violation(activity.behavior + ": surface starts at " + surfaceTop + ", status bar ends at "
+                    + WindowServer.statusBarHeight());
+            }
+        } else if (config.strategy != PackageConfig.STRATEGY_COLOR_ONLY) {
+            View content = decor.findViewById(android.R.id.content);
+            content.getLocationInWindow(location);
+            int contentTop = frame.top + location[1] + content.getPaddingTop();
+            if (contentTop != WindowServer.statusBarHeight()) {
+                report.violation(activity.behavior + ": content starts at " + contentTop + ", status bar ends at "
+                    + WindowServer.statusBarHeight());
+            }
+        }
+        
+        if (!live.sampleColor) {
+            int expected = live.hasColorOverride() ? live.colorOverride : activity.themeColor();
+            int actual = activity.getWindow().getStatusBarColor();
+            if (actual != expected) {
+                report.violation(activity.behavior + ": status bar color " + Integer.toHexString(actual)
+                    + ", expected " + Integer.toHexString(expected));
+            }
+        }
+        
+        Dialog dialog = activity.dialog();
+        if (dialog != null && dialog.isShowing()) {
+            Window window = dialog.getWindow();
+            View dialogDecor = window.peekDecorView();
+            int flags = window.getAttributes().flags;
+            int added = dialogDecor.getParent() instanceof ViewRootImpl
+                ? ((ViewRootImpl) dialogDecor.getParent()).getWindowAttributes().flags : 0;
+            if ((flags & added & WindowManager.LayoutParams.FLAG_FULLSCREEN) == 0) {
+                report.violation("DIALOG: the dialog's own flags were rewritten");
+            }
+        }
+    }
+    
+    /**
+     * Every activity is finished by now; none may still be reachable
+     */
+    private void checkLeaks() throws InterruptedException {
+        // Messages still queued for finished windows go first, as they would in a live process
+        for (int i = 0; i < DRAIN_FRAMES && Looper.getMainLooper().pending() > 0; i++) {
+            runFrames(1);
+        }
+        for (int i = 0; i < 5; i++) {
+            System.gc();
+            Thread.sleep(20);
+            if (leaked() == 0) {
+                break;
+            }
+        }
+        report.destroyed = destroyed.size();
+        report.leaked = leaked();
+        if (report.leaked > 0) {
+            report.violation(report.leaked + " destroyed activities still reachable");
+        }
+    }
+    
+    private int leaked() {
+        int count = 0;
+        for (WeakReference<SimulatedActivity> ref : destroyed) {
+            if (ref.get() != null) {
+                count++;
+            }
+        }
+        return count;
+    }
+    
+    /**
+     * {@code [activities [seed]]}; the SDK level is the simulator.sdk system property
+     */
+    public static void main(String[] args) throws Throwable {
+        Builder builder = new Builder().configPushes(4);
+        if (args.length > 0) {
+            builder.activities(Integer.parseInt(args[0]));
+        }
+        if (args.length > 1) {
+            builder.seed(Long.parseLong(args[1]));
+        }
+        SimulationReport report = builder.build().run();
+        System.out.print(report.format());
+        System.exit(report.violations().isEmpty() ? 0 : 1);
+    }
+}
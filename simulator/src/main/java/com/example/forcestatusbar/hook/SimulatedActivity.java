@@ -0,0 +1,224 @@
+package com.example.forcestatusbar.hook;
+
+import android.app.Activity;
+import android.app.Dialog;
+import android.content.res.Configuration;
+import android.content.res.Resources;
+import android.graphics.Color;
+import android.graphics.drawable.ColorDrawable;
+import android.os.Build;
+import android.os.Bundle;
+import android.util.DisplayMetrics;
+import android.view.SurfaceView;
+import android.view.View;
+import android.view.ViewGroup;
+import android.view.WindowInsets;
+import android.view.WindowInsetsController;
+import android.view.WindowManager;
+
+/**
+ * An app screen the simulator drives, one of a few kinds that cover what
+ * apps do to the status bar: nothing, draw behind it, hide it once, hide it
+ * on every frame, hide it in a dialog, watch insets themselves, or render a
+ * game surface, right away or once the window is shown.
+ *
+ * The theme color depends only on the theme resource and night mode, as it
+ * does for a real theme, so the module's persisted color cache stays valid.
+ */
+class SimulatedActivity extends Activity {
+    
+    enum Behavior {
+        // Plain content, the module only colors the bar
+        PLAIN,
+        // Draws behind the status bar and makes it transparent
+        EDGE_TO_EDGE,
+        // Hides the status bar once, in onCreate
+        IMMERSIVE,
+        // Hides the status bar again on every frame, whatever the module does
+        FIGHTER,
+        // Shows a full screen dialog on top of plain content
+        DIALOG,
+        // Sets its own insets listener on the content
+        INSETS_LISTENER,
+        // Renders into a SurfaceView
+        GAME,
+        // Shows its window background as a splash and adds its SurfaceView once the window has focus
+        LATE_GAME,
+        // Declares configChanges for rotation and keeps its window across it
+        CONFIG_AWARE
+    }
+    
+    static final int CONTENT_ID = 0x7f0a0001;
+    
+    final Behavior behavior;
+    private int themeResource;
+    private Dialog dialog;
+    private SurfaceView surfaceView;
+    // LATE_GAME content, set on the first focus
+    private ViewGroup lateContent;
+    private int frame;
+    private boolean stopped;
+    
+    SimulatedActivity(Behavior behavior) {
+        this.behavior = behavior;
+    }
+    
+    /**
+     * The color the theme resolves for colorPrimaryDark, colorPrimary and statusBarColor
+     */
+    static int themeColor(int themeResource, int uiMode) {
+        int night = uiMode & Configuration.UI_MODE_NIGHT_MASK;
+        int hash = themeResource * 0x9E3779B1 ^ night * 0x85EBCA6B;
+        return Color.rgb(hash >>> 16 & 0xFF, hash >>> 8 & 0xFF, hash & 0xFF);
+    }
+    
+    int themeResource() {
+        return themeResource;
+    }
+    
+    boolean isStopped() {
+        return stopped;
+    }
+    
+    int themeColor() {
+        return themeColor(themeResource, getResources().getConfiguration().uiMode);
+    }
+    
+    @Override
+    protected void onApplyThemeResource(Resources.Theme theme, int resid, boolean first) {
+        themeResource = resid;
+        int color = themeColor(resid, getResources().getConfiguration().uiMode);
+        theme.setColor(android.R.attr.colorPrimaryDark, color);
+        theme.setColor(android.R.attr.colorPrimary, color);
+        theme.setColor(android.R.attr.statusBarColor, color);
+        theme.setColor(android.R.attr.windowBackground, Color.WHITE);
+    }
+    
+    @Override
+    @SuppressWarnings("deprecation")
+    protected void onCreate(Bundle savedInstanceState) {
+        super.onCreate(savedInstanceState);
+        ViewGroup root = new ViewGroup();
+        root.setId(CONTENT_ID);
+        root.setBackground(new ColorDrawable(Color.WHITE));
+        switch (behavior) {
+            case EDGE_TO_EDGE:
+                if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.R) {
+                    getWindow().setDecorFitsSystemWindows(false);
+                } else {
+                    getWindow().getDecorView().setSystemUiVisibility(
+                        View.SYSTEM_UI_FLAG_LAYOUT_STABLE | View.SYSTEM_UI_FLAG_LAYOUT_FULLSCREEN);
+                }
+                getWindow().setStatusBarColor(Color.TRANSPARENT);
+                break;
+            case IMMERSIVE:
+            case FIGHTER:
+                hideStatusBar();
+                break;
+            case INSETS_LISTENER:
+                root.setOnApplyWindowInsetsListener((v, insets) -> v.onApplyWindowInsets(insets));
+                break;
+            case GAME:
+            case LATE_GAME:
+                getWindow().addFlags(WindowManager.LayoutParams.FLAG_LAYOUT_NO_LIMITS);
+                // Sizes its render target from the display, as engines do
+                getWindowManager().getDefaultDisplay().getMetrics(new DisplayMetrics());
+                surfaceView = new SurfaceView();
+                root.addView(surfaceView);
+                break;
+            default:
+                break;
+        }
+        if (behavior == Behavior.LATE_GAME) {
+            lateContent = root;
+            return;
+        }
+        setContentView(root);
+        if (behavior == Behavior.INSETS_LISTENER) {
+            // Apps commonly watch the content parent too, keeping its default handling
+            findViewById(android.R.id.content).setOnApplyWindowInsetsListener(
+                (v, insets) -> v.onApplyWindowInsets(insets));
+        }
+    }
+    
+    @Override
+    protected void onPostResume() {
+        super.onPostResume();
+        if (behavior == Behavior.DIALOG && dialog == null) {
+            dialog = new Dialog(this);
+            dialog.getWindow().addFlags(WindowManager.LayoutParams.FLAG_FULLSCREEN);
+            dialog.setContentView(new View());
+            dialog.show();
+        }
+    }
+    
+    @Override
+    public void onWindowFocusChanged(boolean hasFocus) {
+        if (hasFocus && lateContent != null) {
+            setContentView(lateContent);
+            lateContent = null;
+        }
+        super.onWindowFocusChanged(hasFocus);
+    }
+    
+    @Override
+    public void onConfigurationChanged(Configuration newConfig) {
+        super.onConfigurationChanged(newConfig);
+        onApplyThemeResource(getTheme(), themeResource, false);
+    }
+    
+    @Override
+    protected void onRestart() {
+        super.onRestart();
+        stopped = false;
+    }
+    
+    @Override
+    protected void onStop() {
+        super.onStop();
+        stopped = true;
+    }
+    
+    @Override
+    protected void onDestroy() {
+        if (dialog != null) {
+            dialog.dismiss();
+            dialog = null;
+        }
+        super.onDestroy();
+    }
+    
+    Dialog dialog() {
+        return dialog;
+    }
+    
+    SurfaceView surfaceView() {
+        return surfaceView;
+    }
+    
+    /**
+     * One vsync while this activity is on top
+     */
+    void onFrame() {
+        frame++;
+        if (behavior == Behavior.FIGHTER) {
+            hideStatusBar();
+        }
+    }
+    
+    @SuppressWarnings("deprecation")
+    private void hideStatusBar() {
+        getWindow().addFlags(WindowManager.LayoutParams.FLAG_FULLSCREEN);
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.R) {
+            WindowInsetsController controller = getWindow().getInsetsController();
+            if (controller != null) {
+                controller.hide(WindowInsets.Type.statusBars() | WindowInsets.Type.navigationBars());
+            }
+        } else {
+            // Alternate the flags so the hierarchy's visibility really changes every frame
+            int low = (frame & 1) != 0 ? View.SYSTEM_UI_FLAG_LOW_PROFILE : 0;
+            getWindow().getDecorView().setSystemUiVisibility(View.SYSTEM_UI_FLAG_FULLSCREEN
+                | View.SYSTEM_UI_FLAG_HIDE_NAVIGATION | View.SYSTEM_UI_FLAG_IMMERSIVE_STICKY | low);
+        }
+    }
+}
@@ -0,0 +1,275 @@
+package com.example.forcestatusbar.hook;
+
+import android.content.Intent;
+import android.view.ViewRootImpl;
+
+import com.example.forcestatusbar.bridge.BridgeProtocol;
+import com.example.forcestatusbar.config.PackageConfig;
+import com.example.forcestatusbar.sim.HookedMethod;
+import com.example.forcestatusbar.sim.WindowServer;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * What a {@link PipelineSimulator} run saw: the decisions of the hooks, the
+ * work they caused in the window system, the time and bytes their callbacks
+ * spent per hooked method, and every check that failed.
+ */
+public final class SimulationReport {
+    
+    private static final int MAX_VIOLATIONS = 20;
+    
+    /**
+     * Window counters of the activities of one kind, summed when their windows are removed
+     */
+    static final class WindowTotals {
+        int launches;
+        long frames;
+        int windows;
+        long traversals;
+        long relayouts;
+        long attributeUpdates;
+        
+        double relayoutsPerWindow() {
+            return windows > 0 ? (double) relayouts / windows : 0;
+        }
+        
+        double attributeUpdatesPerWindow() {
+            return windows > 0 ? (double) attributeUpdates / windows : 0;
+        }
+    }
+    
+    /**
+     * Accounting of one hooked framework method
+     */
+    static final class MethodTotals {
+        final String name;
+        final int callbacks;
+        final long calls;
+        final long ns;
+        final long bytes;
+        
+        MethodTotals(HookedMethod method) {
+            name = method.name();
+            callbacks = method.callbackCount();
+            calls = method.calls();
+            ns = method.callbackNs();
+            bytes = method.callbackBytes();
+        }
+        
+        double nsPerCall() {
+            return calls > 0 ? (double) ns / calls : 0;
+        }
+        
+        /**
+         * -1 when the JVM cannot count allocations
+         */
+        double bytesPerCall() {
+            return bytes < 0 ? -1 : calls > 0 ? (double) bytes / calls : 0;
+        }
+    }
+    
+    int sdk;
+    long seed;
+    PackageConfig config;
+    
+    int activities;
+    long frames;
+    long simulatedNs;
+    long wallNs;
+    int relaunches;
+    int rotations;
+    int nightSwitches;
+    int backgrounds;
+    int configPushes;
+    int checks;
+    int destroyed;
+    int leaked;
+    Intent statsReport;
+    
+    final Map<SimulatedActivity.Behavior, WindowTotals> windows = new EnumMap<>(SimulatedActivity.Behavior.class);
+    
+    // HookStats per BridgeProtocol hook id
+    long[] hookCalls;
+    long[] hookRewrites;
+    long[] hookNs;
+    // {fight-back loops, swallowed calls}
+    long[] fightBacks;
+    // WindowServer.counters()
+    long[] windowServer;
+    final List<MethodTotals> methods = new ArrayList<>();
+    
+    private final List<String> violations = new ArrayList<>();
+    private int violationCount;
+    
+    SimulationReport() {
+        for (SimulatedActivity.Behavior behavior : SimulatedActivity.Behavior.values()) {
+            windows.put(behavior, new WindowTotals());
+        }
+    }
+    
+    void countLaunch(SimulatedActivity.Behavior behavior) {
+        windows.get(behavior).launches++;
+    }
+    
+    void countFrame(SimulatedActivity.Behavior behavior) {
+        windows.get(behavior).frames++;
+    }
+    
+    void countWindow(SimulatedActivity.Behavior behavior, ViewRootImpl root) {
+        WindowTotals totals = windows.get(behavior);
+        totals.windows++;
+        totals.traversals += root.traversals();
+        totals.relayouts += root.relayouts();
+        totals.attributeUpdates += root.attributeUpdates();
+    }
+    
+    void violation(String message) {
+        violationCount++;
+        if (violations.size() < MAX_VIOLATIONS) {
+            violations.add(message);
+        }
+    }
+    
+    /**
+     * Take the module's and the window system's counters at the end of the run
+     */
+    void collect() {
+        hookCalls = HookStats.snapshotCalls();
+        hookRewrites = HookStats.snapshotRewrites();
+        hookNs = HookStats.snapshotTotalNs();
+        fightBacks = FightBackDetector.snapshot();
+        windowServer = WindowServer.counters();
+        for (HookedMethod method : HookedMethod.all()) {
+            if (method.calls() > 0) {
+                methods.add(new MethodTotals(method));
+            }
+        }
+    }
+    
+    /**
+     * The first failed checks, at most {@value #MAX_VIOLATIONS}
+     */
+    public List<String> violations() {
+        return Collections.unmodifiableList(violations);
+    }
+    
+    public int violationCount() {
+        return violationCount;
+    }
+    
+    public int leaked() {
+        return leaked;
+    }
+    
+    public int activities() {
+        return activities;
+    }
+    
+    public long fightBackLoops() {
+        return fightBacks[0];
+    }
+    
+    public long swallowedCalls() {
+        return fightBacks[1];
+    }
+    
+    public long relayouts() {
+        return windowServer[1];
+    }
+    
+    /**
+     * Relayouts per window of the activities that never hide the status bar themselves
+     */
+    public double cooperativeRelayoutsPerWindow() {
+        long relayouts = 0;
+        int count = 0;
+        for (Map.Entry<SimulatedActivity.Behavior, WindowTotals> e : windows.entrySet()) {
+            if (e.getKey() != SimulatedActivity.Behavior.FIGHTER) {
+                relayouts += e.getValue().relayouts;
+                count += e.getValue().windows;
+            }
+        }
+        return count > 0 ? (double) relayouts / count : 0;
+    }
+    
+    /**
+     * Relayouts per frame a fighting activity spent on top
+     */
+    public double fighterRelayoutsPerFrame() {
+        WindowTotals fighter = windows.get(SimulatedActivity.Behavior.FIGHTER);
+        return fighter.frames > 0 ? (double) fighter.relayouts / fighter.frames : 0;
+    }
+    
+    /**
+     * Bytes the callbacks of a hooked method allocate per call, -1 when unknown or never called
+     */
+    public double bytesPerCall(String methodName) {
+        for (MethodTotals method : methods) {
+            if (method.name.equals(methodName)) {
+                return method.bytesPerCall();
+            }
+        }
+        return -1;
+    }
+    
+    public boolean hasStatsReport() {
+        return statsReport != null;
+    }
+    
+    public String format() {
+        StringBuilder sb = new StringBuilder();
+        line(sb, "SDK %d, seed %d, strategy %d, %d activities in %d frames (%.1f s simulated, %.1f s wall)",
+            sdk, seed, config.strategy, activities, frames, simulatedNs / 1e9, wallNs / 1e9);
+        line(sb, "%d relaunches, %d rotations, %d night mode switches, %d trips to the background, "
+            + "%d settings pushes", relaunches, rotations, nightSwitches, backgrounds, configPushes);
+        sb.append('\n');
+        
+        line(sb, "%-16s %8s %9s %8s %11s %11s %12s", "Activity", "launched", "frames", "windows",
+            "traversals", "relayouts", "attr updates");
+        for (Map.Entry<SimulatedActivity.Behavior, WindowTotals> e : windows.entrySet()) {
+            WindowTotals t = e.getValue();
+            line(sb, "%-16s %8d %9d %8d %11d %11d %12d", e.getKey(), t.launches, t.frames, t.windows,
+                t.traversals, t.relayouts, t.attributeUpdates);
+        }
+        line(sb, "Relayouts per window %.2f (cooperative apps), per frame on top %.3f (fighters)",
+            cooperativeRelayoutsPerWindow(), fighterRelayoutsPerFrame());
+        line(sb, "Window server: %d attribute updates, %d relayouts, %d visibility requests, %d traversals, "
+            + "%d layout passes", windowServer[0], windowServer[1], windowServer[2], windowServer[3],
+            windowServer[4]);
+        sb.append('\n');
+        
+        line(sb, "%-24s %10s %10s %10s", "Decision", "calls", "rewrites", "ns/call");
+        for (int hook = 0; hook < BridgeProtocol.HOOK_COUNT; hook++) {
+            if (hookCalls[hook] > 0) {
+                line(sb, "%-24s %10d %10d %10.0f", BridgeProtocol.HOOK_NAMES[hook], hookCalls[hook],
+                    hookRewrites[hook], (double) hookNs[hook] / hookCalls[hook]);
+            }
+        }
+        line(sb, "Fight-back loops %d, swallowed calls %d", fightBacks[0], fightBacks[1]);
+        sb.append('\n');
+        
+        line(sb, "%-40s %4s %10s %10s %10s", "Hooked method", "cbs", "calls", "ns/call", "bytes/call");
+        for (MethodTotals method : methods) {
+            line(sb, "%-40s %4d %10d %10.0f %10.1f", method.name, method.callbacks, method.calls,
+                method.nsPerCall(), method.bytesPerCall());
+        }
+        sb.append('\n');
+        
+        line(sb, "%d checks, %d failed; %d activities destroyed, %d still reachable; statistics report %s",
+            checks, violationCount, destroyed, leaked, statsReport != null ? "received" : "missing");
+        for (String violation : violations) {
+            line(sb, "  %s", violation);
+        }
+        return sb.toString();
+    }
+    
+    private static void line(StringBuilder sb, String format, Object... args) {
+        sb.append(String.format(Locale.ROOT, format, args)).append('\n');
+    }
+}
@@ -0,0 +1,42 @@
+package com.example.forcestatusbar.hook;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import android.os.Build;
+
+import org.junit.Test;
+
+/**
+ * Android 10: system UI visibility is enforced in ViewRootImpl.collectViewAttributes
+ * and the default strategy is fitsSystemWindows.
+ */
+public class LegacyPipelineSimulatorTest {
+    
+    static {
+        // Before anything reads Build; the test runs in a JVM of its own
+        System.setProperty("simulator.sdk", "29");
+    }
+    
+    @Test
+    public void keepsStatusBarAcrossLoad() throws Throwable {
+        assertEquals(Build.VERSION_CODES.Q, Build.VERSION.SDK_INT);
+        SimulationReport report = new PipelineSimulator.Builder()
+            .activities(2000)
+            .seed(7)
+            .configPushes(4)
+            .build()
+            .run();
+        String details = report.format();
+        
+        assertTrue(details, report.violations().isEmpty());
+        assertEquals(details, 0, report.leaked());
+        assertTrue(details, report.fightBackLoops() > 0);
+        // A fighter that changes its visibility every frame relayouts every frame, the module adds none
+        assertTrue(details, report.fighterRelayoutsPerFrame() < 1.5);
+        assertTrue(details, report.cooperativeRelayoutsPerWindow() < 2);
+        
+        PipelineSimulatorTest.assertAllocatesAtMost(report, "ViewRootImpl.collectViewAttributes", 64);
+        PipelineSimulatorTest.assertAllocatesAtMost(report, "Window.addFlags", 64);
+    }
+}
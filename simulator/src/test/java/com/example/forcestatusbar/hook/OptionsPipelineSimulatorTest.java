@@ -0,0 +1,35 @@
+package com.example.forcestatusbar.hook;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import com.example.forcestatusbar.config.PackageConfig;
+
+import org.junit.Test;
+
+/**
+ * Every optional feature on: frame monitor, display metrics and touch
+ * compensation, surface-safe layout, color sampling and the call trace.
+ */
+public class OptionsPipelineSimulatorTest {
+    
+    @Test
+    public void keepsStatusBarWithEveryOption() throws Throwable {
+        PackageConfig config = new PackageConfig(PipelineSimulator.PACKAGE_NAME, true,
+            PackageConfig.STRATEGY_PADDING, PackageConfig.COLOR_THEME, false,
+            true, true, true, true, true, true);
+        SimulationReport report = new PipelineSimulator.Builder()
+            .activities(1000)
+            .seed(3)
+            .config(config)
+            .configPushes(2)
+            .build()
+            .run();
+        String details = report.format();
+        
+        assertTrue(details, report.violations().isEmpty());
+        // Color samplers and frame listeners must not outlive their windows
+        assertEquals(details, 0, report.leaked());
+        PipelineSimulatorTest.assertAllocatesAtMost(report, "View.dispatchPointerEvent", 64);
+    }
+}
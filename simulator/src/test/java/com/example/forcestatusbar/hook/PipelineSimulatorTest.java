@@ -0,0 +1,48 @@
+package com.example.forcestatusbar.hook;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+/**
+ * Android 14, an unconfigured package: two thousand activities, a fifth of
+ * them hiding the status bar, with settings pushed while they run.
+ */
+public class PipelineSimulatorTest {
+    
+    @Test
+    public void keepsStatusBarAcrossLoad() throws Throwable {
+        SimulationReport report = new PipelineSimulator.Builder()
+            .activities(2000)
+            .seed(42)
+            .configPushes(4)
+            .build()
+            .run();
+        String details = report.format();
+        
+        assertEquals(details, 2000, report.activities());
+        assertTrue(details, report.violations().isEmpty());
+        assertEquals(details, 0, report.leaked());
+        assertTrue(details, report.hasStatsReport());
+        
+        // Fighting apps are detected and their calls swallowed instead of relaying out every frame
+        assertTrue(details, report.fightBackLoops() > 0);
+        assertTrue(details, report.swallowedCalls() > 0);
+        assertTrue(details, report.fighterRelayoutsPerFrame() < 0.5);
+        // Everyone else: the first layout, plus about one per rotation or return
+        assertTrue(details, report.cooperativeRelayoutsPerWindow() < 2);
+        
+        // Per-call hooks only box their rewritten arguments, if anything
+        assertAllocatesAtMost(report, "Window.setFlags", 64);
+        assertAllocatesAtMost(report, "Window.addFlags", 64);
+        assertAllocatesAtMost(report, "InsetsController.hide", 64);
+        assertAllocatesAtMost(report, "PhoneWindow.setStatusBarColor", 64);
+        assertAllocatesAtMost(report, "Activity.onWindowFocusChanged", 128);
+    }
+    
+    static void assertAllocatesAtMost(SimulationReport report, String method, double bytes) {
+        double perCall = report.bytesPerCall(method);
+        assertTrue(method + " allocates " + perCall + " bytes per call\n" + report.format(), perCall <= bytes);
+    }
+}
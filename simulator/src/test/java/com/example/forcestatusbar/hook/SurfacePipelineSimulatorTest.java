@@ -0,0 +1,37 @@
+package com.example.forcestatusbar.hook;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import com.example.forcestatusbar.config.PackageConfig;
+
+import org.junit.Test;
+
+/**
+ * Surface-safe mode on games only: windows with FLAG_LAYOUT_NO_LIMITS whose
+ * SurfaceView is there before the window is added, or only once it has focus.
+ */
+public class SurfacePipelineSimulatorTest {
+    
+    @Test
+    public void fitsSurfaceWindowsBelowStatusBar() throws Throwable {
+        PackageConfig config = new PackageConfig(PipelineSimulator.PACKAGE_NAME, true,
+            PackageConfig.STRATEGY_PADDING, PackageConfig.COLOR_THEME, false,
+            false, false, false, true, false, false);
+        PipelineSimulator.Builder builder = new PipelineSimulator.Builder()
+            .activities(500)
+            .seed(11)
+            .config(config)
+            .configPushes(2);
+        for (SimulatedActivity.Behavior behavior : SimulatedActivity.Behavior.values()) {
+            boolean game = behavior == SimulatedActivity.Behavior.GAME
+                || behavior == SimulatedActivity.Behavior.LATE_GAME;
+            builder.weight(behavior, game ? 1 : 0);
+        }
+        SimulationReport report = builder.build().run();
+        String details = report.format();
+        
+        assertTrue(details, report.violations().isEmpty());
+        assertEquals(details, 0, report.leaked());
+    }
+}
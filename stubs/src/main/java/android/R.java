@@ -0,0 +1,18 @@
+package android;
+
+public final class R {
+    
+    private R() {
+    }
+    
+    public static final class id {
+        public static final int content = 0x01020002;
+    }
+    
+    public static final class attr {
+        public static final int colorPrimary = 0x01010433;
+        public static final int colorPrimaryDark = 0x01010434;
+        public static final int statusBarColor = 0x01010451;
+        public static final int windowBackground = 0x01010054;
+    }
+}
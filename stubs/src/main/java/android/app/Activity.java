@@ -0,0 +1,167 @@
+package android.app;
+
+import android.content.ComponentName;
+import android.content.Context;
+import android.content.ContextWrapper;
+import android.content.res.Configuration;
+import android.content.res.Resources;
+import android.os.Bundle;
+import android.view.View;
+import android.view.Window;
+import android.view.WindowManager;
+import android.view.WindowManagerImpl;
+
+import com.android.internal.policy.PhoneWindow;
+import com.example.forcestatusbar.sim.HookedMethod;
+
+/**
+ * An activity and its window. The lifecycle methods the module hooks run
+ * their hooks when a subclass calls through to them with super, as on a
+ * device; {@link ActivityThread} drives the lifecycle.
+ */
+public class Activity extends ContextWrapper implements Window.Callback {
+    
+    private static final HookedMethod ON_CREATE = HookedMethod.of(Activity.class, "onCreate", Bundle.class);
+    private static final HookedMethod ON_RESUME = HookedMethod.of(Activity.class, "onResume");
+    private static final HookedMethod ON_POST_RESUME = HookedMethod.of(Activity.class, "onPostResume");
+    private static final HookedMethod ON_WINDOW_FOCUS_CHANGED =
+        HookedMethod.of(Activity.class, "onWindowFocusChanged", boolean.class);
+    private static final HookedMethod ON_CONFIGURATION_CHANGED =
+        HookedMethod.of(Activity.class, "onConfigurationChanged", Configuration.class);
+    
+    // Read by reflection, as ContextThemeWrapper's field on a device
+    int mThemeResource;
+    
+    private Application mApplication;
+    private ComponentName mComponent;
+    private Resources mResources;
+    private Resources.Theme mTheme;
+    private PhoneWindow mWindow;
+    private WindowManager mWindowManager;
+    View mDecor;
+    private boolean mFinished;
+    private boolean mDestroyed;
+    
+    public Activity() {
+        super(null);
+    }
+    
+    final void attach(Context base, Application application, ComponentName component, int themeResource) {
+        attachBaseContext(base);
+        mApplication = application;
+        mComponent = component;
+        mThemeResource = themeResource;
+        mResources = new Resources();
+        mResources.updateConfiguration(base.getResources().getConfiguration(), null);
+        mTheme = mResources.newTheme();
+        onApplyThemeResource(mTheme, themeResource, true);
+        mWindow = new PhoneWindow(this);
+        mWindow.setCallback(this);
+        mWindowManager = new WindowManagerImpl();
+        mWindow.setWindowManager(mWindowManager);
+    }
+    
+    /**
+     * Fill the theme's attributes; the simulated apps set their colors here
+     */
+    protected void onApplyThemeResource(Resources.Theme theme, int resid, boolean first) {
+    }
+    
+    public final Application getApplication() {
+        return mApplication;
+    }
+    
+    public ComponentName getComponentName() {
+        return mComponent;
+    }
+    
+    @Override
+    public Resources getResources() {
+        return mResources;
+    }
+    
+    @Override
+    public Resources.Theme getTheme() {
+        return mTheme;
+    }
+    
+    public Window getWindow() {
+        return mWindow;
+    }
+    
+    public WindowManager getWindowManager() {
+        return mWindowManager;
+    }
+    
+    public void setContentView(View view) {
+        mWindow.setContentView(view);
+    }
+    
+    public <T extends View> T findViewById(int id) {
+        return mWindow.getDecorView().findViewById(id);
+    }
+    
+    final void performCreate(Bundle icicle) {
+        onCreate(icicle);
+    }
+    
+    protected void onCreate(Bundle savedInstanceState) {
+        ON_CREATE.invoke(this, (self, args) -> null, savedInstanceState);
+    }
+    
+    protected void onStart() {
+    }
+    
+    protected void onRestart() {
+    }
+    
+    protected void onResume() {
+        ON_RESUME.invoke(this, (self, args) -> null);
+    }
+    
+    protected void onPostResume() {
+        ON_POST_RESUME.invoke(this, (self, args) -> null);
+    }
+    
+    protected void onPause() {
+    }
+    
+    protected void onStop() {
+    }
+    
+    protected void onDestroy() {
+    }
+    
+    public void onConfigurationChanged(Configuration newConfig) {
+        ON_CONFIGURATION_CHANGED.invoke(this, (self, args) -> null, newConfig);
+    }
+    
+    @Override
+    public void onWindowFocusChanged(boolean hasFocus) {
+        ON_WINDOW_FOCUS_CHANGED.invoke(this, (self, args) -> null, hasFocus);
+    }
+    
+    @Override
+    public void onWindowAttributesChanged(WindowManager.LayoutParams params) {
+        // Only an added window goes to the window manager; before that the attributes travel with addView
+        if (mDecor != null && mDecor.getParent() != null) {
+            mWindowManager.updateViewLayout(mDecor, params);
+        }
+    }
+    
+    public void finish() {
+        mFinished = true;
+    }
+    
+    public boolean isFinishing() {
+        return mFinished;
+    }
+    
+    public boolean isDestroyed() {
+        return mDestroyed;
+    }
+    
+    final void setDestroyed() {
+        mDestroyed = true;
+    }
+}
@@ -0,0 +1,146 @@
+package android.app;
+
+import android.content.ComponentName;
+import android.content.res.Configuration;
+import android.os.Bundle;
+import android.util.DisplayMetrics;
+import android.view.View;
+import android.view.WindowManager;
+
+import com.example.forcestatusbar.sim.WindowServer;
+
+import java.io.File;
+
+/**
+ * The main thread of the simulated app process: creates the Application and
+ * takes activities through their lifecycle in the order the framework's
+ * ActivityThread does. Activity windows are added on their first resume, as
+ * base application windows.
+ */
+public final class ActivityThread {
+    
+    private static ActivityThread sCurrentActivityThread;
+    
+    private final ContextImpl mSystemContext;
+    private final Application mInitialApplication;
+    private final Instrumentation mInstrumentation = new Instrumentation();
+    private final Configuration mConfiguration;
+    
+    private ActivityThread(String packageName, File dataDir) {
+        mSystemContext = new ContextImpl(packageName, dataDir);
+        mInitialApplication = new Application(mSystemContext);
+        mConfiguration = new Configuration(mSystemContext.getResources().getConfiguration());
+    }
+    
+    /**
+     * Start the process; the simulated process has a single main thread at a time
+     */
+    public static ActivityThread create(String packageName, File dataDir) {
+        sCurrentActivityThread = new ActivityThread(packageName, dataDir);
+        return sCurrentActivityThread;
+    }
+    
+    public static ActivityThread currentActivityThread() {
+        return sCurrentActivityThread;
+    }
+    
+    public static Application currentApplication() {
+        ActivityThread am = currentActivityThread();
+        return am != null ? am.mInitialApplication : null;
+    }
+    
+    public Application getApplication() {
+        return mInitialApplication;
+    }
+    
+    public Instrumentation getInstrumentation() {
+        return mInstrumentation;
+    }
+    
+    /**
+     * Attach, create and start the activity
+     */
+    public <T extends Activity> T launch(T activity, int themeResource, Bundle savedInstanceState) {
+        ComponentName component = new ComponentName(mSystemContext.getPackageName(), activity.getClass().getName());
+        activity.attach(mSystemContext, mInitialApplication, component, themeResource);
+        mInstrumentation.callActivityOnCreate(activity, savedInstanceState);
+        activity.onStart();
+        return activity;
+    }
+    
+    /**
+     * Resume the activity; the first resume adds its window
+     */
+    public void resume(Activity activity) {
+        mInstrumentation.callActivityOnResume(activity);
+        activity.onPostResume();
+        if (activity.mDecor == null && !activity.isFinishing()) {
+            View decor = activity.getWindow().getDecorView();
+            WindowManager.LayoutParams l = activity.getWindow().getAttributes();
+            l.type = WindowManager.LayoutParams.TYPE_BASE_APPLICATION;
+            activity.mDecor = decor;
+            activity.getWindowManager().addView(decor, l);
+        } else if (activity.mDecor != null) {
+            activity.mDecor.setVisibility(View.VISIBLE);
+        }
+    }
+    
+    /**
+     * The window gained or lost input focus; the view root tells the window callback
+     */
+    public void focus(Activity activity, boolean hasFocus) {
+        activity.getWindow().getCallback().onWindowFocusChanged(hasFocus);
+    }
+    
+    public void pause(Activity activity) {
+        activity.onPause();
+    }
+    
+    public void stop(Activity activity) {
+        activity.onStop();
+        if (activity.mDecor != null) {
+            activity.mDecor.setVisibility(View.INVISIBLE);
+        }
+    }
+    
+    public void restart(Activity activity) {
+        activity.onRestart();
+        activity.onStart();
+    }
+    
+    /**
+     * Destroy the activity and remove its window
+     */
+    public void destroy(Activity activity) {
+        activity.onDestroy();
+        if (activity.mDecor != null) {
+            activity.getWindowManager().removeViewImmediate(activity.mDecor);
+            activity.mDecor = null;
+        }
+        activity.setDestroyed();
+    }
+    
+    /**
+     * A configuration change the activity handles itself (declared in configChanges)
+     */
+    public void configurationChanged(Activity activity, Configuration newConfig) {
+        DisplayMetrics metrics = new DisplayMetrics();
+        WindowServer.fillMetrics(metrics);
+        activity.getResources().updateConfiguration(newConfig, metrics);
+        activity.onConfigurationChanged(newConfig);
+    }
+    
+    /**
+     * The process configuration changed; activities launched from now on start with it
+     */
+    public void applyConfiguration(Configuration newConfig) {
+        DisplayMetrics metrics = new DisplayMetrics();
+        WindowServer.fillMetrics(metrics);
+        mConfiguration.setTo(newConfig);
+        mSystemContext.getResources().updateConfiguration(newConfig, metrics);
+    }
+    
+    public Configuration getConfiguration() {
+        return mConfiguration;
+    }
+}
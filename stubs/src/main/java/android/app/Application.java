@@ -0,0 +1,47 @@
+package android.app;
+
+import android.content.ContextWrapper;
+import android.content.Intent;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The application of the simulated process
+ */
+public class Application extends ContextWrapper {
+    
+    Application(ContextImpl base) {
+        super(base);
+        base.setOuterContext(this);
+    }
+    
+    private ContextImpl impl() {
+        return (ContextImpl) getBaseContext();
+    }
+    
+    /**
+     * Every broadcast the process sent, in order
+     */
+    public List<Intent> sentBroadcasts() {
+        return new ArrayList<>(impl().sentBroadcasts());
+    }
+    
+    /**
+     * Permission receivers of a sent broadcast must hold, null for none
+     */
+    public String receiverPermission(Intent sent) {
+        return impl().receiverPermission(sent);
+    }
+    
+    public int registeredReceiverCount() {
+        return impl().receiverCount();
+    }
+    
+    /**
+     * The display was rotated or resized, tell the display listeners of the process
+     */
+    public void notifyDisplayChanged(int displayId) {
+        impl().displayManager().notifyDisplayChanged(displayId);
+    }
+}
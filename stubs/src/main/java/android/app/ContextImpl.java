@@ -0,0 +1,167 @@
+package android.app;
+
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
+import android.content.SharedPreferences;
+import android.content.pm.PackageManager;
+import android.content.res.Resources;
+import android.hardware.display.DisplayManager;
+import android.os.Handler;
+
+import com.example.forcestatusbar.sim.MemoryPreferences;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The process-wide context behind the Application and every Activity:
+ * preferences, cache directory, broadcast receivers and system services.
+ */
+class ContextImpl extends Context {
+    
+    private static final class ReceiverRecord {
+        final BroadcastReceiver receiver;
+        final IntentFilter filter;
+        final Handler handler;
+        
+        ReceiverRecord(BroadcastReceiver receiver, IntentFilter filter, Handler handler) {
+            this.receiver = receiver;
+            this.filter = filter;
+            this.handler = handler;
+        }
+    }
+    
+    private final String packageName;
+    private final File dataDir;
+    private final Resources resources = new Resources();
+    private final Resources.Theme theme = resources.newTheme();
+    private final Map<String, MemoryPreferences> preferences = new HashMap<>();
+    private final List<ReceiverRecord> receivers = new ArrayList<>();
+    private final List<Intent> sent = new ArrayList<>();
+    private final Map<Intent, String> receiverPermissions = new IdentityHashMap<>();
+    private final DisplayManager displayManager = new DisplayManager();
+    private final PackageManager packageManager;
+    private Context outerContext;
+    
+    ContextImpl(String packageName, File dataDir) {
+        this.packageName = packageName;
+        this.dataDir = dataDir;
+        // Installed right before the process started
+        this.packageManager = new PackageManager(packageName, System.currentTimeMillis());
+    }
+    
+    void setOuterContext(Context context) {
+        outerContext = context;
+    }
+    
+    @Override
+    public Context getApplicationContext() {
+        return outerContext;
+    }
+    
+    @Override
+    public String getPackageName() {
+        return packageName;
+    }
+    
+    @Override
+    public PackageManager getPackageManager() {
+        return packageManager;
+    }
+    
+    @Override
+    public Resources getResources() {
+        return resources;
+    }
+    
+    @Override
+    public Resources.Theme getTheme() {
+        return theme;
+    }
+    
+    @Override
+    public SharedPreferences getSharedPreferences(String name, int mode) {
+        MemoryPreferences prefs = preferences.get(name);
+        if (prefs == null) {
+            prefs = new MemoryPreferences();
+            preferences.put(name, prefs);
+        }
+        return prefs;
+    }
+    
+    @Override
+    public File getCacheDir() {
+        File cache = new File(dataDir, "cache");
+        if (!cache.isDirectory() && !cache.mkdirs()) {
+            return null;
+        }
+        return cache;
+    }
+    
+    @Override
+    public Object getSystemService(String name) {
+        return DISPLAY_SERVICE.equals(name) ? displayManager : null;
+    }
+    
+    @Override
+    public Intent registerReceiver(BroadcastReceiver receiver, IntentFilter filter, String broadcastPermission,
+            Handler scheduler, int flags) {
+        receivers.add(new ReceiverRecord(receiver, filter, scheduler != null ? scheduler : new Handler()));
+        return null;
+    }
+    
+    @Override
+    public void unregisterReceiver(BroadcastReceiver receiver) {
+        if (!receivers.removeIf(record -> record.receiver == receiver)) {
+            throw new IllegalArgumentException("Receiver not registered: " + receiver);
+        }
+    }
+    
+    @Override
+    public void sendBroadcast(Intent intent) {
+        sendBroadcast(intent, null);
+    }
+    
+    /**
+     * Delivered to the receivers of this process on their handlers, unless it needs a permission, which
+     * the simulated app holds none of; all broadcasts are kept for the simulator
+     */
+    @Override
+    public void sendBroadcast(Intent intent, String receiverPermission) {
+        sent.add(intent);
+        if (receiverPermission != null) {
+            receiverPermissions.put(intent, receiverPermission);
+            return;
+        }
+        if (intent.getPackage() != null && !intent.getPackage().equals(packageName)) {
+            return;
+        }
+        for (ReceiverRecord record : receivers) {
+            if (record.filter.hasAction(intent.getAction())) {
+                record.handler.post(() -> record.receiver.onReceive(outerContext, intent));
+            }
+        }
+    }
+    
+    List<Intent> sentBroadcasts() {
+        return sent;
+    }
+    
+    String receiverPermission(Intent sent) {
+        return receiverPermissions.get(sent);
+    }
+    
+    int receiverCount() {
+        return receivers.size();
+    }
+    
+    DisplayManager displayManager() {
+        return displayManager;
+    }
+}
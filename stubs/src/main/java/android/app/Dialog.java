@@ -0,0 +1,89 @@
+package android.app;
+
+import android.content.Context;
+import android.os.Bundle;
+import android.view.View;
+import android.view.ViewGroup;
+import android.view.Window;
+import android.view.WindowManager;
+import android.view.WindowManagerImpl;
+
+import com.android.internal.policy.PhoneWindow;
+
+/**
+ * A floating window of its own, usually on its Activity's context
+ */
+public class Dialog implements Window.Callback {
+    
+    private final Context mContext;
+    private final WindowManager mWindowManager;
+    private final Window mWindow;
+    private View mDecor;
+    private boolean mCreated;
+    private boolean mShowing;
+    
+    public Dialog(Context context) {
+        mContext = context;
+        mWindowManager = context instanceof Activity
+            ? ((Activity) context).getWindowManager() : new WindowManagerImpl();
+        mWindow = new PhoneWindow(context);
+        mWindow.setCallback(this);
+        mWindow.setWindowManager(mWindowManager);
+        // A floating theme: the window wraps its content
+        WindowManager.LayoutParams attrs = mWindow.getAttributes();
+        attrs.width = ViewGroup.LayoutParams.WRAP_CONTENT;
+        attrs.height = ViewGroup.LayoutParams.WRAP_CONTENT;
+    }
+    
+    public final Context getContext() {
+        return mContext;
+    }
+    
+    public Window getWindow() {
+        return mWindow;
+    }
+    
+    protected void onCreate(Bundle savedInstanceState) {
+    }
+    
+    public void setContentView(View view) {
+        mWindow.setContentView(view);
+    }
+    
+    public boolean isShowing() {
+        return mShowing;
+    }
+    
+    public void show() {
+        if (mShowing) {
+            return;
+        }
+        if (!mCreated) {
+            onCreate(null);
+            mCreated = true;
+        }
+        mDecor = mWindow.getDecorView();
+        mWindowManager.addView(mDecor, mWindow.getAttributes());
+        mShowing = true;
+    }
+    
+    public void dismiss() {
+        if (!mShowing) {
+            return;
+        }
+        mWindowManager.removeViewImmediate(mDecor);
+        mDecor = null;
+        mShowing = false;
+    }
+    
+    @Override
+    public void onWindowAttributesChanged(WindowManager.LayoutParams params) {
+        if (mDecor != null) {
+            mWindowManager.updateViewLayout(mDecor, params);
+        }
+    }
+    
+    @Override
+    public void onWindowFocusChanged(boolean hasFocus) {
+    }
+}
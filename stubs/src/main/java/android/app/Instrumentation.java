@@ -0,0 +1,25 @@
+package android.app;
+
+import android.os.Bundle;
+
+import com.example.forcestatusbar.sim.HookedMethod;
+
+/**
+ * Calls the lifecycle methods of activities for the activity thread
+ */
+public class Instrumentation {
+    
+    private static final HookedMethod CALL_ACTIVITY_ON_CREATE =
+        HookedMethod.of(Instrumentation.class, "callActivityOnCreate", Activity.class, Bundle.class);
+    
+    public void callActivityOnCreate(Activity activity, Bundle icicle) {
+        CALL_ACTIVITY_ON_CREATE.invoke(this, (self, args) -> {
+            ((Activity) args[0]).performCreate((Bundle) args[1]);
+            return null;
+        }, activity, icicle);
+    }
+    
+    public void callActivityOnResume(Activity activity) {
+        activity.onResume();
+    }
+}
@@ -0,0 +1,7 @@
+package android.app;
+
+/**
+ * An activity whose native code renders straight into the window surface
+ */
+public class NativeActivity extends Activity {
+}
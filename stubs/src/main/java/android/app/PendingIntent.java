@@ -0,0 +1,27 @@
+package android.app;
+
+import android.content.Context;
+import android.content.Intent;
+import android.os.Parcelable;
+
+/**
+ * A token for an intent, remembering the package that created it
+ */
+public final class PendingIntent implements Parcelable {
+    
+    public static final int FLAG_IMMUTABLE = 1 << 26;
+    
+    private final String creatorPackage;
+    
+    private PendingIntent(String creatorPackage) {
+        this.creatorPackage = creatorPackage;
+    }
+    
+    public static PendingIntent getBroadcast(Context context, int requestCode, Intent intent, int flags) {
+        return new PendingIntent(context.getPackageName());
+    }
+    
+    public String getCreatorPackage() {
+        return creatorPackage;
+    }
+}
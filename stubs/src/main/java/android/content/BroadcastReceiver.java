@@ -0,0 +1,9 @@
+package android.content;
+
+/**
+ * Receives the broadcasts it was registered for, on the main looper
+ */
+public abstract class BroadcastReceiver {
+    
+    public abstract void onReceive(Context context, Intent intent);
+}
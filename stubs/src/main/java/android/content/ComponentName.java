@@ -0,0 +1,31 @@
+package android.content;
+
+/**
+ * Package and class of an app component
+ */
+public final class ComponentName {
+    
+    private final String packageName;
+    private final String className;
+    
+    public ComponentName(String packageName, String className) {
+        this.packageName = packageName;
+        this.className = className;
+    }
+    
+    public String getPackageName() {
+        return packageName;
+    }
+    
+    public String getClassName() {
+        return className;
+    }
+    
+    public String flattenToShortString() {
+        if (className.startsWith(packageName) && className.length() > packageName.length()
+                && className.charAt(packageName.length()) == '.') {
+            return packageName + "/" + className.substring(packageName.length());
+        }
+        return packageName + "/" + className;
+    }
+}
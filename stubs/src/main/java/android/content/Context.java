@@ -0,0 +1,69 @@
+package android.content;
+
+import android.content.pm.PackageManager;
+import android.content.res.Resources;
+import android.content.res.TypedArray;
+import android.os.Handler;
+
+import java.io.File;
+
+/**
+ * Context of the simulated app, the subset the module and the simulated apps use
+ */
+public abstract class Context {
+    
+    public static final int MODE_PRIVATE = 0;
+    public static final int RECEIVER_EXPORTED = 0x2;
+    public static final int RECEIVER_NOT_EXPORTED = 0x4;
+    
+    public static final String DISPLAY_SERVICE = "display";
+    
+    public abstract Context getApplicationContext();
+    
+    public abstract String getPackageName();
+    
+    public abstract PackageManager getPackageManager();
+    
+    public abstract Resources getResources();
+    
+    public abstract Resources.Theme getTheme();
+    
+    public abstract SharedPreferences getSharedPreferences(String name, int mode);
+    
+    public abstract File getCacheDir();
+    
+    public abstract Object getSystemService(String name);
+    
+    public abstract Intent registerReceiver(BroadcastReceiver receiver, IntentFilter filter,
+            String broadcastPermission, Handler scheduler, int flags);
+    
+    public abstract void unregisterReceiver(BroadcastReceiver receiver);
+    
+    public abstract void sendBroadcast(Intent intent);
+    
+    public abstract void sendBroadcast(Intent intent, String receiverPermission);
+    
+    public Intent registerReceiver(BroadcastReceiver receiver, IntentFilter filter) {
+        return registerReceiver(receiver, filter, null, null, 0);
+    }
+    
+    public Intent registerReceiver(BroadcastReceiver receiver, IntentFilter filter, int flags) {
+        return registerReceiver(receiver, filter, null, null, flags);
+    }
+    
+    public Intent registerReceiver(BroadcastReceiver receiver, IntentFilter filter, String broadcastPermission,
+            Handler scheduler) {
+        return registerReceiver(receiver, filter, broadcastPermission, scheduler, 0);
+    }
+    
+    public final <T> T getSystemService(Class<T> serviceClass) {
+        if (serviceClass == android.hardware.display.DisplayManager.class) {
+            return serviceClass.cast(getSystemService(DISPLAY_SERVICE));
+        }
+        return null;
+    }
+    
+    public final TypedArray obtainStyledAttributes(int[] attrs) {
+        return getTheme().obtainStyledAttributes(attrs);
+    }
+}
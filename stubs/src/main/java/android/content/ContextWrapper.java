@@ -0,0 +1,91 @@
+package android.content;
+
+import android.content.pm.PackageManager;
+import android.content.res.Resources;
+import android.os.Handler;
+
+import java.io.File;
+
+/**
+ * Context that hands everything to its base context
+ */
+public class ContextWrapper extends Context {
+    
+    private Context mBase;
+    
+    public ContextWrapper(Context base) {
+        mBase = base;
+    }
+    
+    protected void attachBaseContext(Context base) {
+        if (mBase != null) {
+            throw new IllegalStateException("Base context already set");
+        }
+        mBase = base;
+    }
+    
+    public Context getBaseContext() {
+        return mBase;
+    }
+    
+    @Override
+    public Context getApplicationContext() {
+        return mBase.getApplicationContext();
+    }
+    
+    @Override
+    public String getPackageName() {
+        return mBase.getPackageName();
+    }
+    
+    @Override
+    public PackageManager getPackageManager() {
+        return mBase.getPackageManager();
+    }
+    
+    @Override
+    public Resources getResources() {
+        return mBase.getResources();
+    }
+    
+    @Override
+    public Resources.Theme getTheme() {
+        return mBase.getTheme();
+    }
+    
+    @Override
+    public SharedPreferences getSharedPreferences(String name, int mode) {
+        return mBase.getSharedPreferences(name, mode);
+    }
+    
+    @Override
+    public File getCacheDir() {
+        return mBase.getCacheDir();
+    }
+    
+    @Override
+    public Object getSystemService(String name) {
+        return mBase.getSystemService(name);
+    }
+    
+    @Override
+    public Intent registerReceiver(BroadcastReceiver receiver, IntentFilter filter, String broadcastPermission,
+            Handler scheduler, int flags) {
+        return mBase.registerReceiver(receiver, filter, broadcastPermission, scheduler, flags);
+    }
+    
+    @Override
+    public void unregisterReceiver(BroadcastReceiver receiver) {
+        mBase.unregisterReceiver(receiver);
+    }
+    
+    @Override
+    public void sendBroadcast(Intent intent) {
+        mBase.sendBroadcast(intent);
+    }
+    
+    @Override
+    public void sendBroadcast(Intent intent, String receiverPermission) {
+        mBase.sendBroadcast(intent, receiverPermission);
+    }
+}
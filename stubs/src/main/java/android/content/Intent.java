@@ -0,0 +1,77 @@
+package android.content;
+
+import android.os.Bundle;
+import android.os.Parcelable;
+
+/**
+ * An action with extras, the subset broadcasts between the module and hooked processes use
+ */
+public class Intent {
+    
+    private final String action;
+    private final Bundle extras = new Bundle();
+    private String packageName;
+    
+    public Intent(String action) {
+        this.action = action;
+    }
+    
+    public String getAction() {
+        return action;
+    }
+    
+    public Intent setPackage(String packageName) {
+        this.packageName = packageName;
+        return this;
+    }
+    
+    public String getPackage() {
+        return packageName;
+    }
+    
+    public Intent putExtra(String name, String value) {
+        extras.putString(name, value);
+        return this;
+    }
+    
+    public Intent putExtra(String name, long value) {
+        extras.putLong(name, value);
+        return this;
+    }
+    
+    public Intent putExtra(String name, long[] value) {
+        extras.putLongArray(name, value);
+        return this;
+    }
+    
+    public Intent putExtra(String name, Bundle value) {
+        extras.putBundle(name, value);
+        return this;
+    }
+    
+    public Intent putExtra(String name, Parcelable value) {
+        extras.putParcelable(name, value);
+        return this;
+    }
+    
+    public String getStringExtra(String name) {
+        return extras.getString(name);
+    }
+    
+    public long getLongExtra(String name, long defaultValue) {
+        return extras.getLong(name, defaultValue);
+    }
+    
+    public long[] getLongArrayExtra(String name) {
+        return extras.getLongArray(name);
+    }
+    
+    public Bundle getBundleExtra(String name) {
+        return extras.getBundle(name);
+    }
+    
+    @SuppressWarnings("unchecked")
+    public <T extends Parcelable> T getParcelableExtra(String name) {
+        return (T) extras.getParcelable(name);
+    }
+}
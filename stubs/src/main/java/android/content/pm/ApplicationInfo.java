@@ -0,0 +1,11 @@
+package android.content.pm;
+
+/**
+ * Install information of the simulated app
+ */
+public class ApplicationInfo {
+    
+    public String packageName;
+    public String processName;
+    public String dataDir;
+}
@@ -0,0 +1,10 @@
+package android.content.pm;
+
+/**
+ * Install record of the simulated app
+ */
+public class PackageInfo {
+    
+    public String packageName;
+    public long lastUpdateTime;
+}
@@ -0,0 +1,27 @@
+package android.content.pm;
+
+/**
+ * Knows the one installed package of the simulated process
+ */
+public class PackageManager {
+    
+    public static class NameNotFoundException extends Exception {
+        public NameNotFoundException(String name) {
+            super(name);
+        }
+    }
+    
+    private final PackageInfo info = new PackageInfo();
+    
+    public PackageManager(String packageName, long lastUpdateTime) {
+        info.packageName = packageName;
+        info.lastUpdateTime = lastUpdateTime;
+    }
+    
+    public PackageInfo getPackageInfo(String packageName, int flags) throws NameNotFoundException {
+        if (!info.packageName.equals(packageName)) {
+            throw new NameNotFoundException(packageName);
+        }
+        return info;
+    }
+}
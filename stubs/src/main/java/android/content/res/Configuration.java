@@ -0,0 +1,44 @@
+package android.content.res;
+
+/**
+ * Device configuration an activity runs under
+ */
+public final class Configuration {
+    
+    public static final int ORIENTATION_PORTRAIT = 1;
+    public static final int ORIENTATION_LANDSCAPE = 2;
+    
+    public static final int UI_MODE_TYPE_NORMAL = 0x01;
+    public static final int UI_MODE_NIGHT_MASK = 0x30;
+    public static final int UI_MODE_NIGHT_NO = 0x10;
+    public static final int UI_MODE_NIGHT_YES = 0x20;
+    
+    public int orientation = ORIENTATION_PORTRAIT;
+    public int screenWidthDp;
+    public int screenHeightDp;
+    public int uiMode = UI_MODE_TYPE_NORMAL | UI_MODE_NIGHT_NO;
+    public int densityDpi;
+    
+    public Configuration() {
+    }
+    
+    public Configuration(Configuration o) {
+        setTo(o);
+    }
+    
+    public void setTo(Configuration o) {
+        orientation = o.orientation;
+        screenWidthDp = o.screenWidthDp;
+        screenHeightDp = o.screenHeightDp;
+        uiMode = o.uiMode;
+        densityDpi = o.densityDpi;
+    }
+    
+    /**
+     * Whether anything the activity would be relaunched for differs
+     */
+    public boolean differs(Configuration o) {
+        return orientation != o.orientation || screenWidthDp != o.screenWidthDp
+            || screenHeightDp != o.screenHeightDp || uiMode != o.uiMode || densityDpi != o.densityDpi;
+    }
+}
@@ -0,0 +1,103 @@
+package android.content.res;
+
+import android.util.DisplayMetrics;
+import android.util.TypedValue;
+
+import com.example.forcestatusbar.sim.WindowServer;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Resources of an app or of the system. Only the configuration, the display
+ * metrics and the system's status_bar_height dimension are modelled; themes
+ * hold plain attribute to color values.
+ */
+public class Resources {
+    
+    // Resource id of android:dimen/status_bar_height in the system resources
+    private static final int STATUS_BAR_HEIGHT_ID = 0x01050000;
+    
+    private static final Resources system = new Resources();
+    
+    private final Configuration configuration = new Configuration();
+    private final DisplayMetrics metrics = new DisplayMetrics();
+    
+    public Resources() {
+        WindowServer.fillConfiguration(configuration);
+        WindowServer.fillMetrics(metrics);
+    }
+    
+    public static Resources getSystem() {
+        return system;
+    }
+    
+    public Configuration getConfiguration() {
+        return configuration;
+    }
+    
+    public DisplayMetrics getDisplayMetrics() {
+        return metrics;
+    }
+    
+    /**
+     * Take a new configuration, as ActivityThread does before it tells the activity
+     */
+    public void updateConfiguration(Configuration config, DisplayMetrics metrics) {
+        configuration.setTo(config);
+        if (metrics != null) {
+            this.metrics.setTo(metrics);
+        }
+    }
+    
+    public int getIdentifier(String name, String defType, String defPackage) {
+        if ("status_bar_height".equals(name) && "dimen".equals(defType) && "android".equals(defPackage)) {
+            return STATUS_BAR_HEIGHT_ID;
+        }
+        return 0;
+    }
+    
+    public void getValue(int id, TypedValue outValue, boolean resolveRefs) {
+        if (id != STATUS_BAR_HEIGHT_ID) {
+            throw new NotFoundException("Resource ID #0x" + Integer.toHexString(id));
+        }
+        outValue.type = TypedValue.TYPE_DIMENSION;
+        outValue.data = WindowServer.STATUS_BAR_HEIGHT_DP;
+    }
+    
+    public final Theme newTheme() {
+        return new Theme();
+    }
+    
+    public static class NotFoundException extends RuntimeException {
+        public NotFoundException(String name) {
+            super(name);
+        }
+    }
+    
+    /**
+     * Attribute values of one theme
+     */
+    public final class Theme {
+        
+        private final Map<Integer, Integer> colors = new HashMap<>();
+        
+        private Theme() {
+        }
+        
+        /**
+         * Set an attribute, which the real theme reads from its style resources
+         */
+        public void setColor(int attr, int color) {
+            colors.put(attr, color);
+        }
+        
+        public TypedArray obtainStyledAttributes(int[] attrs) {
+            Integer[] values = new Integer[attrs.length];
+            for (int i = 0; i < attrs.length; i++) {
+                values[i] = colors.get(attrs[i]);
+            }
+            return new TypedArray(values);
+        }
+    }
+}
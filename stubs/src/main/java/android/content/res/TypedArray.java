@@ -0,0 +1,33 @@
+package android.content.res;
+
+/**
+ * Values of the requested theme attributes, {@code null} where the theme does not set one
+ */
+public class TypedArray {
+    
+    private final Integer[] values;
+    private boolean recycled;
+    
+    TypedArray(Integer[] values) {
+        this.values = values;
+    }
+    
+    public int getColor(int index, int defValue) {
+        if (recycled) {
+            throw new RuntimeException("Cannot make calls to a recycled instance!");
+        }
+        Integer value = values[index];
+        return value != null ? value : defValue;
+    }
+    
+    public int length() {
+        return values.length;
+    }
+    
+    public void recycle() {
+        if (recycled) {
+            throw new RuntimeException(toString() + " recycled twice!");
+        }
+        recycled = true;
+    }
+}
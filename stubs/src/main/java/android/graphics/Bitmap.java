@@ -0,0 +1,45 @@
+package android.graphics;
+
+import java.util.Arrays;
+
+/**
+ * Pixels in memory, filled by PixelCopy
+ */
+public final class Bitmap {
+    
+    public enum Config {
+        ARGB_8888
+    }
+    
+    private final int width;
+    private final int height;
+    private final int[] pixels;
+    
+    private Bitmap(int width, int height) {
+        this.width = width;
+        this.height = height;
+        this.pixels = new int[width * height];
+    }
+    
+    public static Bitmap createBitmap(int width, int height, Config config) {
+        return new Bitmap(width, height);
+    }
+    
+    public int getWidth() {
+        return width;
+    }
+    
+    public int getHeight() {
+        return height;
+    }
+    
+    public void eraseColor(int color) {
+        Arrays.fill(pixels, color);
+    }
+    
+    public void getPixels(int[] out, int offset, int stride, int x, int y, int width, int height) {
+        for (int row = 0; row < height; row++) {
+            System.arraycopy(pixels, (y + row) * this.width + x, out, offset + row * stride, width);
+        }
+    }
+}
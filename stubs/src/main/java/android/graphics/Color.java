@@ -0,0 +1,12 @@
+package android.graphics;
+
+public class Color {
+    
+    public static final int TRANSPARENT = 0;
+    public static final int BLACK = 0xFF000000;
+    public static final int WHITE = 0xFFFFFFFF;
+    
+    public static int rgb(int red, int green, int blue) {
+        return 0xFF000000 | (red << 16) | (green << 8) | blue;
+    }
+}
@@ -0,0 +1,42 @@
+package android.graphics;
+
+public final class Rect {
+    
+    public int left;
+    public int top;
+    public int right;
+    public int bottom;
+    
+    public Rect() {
+    }
+    
+    public Rect(int left, int top, int right, int bottom) {
+        set(left, top, right, bottom);
+    }
+    
+    public void set(int left, int top, int right, int bottom) {
+        this.left = left;
+        this.top = top;
+        this.right = right;
+        this.bottom = bottom;
+    }
+    
+    public void offset(int dx, int dy) {
+        left += dx;
+        top += dy;
+        right += dx;
+        bottom += dy;
+    }
+    
+    public boolean isEmpty() {
+        return left >= right || top >= bottom;
+    }
+    
+    public int width() {
+        return right - left;
+    }
+    
+    public int height() {
+        return bottom - top;
+    }
+}
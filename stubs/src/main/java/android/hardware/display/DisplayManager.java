@@ -0,0 +1,49 @@
+package android.hardware.display;
+
+import android.os.Handler;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Tells registered listeners about display changes, posted to their handler
+ */
+public final class DisplayManager {
+    
+    public interface DisplayListener {
+        void onDisplayAdded(int displayId);
+        
+        void onDisplayRemoved(int displayId);
+        
+        void onDisplayChanged(int displayId);
+    }
+    
+    private static final class Registration {
+        final DisplayListener listener;
+        final Handler handler;
+        
+        Registration(DisplayListener listener, Handler handler) {
+            this.listener = listener;
+            this.handler = handler;
+        }
+    }
+    
+    private final List<Registration> registrations = new ArrayList<>();
+    
+    public void registerDisplayListener(DisplayListener listener, Handler handler) {
+        registrations.add(new Registration(listener, handler != null ? handler : new Handler()));
+    }
+    
+    public void unregisterDisplayListener(DisplayListener listener) {
+        registrations.removeIf(registration -> registration.listener == listener);
+    }
+    
+    /**
+     * The display was rotated or resized
+     */
+    public void notifyDisplayChanged(int displayId) {
+        for (Registration registration : registrations) {
+            registration.handler.post(() -> registration.listener.onDisplayChanged(displayId));
+        }
+    }
+}
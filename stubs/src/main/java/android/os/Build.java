@@ -0,0 +1,26 @@
+package android.os;
+
+/**
+ * The simulated device. SDK_INT is read from the {@code simulator.sdk} system
+ * property when the class is first used, so one JVM simulates one SDK level
+ * and the module's version checks are not folded away at compile time.
+ */
+public class Build {
+    
+    public static final String FINGERPRINT = "simulator/sdk" + VERSION.SDK_INT;
+    
+    public static class VERSION {
+        public static final int SDK_INT = Integer.getInteger("simulator.sdk", VERSION_CODES.UPSIDE_DOWN_CAKE);
+    }
+    
+    public static class VERSION_CODES {
+        public static final int O = 26;
+        public static final int O_MR1 = 27;
+        public static final int P = 28;
+        public static final int Q = 29;
+        public static final int R = 30;
+        public static final int S = 31;
+        public static final int TIRAMISU = 33;
+        public static final int UPSIDE_DOWN_CAKE = 34;
+    }
+}
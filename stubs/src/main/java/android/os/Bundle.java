@@ -0,0 +1,83 @@
+package android.os;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * A typed map, the subset of extras the module puts into broadcasts
+ */
+public final class Bundle {
+    
+    private final Map<String, Object> values = new HashMap<>();
+    
+    public void putString(String key, String value) {
+        values.put(key, value);
+    }
+    
+    public String getString(String key) {
+        return getString(key, null);
+    }
+    
+    public String getString(String key, String defaultValue) {
+        Object value = values.get(key);
+        return value instanceof String ? (String) value : defaultValue;
+    }
+    
+    public void putInt(String key, int value) {
+        values.put(key, value);
+    }
+    
+    public int getInt(String key, int defaultValue) {
+        Object value = values.get(key);
+        return value instanceof Integer ? (Integer) value : defaultValue;
+    }
+    
+    public void putLong(String key, long value) {
+        values.put(key, value);
+    }
+    
+    public long getLong(String key, long defaultValue) {
+        Object value = values.get(key);
+        return value instanceof Long ? (Long) value : defaultValue;
+    }
+    
+    public void putBoolean(String key, boolean value) {
+        values.put(key, value);
+    }
+    
+    public boolean getBoolean(String key, boolean defaultValue) {
+        Object value = values.get(key);
+        return value instanceof Boolean ? (Boolean) value : defaultValue;
+    }
+    
+    public void putParcelable(String key, Parcelable value) {
+        values.put(key, value);
+    }
+    
+    public Parcelable getParcelable(String key) {
+        Object value = values.get(key);
+        return value instanceof Parcelable ? (Parcelable) value : null;
+    }
+    
+    public void putLongArray(String key, long[] value) {
+        values.put(key, value);
+    }
+    
+    public long[] getLongArray(String key) {
+        Object value = values.get(key);
+        return value instanceof long[] ? (long[]) value : null;
+    }
+    
+    public void putBundle(String key, Bundle value) {
+        values.put(key, value);
+    }
+    
+    public Bundle getBundle(String key) {
+        Object value = values.get(key);
+        return value instanceof Bundle ? (Bundle) value : null;
+    }
+    
+    public boolean containsKey(String key) {
+        return values.containsKey(key);
+    }
+}
@@ -0,0 +1,38 @@
+package android.os;
+
+/**
+ * Posts runnables to a {@link Looper}
+ */
+public class Handler {
+    
+    private final Looper looper;
+    
+    public Handler() {
+        this(Looper.myLooper());
+    }
+    
+    public Handler(Looper looper) {
+        this.looper = looper;
+    }
+    
+    public final Looper getLooper() {
+        return looper;
+    }
+    
+    public final boolean post(Runnable r) {
+        return postAtTime(r, SystemClock.uptimeMillis());
+    }
+    
+    public final boolean postDelayed(Runnable r, long delayMillis) {
+        return postAtTime(r, SystemClock.uptimeMillis() + Math.max(0, delayMillis));
+    }
+    
+    public final boolean postAtTime(Runnable r, long uptimeMillis) {
+        looper.enqueue(this, r, uptimeMillis);
+        return true;
+    }
+    
+    public final void removeCallbacks(Runnable r) {
+        looper.remove(this, r);
+    }
+}
@@ -0,0 +1,24 @@
+package android.os;
+
+/**
+ * A handler thread of the simulated process. The simulation is single-threaded,
+ * so its messages go to the main looper and no thread is ever started.
+ */
+public class HandlerThread extends Thread {
+    
+    public HandlerThread(String name) {
+        super(name);
+    }
+    
+    @Override
+    public synchronized void start() {
+    }
+    
+    public Looper getLooper() {
+        return Looper.getMainLooper();
+    }
+    
+    public boolean quitSafely() {
+        return true;
+    }
+}
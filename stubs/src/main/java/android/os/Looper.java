@@ -0,0 +1,89 @@
+package android.os;
+
+import com.example.forcestatusbar.sim.SimClock;
+
+import java.util.PriorityQueue;
+
+/**
+ * The simulated main thread's message queue. Nothing runs on its own: the
+ * simulator drains the messages that are due each time it advances the clock.
+ */
+public final class Looper {
+    
+    private static final Looper main = new Looper();
+    
+    private static final class Message implements Comparable<Message> {
+        final long when;
+        final long seq;
+        final Handler target;
+        final Runnable callback;
+        
+        Message(long when, long seq, Handler target, Runnable callback) {
+            this.when = when;
+            this.seq = seq;
+            this.target = target;
+            this.callback = callback;
+        }
+        
+        @Override
+        public int compareTo(Message other) {
+            if (when != other.when) {
+                return Long.compare(when, other.when);
+            }
+            return Long.compare(seq, other.seq);
+        }
+    }
+    
+    private final PriorityQueue<Message> queue = new PriorityQueue<>();
+    private long nextSeq;
+    
+    private Looper() {
+    }
+    
+    public static Looper getMainLooper() {
+        return main;
+    }
+    
+    public static Looper myLooper() {
+        return main;
+    }
+    
+    public boolean isCurrentThread() {
+        return true;
+    }
+    
+    void enqueue(Handler target, Runnable callback, long uptimeMillis) {
+        queue.add(new Message(uptimeMillis, nextSeq++, target, callback));
+    }
+    
+    void remove(Handler target, Runnable callback) {
+        queue.removeIf(message -> message.target == target && message.callback == callback);
+    }
+    
+    /**
+     * Run every message due by now, including those they post for now; returns how many ran
+     */
+    public int runDue() {
+        int ran = 0;
+        long now = SimClock.uptimeMillis();
+        Message message;
+        while ((message = queue.peek()) != null && message.when <= now) {
+            queue.poll();
+            message.callback.run();
+            ran++;
+        }
+        return ran;
+    }
+    
+    /**
+     * Uptime of the next message, or Long.MAX_VALUE when the queue is empty
+     */
+    public long nextDueMillis() {
+        Message message = queue.peek();
+        return message != null ? message.when : Long.MAX_VALUE;
+    }
+    
+    public int pending() {
+        return queue.size();
+    }
+}
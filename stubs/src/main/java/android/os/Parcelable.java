@@ -0,0 +1,7 @@
+package android.os;
+
+/**
+ * Marks extras that are objects rather than plain values
+ */
+public interface Parcelable {
+}
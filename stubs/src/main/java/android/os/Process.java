@@ -0,0 +1,23 @@
+package android.os;
+
+/**
+ * The simulated app process: a regular app uid, never isolated
+ */
+public class Process {
+    
+    public static final int FIRST_APPLICATION_UID = 10000;
+    
+    private static final int UID = 10123;
+    
+    public static int myUid() {
+        return UID;
+    }
+    
+    public static int myPid() {
+        return 4242;
+    }
+    
+    public static boolean isIsolated() {
+        return false;
+    }
+}
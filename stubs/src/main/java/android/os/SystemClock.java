@@ -0,0 +1,24 @@
+package android.os;
+
+import com.example.forcestatusbar.sim.SimClock;
+
+/**
+ * Clocks of the simulated device, see {@link SimClock}
+ */
+public final class SystemClock {
+    
+    private SystemClock() {
+    }
+    
+    public static long uptimeMillis() {
+        return SimClock.uptimeMillis();
+    }
+    
+    public static long elapsedRealtime() {
+        return SimClock.uptimeMillis();
+    }
+    
+    public static long elapsedRealtimeNanos() {
+        return SimClock.nanoTime();
+    }
+}
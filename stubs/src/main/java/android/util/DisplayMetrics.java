@@ -0,0 +1,21 @@
+package android.util;
+
+/**
+ * Size and density of a display
+ */
+public class DisplayMetrics {
+    
+    public static final int DENSITY_DEFAULT = 160;
+    
+    public int widthPixels;
+    public int heightPixels;
+    public float density;
+    public int densityDpi;
+    
+    public void setTo(DisplayMetrics o) {
+        widthPixels = o.widthPixels;
+        heightPixels = o.heightPixels;
+        density = o.density;
+        densityDpi = o.densityDpi;
+    }
+}
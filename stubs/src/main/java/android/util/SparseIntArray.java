@@ -0,0 +1,62 @@
+package android.util;
+
+import java.util.Arrays;
+
+/**
+ * Sorted int to int map
+ */
+public class SparseIntArray {
+    
+    private int[] keys;
+    private int[] values;
+    private int size;
+    
+    public SparseIntArray() {
+        this(10);
+    }
+    
+    public SparseIntArray(int initialCapacity) {
+        keys = new int[Math.max(1, initialCapacity)];
+        values = new int[keys.length];
+    }
+    
+    public int get(int key) {
+        return get(key, 0);
+    }
+    
+    public int get(int key, int valueIfKeyNotFound) {
+        int i = Arrays.binarySearch(keys, 0, size, key);
+        return i >= 0 ? values[i] : valueIfKeyNotFound;
+    }
+    
+    public void put(int key, int value) {
+        int i = Arrays.binarySearch(keys, 0, size, key);
+        if (i >= 0) {
+            values[i] = value;
+            return;
+        }
+        i = ~i;
+        if (size == keys.length) {
+            keys = Arrays.copyOf(keys, size * 2);
+            values = Arrays.copyOf(values, size * 2);
+        }
+        System.arraycopy(keys, i, keys, i + 1, size - i);
+        System.arraycopy(values, i, values, i + 1, size - i);
+        keys[i] = key;
+        values[i] = value;
+        size++;
+    }
+    
+    public void delete(int key) {
+        int i = Arrays.binarySearch(keys, 0, size, key);
+        if (i >= 0) {
+            System.arraycopy(keys, i + 1, keys, i, size - i - 1);
+            System.arraycopy(values, i + 1, values, i, size - i - 1);
+            size--;
+        }
+    }
+    
+    public int size() {
+        return size;
+    }
+}
@@ -0,0 +1,22 @@
+package android.util;
+
+/**
+ * A resource value. Dimensions keep their value in dp in {@code data}, the
+ * real complex unit encoding is of no interest here.
+ */
+public class TypedValue {
+    
+    public static final int TYPE_DIMENSION = 0x05;
+    
+    public int type;
+    public int data;
+    
+    public static int complexToDimensionPixelSize(int data, DisplayMetrics metrics) {
+        float value = data * metrics.density;
+        int res = (int) (value >= 0 ? value + 0.5f : value - 0.5f);
+        if (res != 0) {
+            return res;
+        }
+        return value == 0 ? 0 : value > 0 ? 1 : -1;
+    }
+}
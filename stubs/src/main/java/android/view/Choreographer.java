@@ -0,0 +1,101 @@
+package android.view;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Runs the input, animation and traversal callbacks of each frame, in that
+ * order. Callbacks posted while a type runs wait for the next frame, except
+ * that traversals run after the animation callbacks of the same frame. The
+ * simulator calls {@link #doFrame} at each vsync.
+ */
+public final class Choreographer {
+    
+    public static final int CALLBACK_INPUT = 0;
+    public static final int CALLBACK_ANIMATION = 1;
+    public static final int CALLBACK_TRAVERSAL = 3;
+    private static final int CALLBACK_LAST = CALLBACK_TRAVERSAL;
+    
+    public interface FrameCallback {
+        void doFrame(long frameTimeNanos);
+    }
+    
+    private static final class CallbackRecord {
+        final Object action;
+        final Object token;
+        
+        CallbackRecord(Object action, Object token) {
+            this.action = action;
+            this.token = token;
+        }
+    }
+    
+    private static final Choreographer instance = new Choreographer();
+    
+    @SuppressWarnings("unchecked")
+    private final List<CallbackRecord>[] queues = new List[CALLBACK_LAST + 1];
+    
+    private long lastFrameTimeNanos;
+    
+    private Choreographer() {
+        for (int i = 0; i < queues.length; i++) {
+            queues[i] = new ArrayList<>();
+        }
+    }
+    
+    public static Choreographer getInstance() {
+        return instance;
+    }
+    
+    public void postCallback(int callbackType, Runnable action, Object token) {
+        queues[callbackType].add(new CallbackRecord(action, token));
+    }
+    
+    public void removeCallbacks(int callbackType, Runnable action, Object token) {
+        queues[callbackType].removeIf(record -> (action == null || record.action == action)
+            && (token == null || record.token == token));
+    }
+    
+    public void postFrameCallback(FrameCallback callback) {
+        queues[CALLBACK_ANIMATION].add(new CallbackRecord(callback, null));
+    }
+    
+    public void removeFrameCallback(FrameCallback callback) {
+        queues[CALLBACK_ANIMATION].removeIf(record -> record.action == callback);
+    }
+    
+    public long getFrameTimeNanos() {
+        return lastFrameTimeNanos;
+    }
+    
+    /**
+     * Whether anything waits for the next frame
+     */
+    public boolean hasPendingCallbacks() {
+        for (List<CallbackRecord> queue : queues) {
+            if (!queue.isEmpty()) {
+                return true;
+            }
+        }
+        return false;
+    }
+    
+    public void doFrame(long frameTimeNanos) {
+        lastFrameTimeNanos = frameTimeNanos;
+        for (int type = 0; type <= CALLBACK_LAST; type++) {
+            List<CallbackRecord> queue = queues[type];
+            if (queue.isEmpty()) {
+                continue;
+            }
+            List<CallbackRecord> due = new ArrayList<>(queue);
+            queue.clear();
+            for (CallbackRecord record : due) {
+                if (record.action instanceof FrameCallback) {
+                    ((FrameCallback) record.action).doFrame(frameTimeNanos);
+                } else {
+                    ((Runnable) record.action).run();
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package android.view;
+
+import android.graphics.Point;
+import android.util.DisplayMetrics;
+
+import com.example.forcestatusbar.sim.HookedMethod;
+import com.example.forcestatusbar.sim.WindowServer;
+
+/**
+ * The only display. The app area is the whole screen, no navigation bar is modelled.
+ */
+public final class Display {
+    
+    public static final int DEFAULT_DISPLAY = 0;
+    
+    private static final HookedMethod GET_METRICS = HookedMethod.of(Display.class, "getMetrics", DisplayMetrics.class);
+    private static final HookedMethod GET_SIZE = HookedMethod.of(Display.class, "getSize", Point.class);
+    
+    private static final Display instance = new Display();
+    
+    private Display() {
+    }
+    
+    public static Display getDefault() {
+        return instance;
+    }
+    
+    public int getDisplayId() {
+        return DEFAULT_DISPLAY;
+    }
+    
+    public float getRefreshRate() {
+        return 60f;
+    }
+    
+    public int getRotation() {
+        return WindowServer.rotation();
+    }
+    
+    public void getMetrics(DisplayMetrics outMetrics) {
+        GET_METRICS.invoke(this, (self, args) -> {
+            WindowServer.fillMetrics((DisplayMetrics) args[0]);
+            return null;
+        }, outMetrics);
+    }
+    
+    public void getSize(Point outSize) {
+        GET_SIZE.invoke(this, (self, args) -> {
+            ((Point) args[0]).set(WindowServer.screenWidth(), WindowServer.screenHeight());
+            return null;
+        }, outSize);
+    }
+    
+    public void getRealMetrics(DisplayMetrics outMetrics) {
+        WindowServer.fillMetrics(outMetrics);
+    }
+    
+    public void getRealSize(Point outSize) {
+        outSize.set(WindowServer.screenWidth(), WindowServer.screenHeight());
+    }
+}
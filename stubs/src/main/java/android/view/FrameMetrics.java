@@ -0,0 +1,29 @@
+package android.view;
+
+/**
+ * Timing of one drawn frame of a window
+ */
+public final class FrameMetrics {
+    
+    public static final int TOTAL_DURATION = 8;
+    public static final int INTENDED_VSYNC_TIMESTAMP = 10;
+    
+    private final long intendedVsync;
+    private final long totalDuration;
+    
+    FrameMetrics(long intendedVsync, long totalDuration) {
+        this.intendedVsync = intendedVsync;
+        this.totalDuration = totalDuration;
+    }
+    
+    public long getMetric(int id) {
+        switch (id) {
+            case TOTAL_DURATION:
+                return totalDuration;
+            case INTENDED_VSYNC_TIMESTAMP:
+                return intendedVsync;
+            default:
+                return -1;
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package android.view;
+
+import com.example.forcestatusbar.sim.HookedMethod;
+
+/**
+ * The insets controller of a view root. Remembers which bars the window asks
+ * to be shown and tells its view root when that changes.
+ */
+public class InsetsController implements WindowInsetsController {
+    
+    private static final HookedMethod HIDE = HookedMethod.of(InsetsController.class, "hide", int.class);
+    
+    private final ViewRootImpl mHost;
+    private int mRequestedVisibleTypes = WindowInsets.Type.systemBars();
+    
+    InsetsController(ViewRootImpl host) {
+        mHost = host;
+    }
+    
+    @Override
+    public void hide(int types) {
+        HIDE.invoke(this, (self, args) -> {
+            ((InsetsController) self).setRequestedVisibleTypes(0, (int) args[0]);
+            return null;
+        }, types);
+    }
+    
+    @Override
+    public void show(int types) {
+        setRequestedVisibleTypes(types, types);
+    }
+    
+    public boolean isRequestedVisible(int types) {
+        return (mRequestedVisibleTypes & types) == types;
+    }
+    
+    private void setRequestedVisibleTypes(int visibleTypes, int mask) {
+        int requested = (mRequestedVisibleTypes & ~mask) | (visibleTypes & mask);
+        if (requested != mRequestedVisibleTypes) {
+            mRequestedVisibleTypes = requested;
+            mHost.onRequestedVisibilityChanged();
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package android.view;
+
+/**
+ * A single-pointer touch, in the coordinates of the window
+ */
+public final class MotionEvent {
+    
+    public static final int ACTION_DOWN = 0;
+    public static final int ACTION_UP = 1;
+    
+    private int action;
+    private float x;
+    private float y;
+    
+    private MotionEvent() {
+    }
+    
+    public static MotionEvent obtain(long downTime, long eventTime, int action, float x, float y, int metaState) {
+        MotionEvent event = new MotionEvent();
+        event.action = action;
+        event.x = x;
+        event.y = y;
+        return event;
+    }
+    
+    public int getAction() {
+        return action;
+    }
+    
+    public float getX() {
+        return x;
+    }
+    
+    public float getY() {
+        return y;
+    }
+    
+    public void offsetLocation(float deltaX, float deltaY) {
+        x += deltaX;
+        y += deltaY;
+    }
+    
+    public void recycle() {
+    }
+}
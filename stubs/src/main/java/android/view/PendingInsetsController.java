@@ -0,0 +1,49 @@
+package android.view;
+
+/**
+ * The controller a window hands out before it is added: calls are recorded
+ * and replayed on the view root's controller once there is one, later calls
+ * go straight to it.
+ */
+public class PendingInsetsController implements WindowInsetsController {
+    
+    private int mRequestedVisibleTypes = WindowInsets.Type.systemBars();
+    private boolean mRecorded;
+    private InsetsController mReplayedInsetsController;
+    
+    @Override
+    public void hide(int types) {
+        if (mReplayedInsetsController != null) {
+            mReplayedInsetsController.hide(types);
+            return;
+        }
+        mRequestedVisibleTypes &= ~types;
+        mRecorded = true;
+    }
+    
+    @Override
+    public void show(int types) {
+        if (mReplayedInsetsController != null) {
+            mReplayedInsetsController.show(types);
+            return;
+        }
+        mRequestedVisibleTypes |= types;
+        mRecorded = true;
+    }
+    
+    public void replayAndAttach(InsetsController controller) {
+        if (mRecorded) {
+            int hidden = WindowInsets.Type.systemBars() & ~mRequestedVisibleTypes;
+            if (hidden != 0) {
+                controller.hide(hidden);
+            }
+            mRecorded = false;
+        }
+        mReplayedInsetsController = controller;
+    }
+    
+    public void detach() {
+        mReplayedInsetsController = null;
+        mRequestedVisibleTypes = WindowInsets.Type.systemBars();
+    }
+}
@@ -0,0 +1,56 @@
+package android.view;
+
+import android.graphics.Bitmap;
+import android.graphics.Rect;
+import android.graphics.drawable.ColorDrawable;
+import android.os.Handler;
+
+/**
+ * Copies what a window or a SurfaceView shows. The window shows the
+ * background color of its content view, a SurfaceView its content color.
+ */
+public final class PixelCopy {
+    
+    public static final int SUCCESS = 0;
+    public static final int ERROR_SOURCE_NO_DATA = 3;
+    
+    public interface OnPixelCopyFinishedListener {
+        void onPixelCopyFinished(int copyResult);
+    }
+    
+    private PixelCopy() {
+    }
+    
+    public static void request(Window source, Rect srcRect, Bitmap dest, OnPixelCopyFinishedListener listener,
+            Handler listenerThread) {
+        View decor = source.peekDecorView();
+        if (decor == null || !decor.isAttachedToWindow()) {
+            throw new IllegalArgumentException("Window doesn't have a backing surface!");
+        }
+        View content = decor.findViewById(android.R.id.content);
+        View shown = content instanceof ViewGroup && ((ViewGroup) content).getChildCount() > 0
+            ? ((ViewGroup) content).getChildAt(0) : content;
+        int color = 0xFFFFFFFF;
+        if (shown != null && shown.getBackground() instanceof ColorDrawable) {
+            color = ((ColorDrawable) shown.getBackground()).getColor();
+        }
+        copy(color, srcRect, dest, listener, listenerThread);
+    }
+    
+    public static void request(SurfaceView source, Rect srcRect, Bitmap dest,
+            OnPixelCopyFinishedListener listener, Handler listenerThread) {
+        if (!source.isAttachedToWindow()) {
+            throw new IllegalArgumentException("Surface isn't valid, source.isValid() == false");
+        }
+        copy(source.getContentColor(), srcRect, dest, listener, listenerThread);
+    }
+    
+    private static void copy(int color, Rect srcRect, Bitmap dest, OnPixelCopyFinishedListener listener,
+            Handler listenerThread) {
+        if (srcRect != null && srcRect.isEmpty()) {
+            throw new IllegalArgumentException("sourceRect is empty");
+        }
+        dest.eraseColor(color);
+        listenerThread.post(() -> listener.onPixelCopyFinished(SUCCESS));
+    }
+}
@@ -0,0 +1,18 @@
+package android.view;
+
+/**
+ * A view whose content an engine renders into its own surface
+ */
+public class SurfaceView extends View {
+    
+    // What the engine draws, PixelCopy reads it
+    private int contentColor = 0xFF000000;
+    
+    public void setContentColor(int color) {
+        contentColor = color;
+    }
+    
+    public int getContentColor() {
+        return contentColor;
+    }
+}
@@ -0,0 +1,7 @@
+package android.view;
+
+/**
+ * A view that shows a surface texture through the window surface
+ */
+public class TextureView extends View {
+}
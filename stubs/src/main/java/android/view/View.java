@@ -0,0 +1,441 @@
+package android.view;
+
+import android.graphics.drawable.Drawable;
+import android.os.Handler;
+import android.os.Looper;
+
+import com.example.forcestatusbar.sim.HookedMethod;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A view of the simulated hierarchy.
+ *
+ * Keeps the state the framework keeps where the module and the simulated
+ * apps look at it: the listener slot in {@code mListenerInfo}, the collected
+ * system UI visibility in {@code AttachInfo}, padding, fitsSystemWindows and
+ * the run queue of a detached view. Layout is reduced to every view filling
+ * its parent inside the parent's padding.
+ */
+public class View {
+    
+    public static final int NO_ID = -1;
+    
+    public static final int VISIBLE = 0x0;
+    public static final int INVISIBLE = 0x4;
+    public static final int GONE = 0x8;
+    
+    public static final int SYSTEM_UI_FLAG_VISIBLE = 0;
+    public static final int SYSTEM_UI_FLAG_LOW_PROFILE = 0x00000001;
+    public static final int SYSTEM_UI_FLAG_HIDE_NAVIGATION = 0x00000002;
+    public static final int SYSTEM_UI_FLAG_FULLSCREEN = 0x00000004;
+    public static final int SYSTEM_UI_FLAG_LAYOUT_STABLE = 0x00000100;
+    public static final int SYSTEM_UI_FLAG_LAYOUT_HIDE_NAVIGATION = 0x00000200;
+    public static final int SYSTEM_UI_FLAG_LAYOUT_FULLSCREEN = 0x00000400;
+    public static final int SYSTEM_UI_FLAG_IMMERSIVE = 0x00000800;
+    public static final int SYSTEM_UI_FLAG_IMMERSIVE_STICKY = 0x00001000;
+    
+    private static final HookedMethod SET_SYSTEM_UI_VISIBILITY =
+        HookedMethod.of(View.class, "setSystemUiVisibility", int.class);
+    private static final HookedMethod SET_ON_APPLY_WINDOW_INSETS_LISTENER =
+        HookedMethod.of(View.class, "setOnApplyWindowInsetsListener", OnApplyWindowInsetsListener.class);
+    private static final HookedMethod DISPATCH_POINTER_EVENT =
+        HookedMethod.of(View.class, "dispatchPointerEvent", MotionEvent.class);
+    
+    public interface OnApplyWindowInsetsListener {
+        WindowInsets onApplyWindowInsets(View v, WindowInsets insets);
+    }
+    
+    public interface OnTouchListener {
+        boolean onTouch(View v, MotionEvent event);
+    }
+    
+    static class ListenerInfo {
+        OnApplyWindowInsetsListener mOnApplyWindowInsetsListener;
+        OnTouchListener mOnTouchListener;
+    }
+    
+    /**
+     * What the views of one window share with its view root
+     */
+    static final class AttachInfo {
+        final ViewRootImpl mViewRootImpl;
+        final ViewTreeObserver mTreeObserver = new ViewTreeObserver();
+        final Handler mHandler = new Handler(Looper.getMainLooper());
+        // System UI visibility collected from the whole hierarchy
+        int mSystemUiVisibility;
+        boolean mRecomputeGlobalAttributes;
+        
+        AttachInfo(ViewRootImpl viewRootImpl) {
+            mViewRootImpl = viewRootImpl;
+        }
+    }
+    
+    ListenerInfo mListenerInfo;
+    AttachInfo mAttachInfo;
+    ViewParent mParent;
+    
+    private int mId = NO_ID;
+    int mSystemUiVisibility;
+    private int mVisibility = VISIBLE;
+    private boolean mFitsSystemWindows;
+    private Drawable mBackground;
+    
+    int mPaddingLeft;
+    int mPaddingTop;
+    int mPaddingRight;
+    int mPaddingBottom;
+    
+    // Position in the parent and size, from the last layout
+    int mLeft;
+    int mTop;
+    int mRight;
+    int mBottom;
+    
+    // Posted while detached, run once attached
+    private List<Runnable> mRunQueue;
+    private ViewTreeObserver mFloatingTreeObserver;
+    
+    private List<FrameMetricsObserver> mFrameMetricsObservers;
+    
+    static final class FrameMetricsObserver {
+        final Window window;
+        final Window.OnFrameMetricsAvailableListener listener;
+        final Handler handler;
+        
+        FrameMetricsObserver(Window window, Window.OnFrameMetricsAvailableListener listener, Handler handler) {
+            this.window = window;
+            this.listener = listener;
+            this.handler = handler;
+        }
+    }
+    
+    public View() {
+    }
+    
+    public void setId(int id) {
+        mId = id;
+    }
+    
+    public int getId() {
+        return mId;
+    }
+    
+    public final ViewParent getParent() {
+        return mParent;
+    }
+    
+    void assignParent(ViewParent parent) {
+        if (mParent != null && parent != null) {
+            throw new IllegalStateException("The specified child already has a parent");
+        }
+        mParent = parent;
+    }
+    
+    public void setSystemUiVisibility(int visibility) {
+        SET_SYSTEM_UI_VISIBILITY.invoke(this, (self, args) -> {
+            ((View) self).setSystemUiVisibilityInternal((int) args[0]);
+            return null;
+        }, visibility);
+    }
+    
+    private void setSystemUiVisibilityInternal(int visibility) {
+        if (visibility != mSystemUiVisibility) {
+            mSystemUiVisibility = visibility;
+            if (mParent != null && mAttachInfo != null && !mAttachInfo.mRecomputeGlobalAttributes) {
+                mParent.recomputeViewAttributes(this);
+            }
+        }
+    }
+    
+    public int getSystemUiVisibility() {
+        return mSystemUiVisibility;
+    }
+    
+    void dispatchCollectViewAttributes(AttachInfo attachInfo, int visibility) {
+        if ((visibility & VISIBILITY_MASK) == VISIBLE) {
+            attachInfo.mSystemUiVisibility |= mSystemUiVisibility;
+        }
+    }
+    
+    private static final int VISIBILITY_MASK = 0x0000000C;
+    
+    public void setOnApplyWindowInsetsListener(OnApplyWindowInsetsListener listener) {
+        SET_ON_APPLY_WINDOW_INSETS_LISTENER.invoke(this, (self, args) -> {
+            ((View) self).getListenerInfo().mOnApplyWindowInsetsListener = (OnApplyWindowInsetsListener) args[0];
+            return null;
+        }, listener);
+    }
+    
+    public void setOnTouchListener(OnTouchListener listener) {
+        getListenerInfo().mOnTouchListener = listener;
+    }
+    
+    ListenerInfo getListenerInfo() {
+        if (mListenerInfo == null) {
+            mListenerInfo = new ListenerInfo();
+        }
+        return mListenerInfo;
+    }
+    
+    /**
+     * Entry of a pointer event into the hierarchy, called by the view root on its root view
+     */
+    public final boolean dispatchPointerEvent(MotionEvent event) {
+        return (boolean) DISPATCH_POINTER_EVENT.invoke(this,
+            (self, args) -> ((View) self).dispatchTouchEvent((MotionEvent) args[0]), event);
+    }
+    
+    public boolean dispatchTouchEvent(MotionEvent event) {
+        ListenerInfo li = mListenerInfo;
+        return li != null && li.mOnTouchListener != null && li.mOnTouchListener.onTouch(this, event);
+    }
+    
+    // Insets
+    
+    public WindowInsets dispatchApplyWindowInsets(WindowInsets insets) {
+        ListenerInfo li = mListenerInfo;
+        if (li != null && li.mOnApplyWindowInsetsListener != null) {
+            return li.mOnApplyWindowInsetsListener.onApplyWindowInsets(this, insets);
+        }
+        return onApplyWindowInsets(insets);
+    }
+    
+    /**
+     * With fitsSystemWindows the view takes the system window insets as its padding and consumes them
+     */
+    public WindowInsets onApplyWindowInsets(WindowInsets insets) {
+        if (!mFitsSystemWindows) {
+            return insets;
+        }
+        setPadding(0, insets.getSystemWindowInsetTop(), 0, 0);
+        return insets.consumeSystemWindowInsets();
+    }
+    
+    public void setFitsSystemWindows(boolean fitSystemWindows) {
+        mFitsSystemWindows = fitSystemWindows;
+    }
+    
+    public boolean getFitsSystemWindows() {
+        return mFitsSystemWindows;
+    }
+    
+    public void requestApplyInsets() {
+        if (mParent != null) {
+            mParent.requestFitSystemWindows();
+        }
+    }
+    
+    public WindowInsets getRootWindowInsets() {
+        return mAttachInfo != null ? mAttachInfo.mViewRootImpl.getWindowInsets() : null;
+    }
+    
+    public WindowInsetsController getWindowInsetsController() {
+        if (mAttachInfo != null) {
+            return mAttachInfo.mViewRootImpl.getInsetsController();
+        }
+        ViewParent parent = mParent;
+        return parent instanceof View ? ((View) parent).getWindowInsetsController() : null;
+    }
+    
+    // Padding and layout
+    
+    public void setPadding(int left, int top, int right, int bottom) {
+        if (left != mPaddingLeft || top != mPaddingTop || right != mPaddingRight || bottom != mPaddingBottom) {
+            mPaddingLeft = left;
+            mPaddingTop = top;
+            mPaddingRight = right;
+            mPaddingBottom = bottom;
+            requestLayout();
+        }
+    }
+    
+    public int getPaddingLeft() {
+        return mPaddingLeft;
+    }
+    
+    public int getPaddingTop() {
+        return mPaddingTop;
+    }
+    
+    public int getPaddingRight() {
+        return mPaddingRight;
+    }
+    
+    public int getPaddingBottom() {
+        return mPaddingBottom;
+    }
+    
+    public void requestLayout() {
+        if (mParent != null) {
+            mParent.requestLayout();
+        }
+    }
+    
+    public void layout(int l, int t, int r, int b) {
+        mLeft = l;
+        mTop = t;
+        mRight = r;
+        mBottom = b;
+        onLayout(l, t, r, b);
+    }
+    
+    protected void onLayout(int left, int top, int right, int bottom) {
+    }
+    
+    public final int getWidth() {
+        return mRight - mLeft;
+    }
+    
+    public final int getHeight() {
+        return mBottom - mTop;
+    }
+    
+    public final int getTop() {
+        return mTop;
+    }
+    
+    public void getLocationInWindow(int[] outLocation) {
+        int x = 0;
+        int y = 0;
+        View view = this;
+        while (view != null) {
+            x += view.mLeft;
+            y += view.mTop;
+            view = view.mParent instanceof View ? (View) view.mParent : null;
+        }
+        outLocation[0] = x;
+        outLocation[1] = y;
+    }
+    
+    public void setVisibility(int visibility) {
+        if (visibility != mVisibility) {
+            mVisibility = visibility;
+            requestLayout();
+        }
+    }
+    
+    public int getVisibility() {
+        return mVisibility;
+    }
+    
+    public boolean isShown() {
+        View view = this;
+        while (view.mVisibility == VISIBLE) {
+            ViewParent parent = view.mParent;
+            if (parent == null) {
+                return false;
+            }
+            if (!(parent instanceof View)) {
+                return true;
+            }
+            view = (View) parent;
+        }
+        return false;
+    }
+    
+    public boolean isAttachedToWindow() {
+        return mAttachInfo != null;
+    }
+    
+    public void setBackground(Drawable background) {
+        mBackground = background;
+    }
+    
+    public Drawable getBackground() {
+        return mBackground;
+    }
+    
+    // Lookup
+    
+    public final <T extends View> T findViewById(int id) {
+        if (id == NO_ID) {
+            return null;
+        }
+        return findViewTraversal(id);
+    }
+    
+    @SuppressWarnings("unchecked")
+    <T extends View> T findViewTraversal(int id) {
+        return id == mId ? (T) this : null;
+    }
+    
+    // Attaching and posting
+    
+    void dispatchAttachedToWindow(AttachInfo info) {
+        mAttachInfo = info;
+        if (mFloatingTreeObserver != null) {
+            info.mTreeObserver.merge(mFloatingTreeObserver);
+            mFloatingTreeObserver = null;
+        }
+        if (mSystemUiVisibility != 0) {
+            info.mRecomputeGlobalAttributes = true;
+        }
+        List<Runnable> queue = mRunQueue;
+        mRunQueue = null;
+        if (queue != null) {
+            for (Runnable action : queue) {
+                info.mHandler.post(action);
+            }
+        }
+    }
+    
+    void dispatchDetachedFromWindow() {
+        mAttachInfo = null;
+    }
+    
+    public ViewTreeObserver getViewTreeObserver() {
+        if (mAttachInfo != null) {
+            return mAttachInfo.mTreeObserver;
+        }
+        if (mFloatingTreeObserver == null) {
+            mFloatingTreeObserver = new ViewTreeObserver();
+        }
+        return mFloatingTreeObserver;
+    }
+    
+    public boolean post(Runnable action) {
+        if (mAttachInfo != null) {
+            return mAttachInfo.mHandler.post(action);
+        }
+        getRunQueue().add(action);
+        return true;
+    }
+    
+    public void postOnAnimation(Runnable action) {
+        if (mAttachInfo != null) {
+            Choreographer.getInstance().postCallback(Choreographer.CALLBACK_ANIMATION, action, null);
+        } else {
+            getRunQueue().add(action);
+        }
+    }
+    
+    public void addFrameMetricsListener(Window window, Window.OnFrameMetricsAvailableListener listener,
+            Handler handler) {
+        if (mFrameMetricsObservers == null) {
+            mFrameMetricsObservers = new ArrayList<>();
+        }
+        mFrameMetricsObservers.add(new FrameMetricsObserver(window, listener, handler));
+    }
+    
+    /**
+     * Report a drawn frame to the observers of this root view
+     */
+    void dispatchFrameMetrics(long intendedVsync, long totalDuration) {
+        if (mFrameMetricsObservers == null) {
+            return;
+        }
+        FrameMetrics metrics = new FrameMetrics(intendedVsync, totalDuration);
+        for (FrameMetricsObserver observer : mFrameMetricsObservers) {
+            observer.handler.post(() -> observer.listener.onFrameMetricsAvailable(observer.window, metrics, 0));
+        }
+    }
+    
+    private List<Runnable> getRunQueue() {
+        if (mRunQueue == null) {
+            mRunQueue = new ArrayList<>();
+        }
+        return mRunQueue;
+    }
+}
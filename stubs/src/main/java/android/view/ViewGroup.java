@@ -0,0 +1,148 @@
+package android.view;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A view with children, each laid out over the whole group inside its padding
+ */
+public class ViewGroup extends View implements ViewParent {
+    
+    public static class LayoutParams {
+        public static final int MATCH_PARENT = -1;
+        public static final int WRAP_CONTENT = -2;
+        
+        public int width;
+        public int height;
+        
+        public LayoutParams(int width, int height) {
+            this.width = width;
+            this.height = height;
+        }
+    }
+    
+    private final List<View> mChildren = new ArrayList<>();
+    
+    public ViewGroup() {
+    }
+    
+    public void addView(View child) {
+        child.assignParent(this);
+        mChildren.add(child);
+        if (mAttachInfo != null) {
+            child.dispatchAttachedToWindow(mAttachInfo);
+            if (child.mSystemUiVisibility != 0) {
+                recomputeViewAttributes(child);
+            }
+        }
+        requestLayout();
+    }
+    
+    public void removeAllViews() {
+        for (View child : mChildren) {
+            if (child.mAttachInfo != null) {
+                child.dispatchDetachedFromWindow();
+            }
+            child.mParent = null;
+        }
+        mChildren.clear();
+        requestLayout();
+    }
+    
+    public int getChildCount() {
+        return mChildren.size();
+    }
+    
+    public View getChildAt(int index) {
+        return index >= 0 && index < mChildren.size() ? mChildren.get(index) : null;
+    }
+    
+    @Override
+    public void recomputeViewAttributes(View child) {
+        if (mAttachInfo != null && !mAttachInfo.mRecomputeGlobalAttributes && mParent != null) {
+            mParent.recomputeViewAttributes(this);
+        }
+    }
+    
+    @Override
+    public void requestFitSystemWindows() {
+        if (mParent != null) {
+            mParent.requestFitSystemWindows();
+        }
+    }
+    
+    @Override
+    void dispatchCollectViewAttributes(AttachInfo attachInfo, int visibility) {
+        super.dispatchCollectViewAttributes(attachInfo, visibility);
+        int combined = visibility | getVisibility();
+        for (View child : mChildren) {
+            child.dispatchCollectViewAttributes(attachInfo, combined);
+        }
+    }
+    
+    /**
+     * The group's own listener or onApplyWindowInsets first, then the children until the insets are consumed
+     */
+    @Override
+    public WindowInsets dispatchApplyWindowInsets(WindowInsets insets) {
+        insets = super.dispatchApplyWindowInsets(insets);
+        if (!insets.isConsumed()) {
+            for (View child : mChildren) {
+                if (child.dispatchApplyWindowInsets(insets).isConsumed()) {
+                    break;
+                }
+            }
+        }
+        return insets;
+    }
+    
+    @Override
+    public boolean dispatchTouchEvent(MotionEvent event) {
+        for (int i = mChildren.size() - 1; i >= 0; i--) {
+            if (mChildren.get(i).dispatchTouchEvent(event)) {
+                return true;
+            }
+        }
+        return super.dispatchTouchEvent(event);
+    }
+    
+    @Override
+    protected void onLayout(int left, int top, int right, int bottom) {
+        int width = right - left;
+        int height = bottom - top;
+        for (View child : mChildren) {
+            child.layout(mPaddingLeft, mPaddingTop, width - mPaddingRight, height - mPaddingBottom);
+        }
+    }
+    
+    @Override
+    @SuppressWarnings("unchecked")
+    <T extends View> T findViewTraversal(int id) {
+        if (id == getId()) {
+            return (T) this;
+        }
+        for (View child : mChildren) {
+            T found = child.findViewTraversal(id);
+            if (found != null) {
+                return found;
+            }
+        }
+        return null;
+    }
+    
+    @Override
+    void dispatchAttachedToWindow(AttachInfo info) {
+        super.dispatchAttachedToWindow(info);
+        for (View child : mChildren) {
+            child.dispatchAttachedToWindow(info);
+        }
+    }
+    
+    @Override
+    void dispatchDetachedFromWindow() {
+        for (View child : mChildren) {
+            child.dispatchDetachedFromWindow();
+        }
+        super.dispatchDetachedFromWindow();
+    }
+}
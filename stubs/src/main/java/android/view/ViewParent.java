@@ -0,0 +1,21 @@
+package android.view;
+
+/**
+ * Parent of a view: a ViewGroup, or the ViewRootImpl of a window's root view
+ */
+public interface ViewParent {
+    
+    void requestLayout();
+    
+    /**
+     * A view's system UI visibility changed, the window's collected value needs recomputing
+     */
+    void recomputeViewAttributes(View child);
+    
+    /**
+     * A view asked for the window insets to be dispatched again
+     */
+    void requestFitSystemWindows();
+    
+    ViewParent getParent();
+}
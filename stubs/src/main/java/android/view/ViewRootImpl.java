@@ -0,0 +1,326 @@
+package android.view;
+
+import android.os.Build;
+
+import com.example.forcestatusbar.sim.HookedMethod;
+import com.example.forcestatusbar.sim.SimClock;
+import com.example.forcestatusbar.sim.WindowServer;
+
+/**
+ * Top of a window's view hierarchy and its link to the window server.
+ *
+ * A traversal runs the steps of the framework's performTraversals that decide
+ * where the status bar ends up: collect the hierarchy's system UI visibility,
+ * on Android 11+ turn the legacy hide flags into insets controller calls,
+ * relayout with the window server when the attributes changed, dispatch
+ * insets when they changed, lay out and draw. Each step is counted, per
+ * window and in {@link WindowServer}.
+ */
+public final class ViewRootImpl implements ViewParent {
+    
+    private static final HookedMethod COLLECT_VIEW_ATTRIBUTES =
+        HookedMethod.of(ViewRootImpl.class, "collectViewAttributes");
+    private static final HookedMethod DISPATCH_APPLY_INSETS =
+        HookedMethod.of(ViewRootImpl.class, "dispatchApplyInsets", View.class);
+    
+    // Simulated cost of the parts of a frame, for the frame metrics
+    private static final long DRAW_NS = 4000000L;
+    private static final long RELAYOUT_NS = 6000000L;
+    private static final long LAYOUT_NS = 3000000L;
+    
+    final WindowManager.LayoutParams mWindowAttributes = new WindowManager.LayoutParams();
+    final View.AttachInfo mAttachInfo;
+    View mView;
+    
+    private final Display mDisplay;
+    private final InsetsController mInsetsController;
+    private final Runnable mTraversalRunnable = this::doTraversal;
+    
+    private boolean mFirst = true;
+    private boolean mTraversalScheduled;
+    private boolean mInTraversal;
+    private boolean mLayoutRequested;
+    private boolean mApplyInsetsRequested;
+    private boolean mWindowAttributesChanged;
+    private boolean mForceNextWindowRelayout;
+    private boolean mInsetsChanged;
+    private boolean mRemoved;
+    
+    // Status bar hidden by the legacy flags, Android 11+
+    private boolean mStatusHiddenByFlags;
+    
+    // Last relayout result
+    private final WindowServer.Frame mFrame = new WindowServer.Frame();
+    private WindowInsets mLastInsets;
+    private int mDispatchedInsetTop = -1;
+    
+    // Per-window counters
+    private int mTraversals;
+    private int mRelayouts;
+    private int mAttributeUpdates;
+    private int mDraws;
+    
+    public ViewRootImpl(Display display) {
+        mDisplay = display;
+        mAttachInfo = new View.AttachInfo(this);
+        mInsetsController = new InsetsController(this);
+    }
+    
+    public void setView(View view, WindowManager.LayoutParams attrs) {
+        mView = view;
+        mWindowAttributes.copyFrom(attrs);
+        view.assignParent(this);
+        WindowServer.addWindow(this);
+        mAttachInfo.mRecomputeGlobalAttributes = true;
+        mApplyInsetsRequested = true;
+        view.dispatchAttachedToWindow(mAttachInfo);
+        if (view instanceof com.android.internal.policy.DecorView) {
+            ((com.android.internal.policy.DecorView) view).getPendingInsetsController()
+                .replayAndAttach(mInsetsController);
+        }
+        requestLayout();
+    }
+    
+    public Display getDisplay() {
+        return mDisplay;
+    }
+    
+    public View getView() {
+        return mView;
+    }
+    
+    public WindowManager.LayoutParams getWindowAttributes() {
+        return mWindowAttributes;
+    }
+    
+    public InsetsController getInsetsController() {
+        return mInsetsController;
+    }
+    
+    /**
+     * The attributes of the window changed, every call is a round trip to the window server
+     */
+    void setLayoutParams(WindowManager.LayoutParams attrs) {
+        mWindowAttributes.copyFrom(attrs);
+        mWindowAttributesChanged = true;
+        mAttributeUpdates++;
+        WindowServer.countAttributeUpdate();
+        scheduleTraversals();
+    }
+    
+    /**
+     * The display changed under the window
+     */
+    public void forceRelayout() {
+        mForceNextWindowRelayout = true;
+        mLayoutRequested = true;
+        scheduleTraversals();
+    }
+    
+    void onRequestedVisibilityChanged() {
+        WindowServer.countVisibilityRequest();
+        mInsetsChanged = true;
+        scheduleTraversals();
+    }
+    
+    @Override
+    public void requestLayout() {
+        mLayoutRequested = true;
+        if (!mInTraversal) {
+            scheduleTraversals();
+        }
+    }
+    
+    @Override
+    public void recomputeViewAttributes(View child) {
+        mAttachInfo.mRecomputeGlobalAttributes = true;
+        scheduleTraversals();
+    }
+    
+    @Override
+    public void requestFitSystemWindows() {
+        mApplyInsetsRequested = true;
+        scheduleTraversals();
+    }
+    
+    @Override
+    public ViewParent getParent() {
+        return null;
+    }
+    
+    public boolean isTraversalScheduled() {
+        return mTraversalScheduled;
+    }
+    
+    void scheduleTraversals() {
+        if (!mTraversalScheduled && !mRemoved) {
+            mTraversalScheduled = true;
+            Choreographer.getInstance().postCallback(Choreographer.CALLBACK_TRAVERSAL, mTraversalRunnable, null);
+        }
+    }
+    
+    private void doTraversal() {
+        if (mTraversalScheduled) {
+            mTraversalScheduled = false;
+            performTraversals();
+        }
+    }
+    
+    private void performTraversals() {
+        mInTraversal = true;
+        mTraversals++;
+        WindowServer.countTraversal();
+        long cost = DRAW_NS;
+        
+        boolean relayout = mFirst || mForceNextWindowRelayout || mWindowAttributesChanged;
+        mWindowAttributesChanged = false;
+        mForceNextWindowRelayout = false;
+        if (collectViewAttributes()) {
+            relayout = true;
+        }
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.R) {
+            controlInsetsForCompatibility(mWindowAttributes);
+        }
+        
+        if (relayout || mInsetsChanged) {
+            int oldFrameTop = mFrame.top;
+            int oldInsetTop = mFrame.insetTop;
+            boolean oldVisible = mFrame.statusBarVisible;
+            if (relayout) {
+                mRelayouts++;
+                cost += RELAYOUT_NS;
+            }
+            WindowServer.relayout(this, relayout, mFrame);
+            if (mFrame.top != oldFrameTop || mFirst) {
+                mLayoutRequested = true;
+            }
+            if (mFrame.insetTop != oldInsetTop || mFrame.statusBarVisible != oldVisible || mLastInsets == null) {
+                mLastInsets = new WindowInsets(mFrame.insetTop, mFrame.statusBarVisible);
+            }
+            mInsetsChanged = false;
+        }
+        
+        if (mApplyInsetsRequested || mFrame.insetTop != mDispatchedInsetTop) {
+            mApplyInsetsRequested = false;
+            mDispatchedInsetTop = mFrame.insetTop;
+            dispatchApplyInsets(mView);
+        }
+        
+        if (mLayoutRequested) {
+            mLayoutRequested = false;
+            cost += LAYOUT_NS;
+            WindowServer.countLayoutPass();
+            mView.layout(0, 0, mFrame.width, mFrame.height);
+        }
+        
+        mFirst = false;
+        mInTraversal = false;
+        mDraws++;
+        mAttachInfo.mTreeObserver.dispatchOnDraw();
+        mView.dispatchFrameMetrics(Choreographer.getInstance().getFrameTimeNanos(), cost);
+    }
+    
+    /**
+     * Collect the system UI visibility of the hierarchy into the attributes, returns whether it changed
+     */
+    boolean collectViewAttributes() {
+        return (boolean) COLLECT_VIEW_ATTRIBUTES.invoke(this,
+            (self, args) -> ((ViewRootImpl) self).collectViewAttributesInternal());
+    }
+    
+    private boolean collectViewAttributesInternal() {
+        if (!mAttachInfo.mRecomputeGlobalAttributes) {
+            return false;
+        }
+        mAttachInfo.mRecomputeGlobalAttributes = false;
+        mAttachInfo.mSystemUiVisibility = 0;
+        mView.dispatchCollectViewAttributes(mAttachInfo, 0);
+        WindowManager.LayoutParams params = mWindowAttributes;
+        if (mAttachInfo.mSystemUiVisibility != params.subtreeSystemUiVisibility) {
+            params.subtreeSystemUiVisibility = mAttachInfo.mSystemUiVisibility;
+            return true;
+        }
+        return false;
+    }
+    
+    /**
+     * Android 11+: hiding the status bar with FLAG_FULLSCREEN or SYSTEM_UI_FLAG_FULLSCREEN becomes a
+     * hide() on the window's insets controller, clearing them a show()
+     */
+    private void controlInsetsForCompatibility(WindowManager.LayoutParams params) {
+        int sysUiVis = params.systemUiVisibility | params.subtreeSystemUiVisibility;
+        boolean matchParent = params.width == ViewGroup.LayoutParams.MATCH_PARENT
+            && params.height == ViewGroup.LayoutParams.MATCH_PARENT;
+        boolean hidden = (sysUiVis & View.SYSTEM_UI_FLAG_FULLSCREEN) != 0
+            || (params.flags & WindowManager.LayoutParams.FLAG_FULLSCREEN) != 0 && matchParent;
+        if (hidden && !mStatusHiddenByFlags) {
+            mInsetsController.hide(WindowInsets.Type.statusBars());
+        } else if (!hidden && mStatusHiddenByFlags) {
+            mInsetsController.show(WindowInsets.Type.statusBars());
+        }
+        mStatusHiddenByFlags = hidden;
+    }
+    
+    void dispatchApplyInsets(View host) {
+        DISPATCH_APPLY_INSETS.invoke(this, (self, args) -> {
+            ((View) args[0]).dispatchApplyWindowInsets(((ViewRootImpl) self).mLastInsets);
+            return null;
+        }, host);
+    }
+    
+    WindowInsets getWindowInsets() {
+        return mLastInsets;
+    }
+    
+    /**
+     * Deliver a touch at window coordinates, as the input stage does
+     */
+    public boolean dispatchTouch(float x, float y) {
+        MotionEvent event = MotionEvent.obtain(0, SimClock.uptimeMillis(), MotionEvent.ACTION_DOWN, x, y, 0);
+        return mView.dispatchPointerEvent(event);
+    }
+    
+    public void die() {
+        if (mRemoved) {
+            return;
+        }
+        mRemoved = true;
+        if (mTraversalScheduled) {
+            mTraversalScheduled = false;
+            Choreographer.getInstance().removeCallbacks(Choreographer.CALLBACK_TRAVERSAL, mTraversalRunnable, null);
+        }
+        if (mView instanceof com.android.internal.policy.DecorView) {
+            ((com.android.internal.policy.DecorView) mView).getPendingInsetsController().detach();
+        }
+        mView.dispatchDetachedFromWindow();
+        mView.assignParent(null);
+        WindowServer.removeWindow(this);
+        mView = null;
+    }
+    
+    public boolean isRemoved() {
+        return mRemoved;
+    }
+    
+    // Last relayout result and per-window counters, for the simulator
+    
+    public WindowServer.Frame frame() {
+        return mFrame;
+    }
+    
+    public int traversals() {
+        return mTraversals;
+    }
+    
+    public int relayouts() {
+        return mRelayouts;
+    }
+    
+    public int attributeUpdates() {
+        return mAttributeUpdates;
+    }
+    
+    public int draws() {
+        return mDraws;
+    }
+}
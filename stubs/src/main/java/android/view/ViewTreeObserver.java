@@ -0,0 +1,47 @@
+package android.view;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Draw listeners of one window, or of a view before it is attached
+ */
+public final class ViewTreeObserver {
+    
+    public interface OnDrawListener {
+        void onDraw();
+    }
+    
+    private List<OnDrawListener> mOnDrawListeners;
+    
+    public void addOnDrawListener(OnDrawListener listener) {
+        if (mOnDrawListeners == null) {
+            mOnDrawListeners = new ArrayList<>();
+        }
+        mOnDrawListeners.add(listener);
+    }
+    
+    public void removeOnDrawListener(OnDrawListener listener) {
+        if (mOnDrawListeners != null) {
+            mOnDrawListeners.remove(listener);
+        }
+    }
+    
+    void merge(ViewTreeObserver observer) {
+        if (observer.mOnDrawListeners != null) {
+            for (OnDrawListener listener : observer.mOnDrawListeners) {
+                addOnDrawListener(listener);
+            }
+        }
+    }
+    
+    public final void dispatchOnDraw() {
+        if (mOnDrawListeners == null) {
+            return;
+        }
+        // Listeners may remove themselves while drawn
+        for (OnDrawListener listener : new ArrayList<>(mOnDrawListeners)) {
+            listener.onDraw();
+        }
+    }
+}
@@ -0,0 +1,126 @@
+package android.view;
+
+import android.content.Context;
+import android.os.Handler;
+
+import com.example.forcestatusbar.sim.HookedMethod;
+
+/**
+ * Base of a top-level window, as in the framework: flags and attributes live
+ * here, the decor and the colors in the PhoneWindow subclass. Every change to
+ * the attributes is reported to the callback (the Activity or Dialog), which
+ * pushes them to the window manager once the window is added.
+ */
+public abstract class Window {
+    
+    private static final HookedMethod SET_FLAGS = HookedMethod.of(Window.class, "setFlags", int.class, int.class);
+    private static final HookedMethod ADD_FLAGS = HookedMethod.of(Window.class, "addFlags", int.class);
+    private static final HookedMethod CLEAR_FLAGS = HookedMethod.of(Window.class, "clearFlags", int.class);
+    
+    public interface Callback {
+        void onWindowAttributesChanged(WindowManager.LayoutParams attrs);
+        
+        void onWindowFocusChanged(boolean hasFocus);
+    }
+    
+    public interface OnFrameMetricsAvailableListener {
+        void onFrameMetricsAvailable(Window window, FrameMetrics frameMetrics, int dropCountSinceLastInvocation);
+    }
+    
+    private final Context mContext;
+    private final WindowManager.LayoutParams mWindowAttributes = new WindowManager.LayoutParams();
+    private Callback mCallback;
+    private WindowManager mWindowManager;
+    private Window mContainer;
+    
+    public Window(Context context) {
+        mContext = context;
+    }
+    
+    public final Context getContext() {
+        return mContext;
+    }
+    
+    public void setCallback(Callback callback) {
+        mCallback = callback;
+    }
+    
+    public final Callback getCallback() {
+        return mCallback;
+    }
+    
+    public void setWindowManager(WindowManager wm) {
+        mWindowManager = wm;
+    }
+    
+    public WindowManager getWindowManager() {
+        return mWindowManager;
+    }
+    
+    /**
+     * Make this a sub-window (panel) of another window
+     */
+    public void setContainer(Window container) {
+        mContainer = container;
+    }
+    
+    public final Window getContainer() {
+        return mContainer;
+    }
+    
+    public final WindowManager.LayoutParams getAttributes() {
+        return mWindowAttributes;
+    }
+    
+    public void setAttributes(WindowManager.LayoutParams a) {
+        mWindowAttributes.copyFrom(a);
+        dispatchWindowAttributesChanged(mWindowAttributes);
+    }
+    
+    public void setFlags(int flags, int mask) {
+        SET_FLAGS.invoke(this, (self, args) -> {
+            Window window = (Window) self;
+            WindowManager.LayoutParams attrs = window.getAttributes();
+            attrs.flags = (attrs.flags & ~(int) args[1]) | ((int) args[0] & (int) args[1]);
+            window.dispatchWindowAttributesChanged(attrs);
+            return null;
+        }, flags, mask);
+    }
+    
+    public void addFlags(int flags) {
+        ADD_FLAGS.invoke(this, (self, args) -> {
+            ((Window) self).setFlags((int) args[0], (int) args[0]);
+            return null;
+        }, flags);
+    }
+    
+    public void clearFlags(int flags) {
+        CLEAR_FLAGS.invoke(this, (self, args) -> {
+            ((Window) self).setFlags(0, (int) args[0]);
+            return null;
+        }, flags);
+    }
+    
+    protected void dispatchWindowAttributesChanged(WindowManager.LayoutParams attrs) {
+        if (mCallback != null) {
+            mCallback.onWindowAttributesChanged(attrs);
+        }
+    }
+    
+    public abstract View getDecorView();
+    
+    public abstract View peekDecorView();
+    
+    public abstract void setContentView(View view);
+    
+    public abstract int getStatusBarColor();
+    
+    public abstract void setStatusBarColor(int color);
+    
+    public abstract void setDecorFitsSystemWindows(boolean decorFitsSystemWindows);
+    
+    public abstract WindowInsetsController getInsetsController();
+    
+    public abstract void addOnFrameMetricsAvailableListener(OnFrameMetricsAvailableListener listener,
+            Handler handler);
+}
@@ -0,0 +1,70 @@
+package android.view;
+
+import android.graphics.Insets;
+
+/**
+ * Insets a window dispatches to its views. Only the status bar is modelled:
+ * its inset is the part of the window it covers, zero when the bar is hidden
+ * or the window frame already keeps clear of it.
+ */
+public final class WindowInsets {
+    
+    public static final WindowInsets CONSUMED = new WindowInsets(0, false);
+    
+    private final Insets statusBars;
+    private final boolean statusBarVisible;
+    private final boolean consumed;
+    
+    WindowInsets(int statusBarTop, boolean statusBarVisible) {
+        this(Insets.of(0, statusBarTop, 0, 0), statusBarVisible, false);
+    }
+    
+    private WindowInsets(Insets statusBars, boolean statusBarVisible, boolean consumed) {
+        this.statusBars = statusBars;
+        this.statusBarVisible = statusBarVisible;
+        this.consumed = consumed;
+    }
+    
+    /**
+     * Insets of the given types; like the framework's per-type table, nothing is allocated per call
+     */
+    public Insets getInsets(int typeMask) {
+        return (typeMask & Type.statusBars()) != 0 ? statusBars : Insets.NONE;
+    }
+    
+    public boolean isVisible(int typeMask) {
+        return (typeMask & Type.statusBars()) == 0 || statusBarVisible;
+    }
+    
+    @Deprecated
+    public int getSystemWindowInsetTop() {
+        return statusBars.top;
+    }
+    
+    @Deprecated
+    public WindowInsets consumeSystemWindowInsets() {
+        return new WindowInsets(Insets.NONE, statusBarVisible, true);
+    }
+    
+    public boolean isConsumed() {
+        return consumed;
+    }
+    
+    public static final class Type {
+        
+        private Type() {
+        }
+        
+        public static int statusBars() {
+            return 1;
+        }
+        
+        public static int navigationBars() {
+            return 1 << 1;
+        }
+        
+        public static int systemBars() {
+            return statusBars() | navigationBars();
+        }
+    }
+}
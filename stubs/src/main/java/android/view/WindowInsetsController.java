@@ -0,0 +1,11 @@
+package android.view;
+
+/**
+ * Control over the system bars of a window, Android 11+
+ */
+public interface WindowInsetsController {
+    
+    void hide(int types);
+    
+    void show(int types);
+}
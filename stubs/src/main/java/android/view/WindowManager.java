@@ -0,0 +1,91 @@
+package android.view;
+
+/**
+ * Adds, updates and removes the windows of the app
+ */
+public interface WindowManager {
+    
+    Display getDefaultDisplay();
+    
+    void addView(View view, ViewGroup.LayoutParams params);
+    
+    void updateViewLayout(View view, ViewGroup.LayoutParams params);
+    
+    void removeView(View view);
+    
+    void removeViewImmediate(View view);
+    
+    class LayoutParams extends ViewGroup.LayoutParams {
+        
+        public static final int TYPE_BASE_APPLICATION = 1;
+        public static final int TYPE_APPLICATION = 2;
+        
+        public static final int FLAG_LAYOUT_IN_SCREEN = 0x00000100;
+        public static final int FLAG_LAYOUT_NO_LIMITS = 0x00000200;
+        public static final int FLAG_FULLSCREEN = 0x00000400;
+        public static final int FLAG_FORCE_NOT_FULLSCREEN = 0x00000800;
+        public static final int FLAG_TRANSLUCENT_STATUS = 0x04000000;
+        public static final int FLAG_DRAWS_SYSTEM_BAR_BACKGROUNDS = 0x80000000;
+        
+        // The fit insets types were set by the app, not derived from the legacy flags
+        public static final int PRIVATE_FLAG_FIT_INSETS_CONTROLLED = 0x10000000;
+        
+        public int type = TYPE_APPLICATION;
+        public int flags;
+        public int privateFlags;
+        public int systemUiVisibility;
+        public int subtreeSystemUiVisibility;
+        public String packageName;
+        private int mFitInsetsTypes = WindowInsets.Type.systemBars();
+        
+        public LayoutParams() {
+            super(MATCH_PARENT, MATCH_PARENT);
+        }
+        
+        public LayoutParams(int type) {
+            this();
+            this.type = type;
+        }
+        
+        public int getFitInsetsTypes() {
+            return mFitInsetsTypes;
+        }
+        
+        public void setFitInsetsTypes(int types) {
+            mFitInsetsTypes = types;
+            privateFlags |= PRIVATE_FLAG_FIT_INSETS_CONTROLLED;
+        }
+        
+        public final int copyFrom(LayoutParams o) {
+            int changes = 0;
+            if (width != o.width || height != o.height) {
+                width = o.width;
+                height = o.height;
+                changes |= 1;
+            }
+            if (type != o.type) {
+                type = o.type;
+                changes |= 2;
+            }
+            if (flags != o.flags) {
+                flags = o.flags;
+                changes |= 4;
+            }
+            if (privateFlags != o.privateFlags || mFitInsetsTypes != o.mFitInsetsTypes) {
+                privateFlags = o.privateFlags;
+                mFitInsetsTypes = o.mFitInsetsTypes;
+                changes |= 8;
+            }
+            if (systemUiVisibility != o.systemUiVisibility
+                    || subtreeSystemUiVisibility != o.subtreeSystemUiVisibility) {
+                systemUiVisibility = o.systemUiVisibility;
+                subtreeSystemUiVisibility = o.subtreeSystemUiVisibility;
+                changes |= 16;
+            }
+            if (o.packageName != null) {
+                packageName = o.packageName;
+            }
+            return changes;
+        }
+    }
+}
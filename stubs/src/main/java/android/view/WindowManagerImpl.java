@@ -0,0 +1,45 @@
+package android.view;
+
+/**
+ * The window manager of one context: each added view gets a view root
+ */
+public final class WindowManagerImpl implements WindowManager {
+    
+    @Override
+    public Display getDefaultDisplay() {
+        return Display.getDefault();
+    }
+    
+    @Override
+    public void addView(View view, ViewGroup.LayoutParams params) {
+        if (!(params instanceof LayoutParams)) {
+            throw new IllegalArgumentException("Params must be WindowManager.LayoutParams");
+        }
+        if (view.getParent() != null) {
+            throw new IllegalStateException("View " + view + " has already been added to the window manager.");
+        }
+        new ViewRootImpl(Display.getDefault()).setView(view, (LayoutParams) params);
+    }
+    
+    @Override
+    public void updateViewLayout(View view, ViewGroup.LayoutParams params) {
+        rootOf(view).setLayoutParams((LayoutParams) params);
+    }
+    
+    @Override
+    public void removeView(View view) {
+        removeViewImmediate(view);
+    }
+    
+    @Override
+    public void removeViewImmediate(View view) {
+        rootOf(view).die();
+    }
+    
+    private static ViewRootImpl rootOf(View view) {
+        if (!(view.getParent() instanceof ViewRootImpl)) {
+            throw new IllegalArgumentException("View=" + view + " not attached to window manager");
+        }
+        return (ViewRootImpl) view.getParent();
+    }
+}
@@ -0,0 +1,35 @@
+package com.android.internal.policy;
+
+import android.view.PendingInsetsController;
+import android.view.ViewGroup;
+import android.view.WindowInsetsController;
+
+/**
+ * Root view of a PhoneWindow. Until it is added, its insets controller is the
+ * window's pending one.
+ */
+public class DecorView extends ViewGroup {
+    
+    private final PhoneWindow mWindow;
+    private final PendingInsetsController mPendingInsetsController = new PendingInsetsController();
+    
+    DecorView(PhoneWindow window) {
+        mWindow = window;
+    }
+    
+    public PhoneWindow getWindow() {
+        return mWindow;
+    }
+    
+    public PendingInsetsController getPendingInsetsController() {
+        return mPendingInsetsController;
+    }
+    
+    @Override
+    public WindowInsetsController getWindowInsetsController() {
+        if (isAttachedToWindow()) {
+            return super.getWindowInsetsController();
+        }
+        return mPendingInsetsController;
+    }
+}
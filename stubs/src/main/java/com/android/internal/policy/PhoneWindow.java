@@ -0,0 +1,95 @@
+package com.android.internal.policy;
+
+import android.content.Context;
+import android.os.Build;
+import android.os.Handler;
+import android.view.View;
+import android.view.ViewGroup;
+import android.view.Window;
+import android.view.WindowInsets;
+import android.view.WindowInsetsController;
+import android.view.WindowManager;
+
+import com.example.forcestatusbar.sim.HookedMethod;
+
+/**
+ * The window of every Activity and Dialog: a DecorView holding the content
+ * parent ({@code android.R.id.content}) that setContentView fills.
+ */
+public class PhoneWindow extends Window {
+    
+    private static final HookedMethod SET_STATUS_BAR_COLOR =
+        HookedMethod.of(PhoneWindow.class, "setStatusBarColor", int.class);
+    
+    private DecorView mDecor;
+    private ViewGroup mContentParent;
+    private int mStatusBarColor = 0xFF000000;
+    
+    public PhoneWindow(Context context) {
+        super(context);
+    }
+    
+    @Override
+    public View getDecorView() {
+        if (mDecor == null) {
+            installDecor();
+        }
+        return mDecor;
+    }
+    
+    @Override
+    public View peekDecorView() {
+        return mDecor;
+    }
+    
+    private void installDecor() {
+        mDecor = new DecorView(this);
+        mContentParent = new ViewGroup();
+        mContentParent.setId(android.R.id.content);
+        mDecor.addView(mContentParent);
+    }
+    
+    @Override
+    public void setContentView(View view) {
+        if (mContentParent == null) {
+            installDecor();
+        } else {
+            mContentParent.removeAllViews();
+        }
+        mContentParent.addView(view);
+    }
+    
+    @Override
+    public int getStatusBarColor() {
+        return mStatusBarColor;
+    }
+    
+    @Override
+    public void setStatusBarColor(int color) {
+        SET_STATUS_BAR_COLOR.invoke(this, (self, args) -> {
+            // Redraws the status bar background, no relayout
+            ((PhoneWindow) self).mStatusBarColor = (int) args[0];
+            return null;
+        }, color);
+    }
+    
+    @Override
+    public void setDecorFitsSystemWindows(boolean decorFitsSystemWindows) {
+        if (Build.VERSION.SDK_INT < Build.VERSION_CODES.R) {
+            throw new NoSuchMethodError("setDecorFitsSystemWindows");
+        }
+        WindowManager.LayoutParams attrs = getAttributes();
+        attrs.setFitInsetsTypes(decorFitsSystemWindows ? WindowInsets.Type.systemBars() : 0);
+        dispatchWindowAttributesChanged(attrs);
+    }
+    
+    @Override
+    public WindowInsetsController getInsetsController() {
+        return getDecorView().getWindowInsetsController();
+    }
+    
+    @Override
+    public void addOnFrameMetricsAvailableListener(OnFrameMetricsAvailableListener listener, Handler handler) {
+        getDecorView().addFrameMetricsListener(this, listener, handler);
+    }
+}
@@ -0,0 +1,256 @@
+package com.example.forcestatusbar.sim;
+
+import java.lang.management.ManagementFactory;
+import java.lang.reflect.Member;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import de.robv.android.xposed.XC_MethodHook;
+import de.robv.android.xposed.XposedBridge;
+
+/**
+ * A framework method of the fakes that runs the Xposed callbacks installed on it,
+ * which is what ART does for a method the module hooked.
+ *
+ * Each hookable fake method declares one and routes its body through
+ * {@link #invoke}; {@code XposedBridge.hookMethod} adds the callbacks. They
+ * run as in XposedBridge.handleHookedMethod: befores in order, a before that
+ * sets a result skips the original and the befores after it, afters in
+ * reverse order, and a callback that throws is logged while the call goes on.
+ *
+ * The time and the bytes the module's callbacks spend are accounted per
+ * method, excluding the original and whatever hooked methods the callbacks
+ * call themselves, which are accounted to those. Allocations are read from the
+ * thread's allocation counter. Only called from the simulated main thread.
+ */
+public final class HookedMethod {
+    
+    /**
+     * The body of the fake method, run with the arguments as the callbacks left them
+     */
+    public interface Original {
+        Object call(Object thisObject, Object[] args);
+    }
+    
+    private static final XC_MethodHook[] NONE = {};
+    
+    // Every hookable method the fakes declare, in declaration order
+    private static final Map<Member, HookedMethod> methods = new LinkedHashMap<>();
+    
+    private static final com.sun.management.ThreadMXBean threads = allocationCounter();
+    
+    // Callback time and bytes of the dispatches nested in the one being accounted
+    private static long nestedNs;
+    private static long nestedBytes;
+    
+    private final Method method;
+    private volatile XC_MethodHook[] callbacks = NONE;
+    
+    private long calls;
+    private long callbackNs;
+    private long callbackBytes;
+    
+    private HookedMethod(Method method) {
+        this.method = method;
+    }
+    
+    /**
+     * The hookable method {@code clazz.name(params)}, declared once by the fake that implements it
+     */
+    public static HookedMethod of(Class<?> clazz, String name, Class<?>... params) {
+        try {
+            return forMember(clazz.getDeclaredMethod(name, params));
+        } catch (NoSuchMethodException e) {
+            throw new IllegalStateException("No " + clazz.getName() + "." + name, e);
+        }
+    }
+    
+    /**
+     * Where XposedBridge installs callbacks on a method; methods no fake routes never run them
+     */
+    public static synchronized HookedMethod forMember(Member member) {
+        if (!(member instanceof Method)) {
+            throw new IllegalArgumentException("Only methods can be hooked here: " + member);
+        }
+        HookedMethod hooked = methods.get(member);
+        if (hooked == null) {
+            hooked = new HookedMethod((Method) member);
+            methods.put(member, hooked);
+        }
+        return hooked;
+    }
+    
+    public static synchronized List<HookedMethod> all() {
+        return new ArrayList<>(methods.values());
+    }
+    
+    public synchronized void add(XC_MethodHook callback) {
+        XC_MethodHook[] current = callbacks;
+        for (XC_MethodHook existing : current) {
+            if (existing == callback) {
+                return;
+            }
+        }
+        XC_MethodHook[] updated = Arrays.copyOf(current, current.length + 1);
+        updated[current.length] = callback;
+        // Higher priority first, then in the order they were installed
+        Arrays.sort(updated, (a, b) -> Integer.compare(b.priority, a.priority));
+        callbacks = updated;
+    }
+    
+    public synchronized void remove(XC_MethodHook callback) {
+        XC_MethodHook[] current = callbacks;
+        List<XC_MethodHook> kept = new ArrayList<>(current.length);
+        for (XC_MethodHook existing : current) {
+            if (existing != callback) {
+                kept.add(existing);
+            }
+        }
+        callbacks = kept.isEmpty() ? NONE : kept.toArray(new XC_MethodHook[0]);
+    }
+    
+    public boolean isHooked() {
+        return callbacks.length > 0;
+    }
+    
+    public int callbackCount() {
+        return callbacks.length;
+    }
+    
+    public Method method() {
+        return method;
+    }
+    
+    /**
+     * {@code Class.method}, as the reports print it
+     */
+    public String name() {
+        return method.getDeclaringClass().getSimpleName() + "." + method.getName();
+    }
+    
+    /**
+     * Calls that went through at least one callback
+     */
+    public long calls() {
+        return calls;
+    }
+    
+    public long callbackNs() {
+        return callbackNs;
+    }
+    
+    /**
+     * Bytes allocated by the callbacks, -1 when the JVM cannot count allocations per thread
+     */
+    public long callbackBytes() {
+        return threads != null ? callbackBytes : -1;
+    }
+    
+    /**
+     * Run the call through the installed callbacks and the original
+     */
+    public Object invoke(Object thisObject, Original original, Object... args) {
+        XC_MethodHook[] callbacks = this.callbacks;
+        if (callbacks.length == 0) {
+            return original.call(thisObject, args);
+        }
+        XC_MethodHook.MethodHookParam param = new XC_MethodHook.MethodHookParam();
+        param.method = method;
+        param.thisObject = thisObject;
+        param.args = args;
+        
+        long outerNs = nestedNs;
+        long outerBytes = nestedBytes;
+        nestedNs = 0;
+        nestedBytes = 0;
+        long startBytes = allocatedBytes();
+        long start = System.nanoTime();
+        
+        int before = 0;
+        do {
+            try {
+                callbacks[before].callBeforeHookedMethod(param);
+            } catch (Throwable t) {
+                XposedBridge.log(t);
+                // Reset the result, the call goes on as if the callback was not there
+                param.setResult(null);
+                param.setReturnEarly(false);
+                continue;
+            }
+            if (param.returnEarly()) {
+                before++;
+                break;
+            }
+        } while (++before < callbacks.length);
+        
+        long ns = System.nanoTime() - start;
+        long bytes = allocatedBytes() - startBytes;
+        if (!param.returnEarly()) {
+            try {
+                param.setResult(original.call(param.thisObject, param.args));
+            } catch (RuntimeException | Error e) {
+                param.setThrowable(e);
+            }
+        }
+        startBytes = allocatedBytes();
+        start = System.nanoTime();
+        
+        int after = before - 1;
+        do {
+            Object lastResult = param.getResult();
+            Throwable lastThrowable = param.getThrowable();
+            try {
+                callbacks[after].callAfterHookedMethod(param);
+            } catch (Throwable t) {
+                XposedBridge.log(t);
+                if (lastThrowable == null) {
+                    param.setResult(lastResult);
+                } else {
+                    param.setThrowable(lastThrowable);
+                }
+            }
+        } while (--after >= 0);
+        
+        ns += System.nanoTime() - start;
+        bytes += allocatedBytes() - startBytes;
+        calls++;
+        callbackNs += ns - nestedNs;
+        callbackBytes += bytes - nestedBytes;
+        nestedNs = outerNs + ns;
+        nestedBytes = outerBytes + bytes;
+        
+        if (param.hasThrowable()) {
+            Throwable t = param.getThrowable();
+            if (t instanceof RuntimeException) {
+                throw (RuntimeException) t;
+            }
+            if (t instanceof Error) {
+                throw (Error) t;
+            }
+            throw new RuntimeException(t);
+        }
+        return param.getResult();
+    }
+    
+    private static long allocatedBytes() {
+        return threads != null ? threads.getThreadAllocatedBytes(Thread.currentThread().getId()) : 0;
+    }
+    
+    private static com.sun.management.ThreadMXBean allocationCounter() {
+        try {
+            com.sun.management.ThreadMXBean bean =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+            if (bean.isThreadAllocatedMemorySupported()) {
+                bean.setThreadAllocatedMemoryEnabled(true);
+                return bean;
+            }
+        } catch (RuntimeException | LinkageError e) {
+            // Not HotSpot
+        }
+        return null;
+    }
+}
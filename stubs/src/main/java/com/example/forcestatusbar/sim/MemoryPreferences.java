@@ -0,0 +1,134 @@
+package com.example.forcestatusbar.sim;
+
+import android.content.SharedPreferences;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * {@link SharedPreferences} kept in a map, edits are applied when committed.
+ * Backs the app's own preferences and, through XSharedPreferences, the module settings.
+ */
+public final class MemoryPreferences implements SharedPreferences {
+    
+    private final Map<String, Object> values = new HashMap<>();
+    
+    @Override
+    public synchronized Map<String, ?> getAll() {
+        return new HashMap<>(values);
+    }
+    
+    @Override
+    public synchronized String getString(String key, String defValue) {
+        Object value = values.get(key);
+        return value instanceof String ? (String) value : defValue;
+    }
+    
+    @Override
+    @SuppressWarnings("unchecked")
+    public synchronized Set<String> getStringSet(String key, Set<String> defValues) {
+        Object value = values.get(key);
+        return value instanceof Set ? new HashSet<>((Set<String>) value) : defValues;
+    }
+    
+    @Override
+    public synchronized int getInt(String key, int defValue) {
+        Object value = values.get(key);
+        return value instanceof Integer ? (Integer) value : defValue;
+    }
+    
+    @Override
+    public synchronized long getLong(String key, long defValue) {
+        Object value = values.get(key);
+        return value instanceof Long ? (Long) value : defValue;
+    }
+    
+    @Override
+    public synchronized boolean getBoolean(String key, boolean defValue) {
+        Object value = values.get(key);
+        return value instanceof Boolean ? (Boolean) value : defValue;
+    }
+    
+    @Override
+    public synchronized boolean contains(String key) {
+        return values.containsKey(key);
+    }
+    
+    @Override
+    public Editor edit() {
+        return new MemoryEditor();
+    }
+    
+    private final class MemoryEditor implements Editor {
+        
+        // Null values are removals
+        private final Map<String, Object> changes = new HashMap<>();
+        private boolean clear;
+        
+        @Override
+        public Editor putString(String key, String value) {
+            changes.put(key, value);
+            return this;
+        }
+        
+        @Override
+        public Editor putStringSet(String key, Set<String> values) {
+            changes.put(key, values != null ? new HashSet<>(values) : null);
+            return this;
+        }
+        
+        @Override
+        public Editor putInt(String key, int value) {
+            changes.put(key, value);
+            return this;
+        }
+        
+        @Override
+        public Editor putLong(String key, long value) {
+            changes.put(key, value);
+            return this;
+        }
+        
+        @Override
+        public Editor putBoolean(String key, boolean value) {
+            changes.put(key, value);
+            return this;
+        }
+        
+        @Override
+        public Editor remove(String key) {
+            changes.put(key, null);
+            return this;
+        }
+        
+        @Override
+        public Editor clear() {
+            clear = true;
+            return this;
+        }
+        
+        @Override
+        public boolean commit() {
+            synchronized (MemoryPreferences.this) {
+                if (clear) {
+                    values.clear();
+                }
+                for (Map.Entry<String, Object> change : changes.entrySet()) {
+                    if (change.getValue() == null) {
+                        values.remove(change.getKey());
+                    } else {
+                        values.put(change.getKey(), change.getValue());
+                    }
+                }
+            }
+            return true;
+        }
+        
+        @Override
+        public void apply() {
+            commit();
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package com.example.forcestatusbar.sim;
+
+/**
+ * The simulated time every fake reads: SystemClock, the looper, the choreographer
+ * and, through its clock hook, the fight-back detector.
+ *
+ * Time only moves when the simulator advances it, one vsync at a time, so a
+ * run is reproducible whatever the machine it runs on. Only touched from the
+ * simulated main thread.
+ */
+public final class SimClock {
+    
+    // 60 Hz
+    public static final long FRAME_NS = 16666667L;
+    
+    // Far from zero, like the uptime of a device that has been on for a while
+    private static long nanos = 3600L * 1000000000L;
+    
+    private SimClock() {
+    }
+    
+    public static long nanoTime() {
+        return nanos;
+    }
+    
+    public static long uptimeMillis() {
+        return nanos / 1000000L;
+    }
+    
+    public static void advance(long deltaNs) {
+        nanos += deltaNs;
+    }
+}
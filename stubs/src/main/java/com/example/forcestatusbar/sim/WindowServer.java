@@ -0,0 +1,175 @@
+package com.example.forcestatusbar.sim;
+
+import android.content.res.Configuration;
+import android.os.Build;
+import android.util.DisplayMetrics;
+import android.view.View;
+import android.view.ViewRootImpl;
+import android.view.WindowInsets;
+import android.view.WindowManager;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The window manager service side of the simulation: one phone-sized display
+ * with a status bar, the live windows, and counters of the round trips the
+ * app makes to it.
+ *
+ * A relayout decides for one window whether the status bar shows and where
+ * the window frame starts, from its attributes and, on Android 11+, from what
+ * its insets controller requests. The rules are the framework's for an app
+ * window, reduced to the status bar: the bar hides on FLAG_FULLSCREEN (unless
+ * FLAG_FORCE_NOT_FULLSCREEN) or SYSTEM_UI_FLAG_FULLSCREEN before Android 11
+ * and on a hide() of the controller after, and the frame keeps clear of a
+ * shown bar unless the window lays out behind it. Navigation bar, cutouts and
+ * multi-window are not modelled. Only touched from the simulated main thread.
+ */
+public final class WindowServer {
+    
+    public static final int STATUS_BAR_HEIGHT_DP = 24;
+    
+    private static final int SHORT_SIDE = 1080;
+    private static final int LONG_SIDE = 2400;
+    private static final int DENSITY_DPI = 420;
+    private static final float DENSITY = DENSITY_DPI / (float) DisplayMetrics.DENSITY_DEFAULT;
+    
+    /**
+     * Result of a relayout
+     */
+    public static final class Frame {
+        // Top of the window frame on screen, and its size
+        public int top;
+        public int width;
+        public int height;
+        // Part of the window under the status bar
+        public int insetTop;
+        public boolean statusBarVisible;
+    }
+    
+    private static final List<ViewRootImpl> windows = new ArrayList<>();
+    private static int rotation;
+    
+    private static long attributeUpdates;
+    private static long relayouts;
+    private static long visibilityRequests;
+    private static long traversals;
+    private static long layoutPasses;
+    
+    private WindowServer() {
+    }
+    
+    public static int screenWidth() {
+        return rotation % 2 == 0 ? SHORT_SIDE : LONG_SIDE;
+    }
+    
+    public static int screenHeight() {
+        return rotation % 2 == 0 ? LONG_SIDE : SHORT_SIDE;
+    }
+    
+    public static int statusBarHeight() {
+        return Math.round(STATUS_BAR_HEIGHT_DP * DENSITY);
+    }
+    
+    public static int rotation() {
+        return rotation;
+    }
+    
+    /**
+     * Turn the display by 90 degrees; every window is relaid out, the caller tells the activities
+     */
+    public static void rotate() {
+        rotation = (rotation + 1) % 4;
+        for (ViewRootImpl window : new ArrayList<>(windows)) {
+            window.forceRelayout();
+        }
+    }
+    
+    public static void fillMetrics(DisplayMetrics metrics) {
+        metrics.widthPixels = screenWidth();
+        metrics.heightPixels = screenHeight();
+        metrics.density = DENSITY;
+        metrics.densityDpi = DENSITY_DPI;
+    }
+    
+    public static void fillConfiguration(Configuration config) {
+        config.orientation = screenWidth() < screenHeight()
+            ? Configuration.ORIENTATION_PORTRAIT : Configuration.ORIENTATION_LANDSCAPE;
+        config.screenWidthDp = (int) (screenWidth() / DENSITY);
+        config.screenHeightDp = (int) (screenHeight() / DENSITY);
+        config.densityDpi = DENSITY_DPI;
+    }
+    
+    public static void addWindow(ViewRootImpl window) {
+        windows.add(window);
+    }
+    
+    public static void removeWindow(ViewRootImpl window) {
+        windows.remove(window);
+    }
+    
+    public static List<ViewRootImpl> windows() {
+        return new ArrayList<>(windows);
+    }
+    
+    /**
+     * Compute where the window goes and what the status bar covers of it
+     */
+    @SuppressWarnings("deprecation")
+    public static void relayout(ViewRootImpl window, boolean counted, Frame out) {
+        if (counted) {
+            relayouts++;
+        }
+        WindowManager.LayoutParams attrs = window.getWindowAttributes();
+        int sysui = attrs.systemUiVisibility | attrs.subtreeSystemUiVisibility;
+        boolean layoutBehindStatusBar = (sysui & View.SYSTEM_UI_FLAG_LAYOUT_FULLSCREEN) != 0
+            || (attrs.flags & (WindowManager.LayoutParams.FLAG_TRANSLUCENT_STATUS
+                | WindowManager.LayoutParams.FLAG_LAYOUT_NO_LIMITS)) != 0;
+        
+        boolean visible;
+        boolean fits;
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.R) {
+            visible = window.getInsetsController().isRequestedVisible(WindowInsets.Type.statusBars());
+            if ((attrs.privateFlags & WindowManager.LayoutParams.PRIVATE_FLAG_FIT_INSETS_CONTROLLED) != 0) {
+                fits = (attrs.getFitInsetsTypes() & WindowInsets.Type.statusBars()) != 0;
+            } else {
+                fits = !layoutBehindStatusBar;
+            }
+        } else {
+            boolean hiddenByFlags = (attrs.flags & WindowManager.LayoutParams.FLAG_FULLSCREEN) != 0
+                && (attrs.flags & WindowManager.LayoutParams.FLAG_FORCE_NOT_FULLSCREEN) == 0;
+            visible = !hiddenByFlags && (sysui & View.SYSTEM_UI_FLAG_FULLSCREEN) == 0;
+            fits = !layoutBehindStatusBar;
+        }
+        
+        int statusBar = statusBarHeight();
+        out.statusBarVisible = visible;
+        out.top = visible && fits ? statusBar : 0;
+        out.insetTop = visible && !fits ? statusBar : 0;
+        out.width = screenWidth();
+        out.height = screenHeight() - out.top;
+    }
+    
+    public static void countAttributeUpdate() {
+        attributeUpdates++;
+    }
+    
+    public static void countVisibilityRequest() {
+        visibilityRequests++;
+    }
+    
+    public static void countTraversal() {
+        traversals++;
+    }
+    
+    public static void countLayoutPass() {
+        layoutPasses++;
+    }
+    
+    /**
+     * {attribute updates, relayouts, visibility requests, traversals, layout passes}
+     */
+    public static long[] counters() {
+        return new long[] {attributeUpdates, relayouts, visibilityRequests, traversals, layoutPasses};
+    }
+}
@@ -0,0 +1,11 @@
+package de.robv.android.xposed;
+
+import de.robv.android.xposed.callbacks.XC_LoadPackage;
+
+/**
+ * Entry point of a module, called when a package is loaded into a process
+ */
+public interface IXposedHookLoadPackage {
+    
+    void handleLoadPackage(XC_LoadPackage.LoadPackageParam lpparam) throws Throwable;
+}
@@ -0,0 +1,118 @@
+package de.robv.android.xposed;
+
+import java.lang.reflect.Member;
+
+/**
+ * Xposed method hook callback, as far as the module, the simulator's dispatcher and the benchmarks use it
+ */
+public abstract class XC_MethodHook {
+    
+    public static final int PRIORITY_DEFAULT = 50;
+    
+    public final int priority;
+    
+    public XC_MethodHook() {
+        this(PRIORITY_DEFAULT);
+    }
+    
+    public XC_MethodHook(int priority) {
+        this.priority = priority;
+    }
+    
+    protected void beforeHookedMethod(MethodHookParam param) throws Throwable {
+    }
+    
+    protected void afterHookedMethod(MethodHookParam param) throws Throwable {
+    }
+    
+    // Public but hidden in the real API, the entry points of the dispatcher
+    public void callBeforeHookedMethod(MethodHookParam param) throws Throwable {
+        beforeHookedMethod(param);
+    }
+    
+    public void callAfterHookedMethod(MethodHookParam param) throws Throwable {
+        afterHookedMethod(param);
+    }
+    
+    public static final class MethodHookParam {
+        public Member method;
+        public Object thisObject;
+        public Object[] args;
+        
+        private Object result;
+        private Throwable throwable;
+        private boolean returnEarly;
+        
+        public Object getResult() {
+            return result;
+        }
+        
+        public void setResult(Object result) {
+            this.result = result;
+            this.throwable = null;
+            this.returnEarly = true;
+        }
+        
+        public Throwable getThrowable() {
+            return throwable;
+        }
+        
+        public boolean hasThrowable() {
+            return throwable != null;
+        }
+        
+        public void setThrowable(Throwable throwable) {
+            this.throwable = throwable;
+            this.result = null;
+            this.returnEarly = true;
+        }
+        
+        public Object getResultOrThrowable() throws Throwable {
+            if (throwable != null) {
+                throw throwable;
+            }
+            return result;
+        }
+        
+        // The dispatcher's access to the flag, a package-private field in the real API
+        public boolean returnEarly() {
+            return returnEarly;
+        }
+        
+        public void setReturnEarly(boolean returnEarly) {
+            this.returnEarly = returnEarly;
+        }
+        
+        /**
+         * Clear the outcome of the previous callback so the benchmarks can reuse a param across invocations
+         */
+        public void reset() {
+            result = null;
+            throwable = null;
+            returnEarly = false;
+        }
+    }
+    
+    /**
+     * Handle to remove this callback from one method again
+     */
+    public class Unhook {
+        private final Member hookMethod;
+        
+        public Unhook(Member hookMethod) {
+            this.hookMethod = hookMethod;
+        }
+        
+        public Member getHookedMethod() {
+            return hookMethod;
+        }
+        
+        public XC_MethodHook getCallback() {
+            return XC_MethodHook.this;
+        }
+        
+        public void unhook() {
+            XposedBridge.unhookMethod(hookMethod, XC_MethodHook.this);
+        }
+    }
+}
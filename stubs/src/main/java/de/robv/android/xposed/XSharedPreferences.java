@@ -0,0 +1,77 @@
+package de.robv.android.xposed;
+
+import android.content.SharedPreferences;
+
+import com.example.forcestatusbar.sim.MemoryPreferences;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Read-only view of another package's preferences. The simulator fills them in
+ * through {@link #store} where the module app would have written its file.
+ */
+public final class XSharedPreferences implements SharedPreferences {
+    
+    private static final Map<String, MemoryPreferences> stores = new HashMap<>();
+    
+    private final MemoryPreferences prefs;
+    
+    public XSharedPreferences(String packageName, String prefFileName) {
+        this.prefs = store(packageName, prefFileName);
+    }
+    
+    /**
+     * The writable preferences behind {@code packageName/prefFileName}
+     */
+    public static synchronized MemoryPreferences store(String packageName, String prefFileName) {
+        String key = packageName + "/" + prefFileName;
+        MemoryPreferences store = stores.get(key);
+        if (store == null) {
+            store = new MemoryPreferences();
+            stores.put(key, store);
+        }
+        return store;
+    }
+    
+    @Override
+    public Map<String, ?> getAll() {
+        return prefs.getAll();
+    }
+    
+    @Override
+    public String getString(String key, String defValue) {
+        return prefs.getString(key, defValue);
+    }
+    
+    @Override
+    public Set<String> getStringSet(String key, Set<String> defValues) {
+        return prefs.getStringSet(key, defValues);
+    }
+    
+    @Override
+    public int getInt(String key, int defValue) {
+        return prefs.getInt(key, defValue);
+    }
+    
+    @Override
+    public long getLong(String key, long defValue) {
+        return prefs.getLong(key, defValue);
+    }
+    
+    @Override
+    public boolean getBoolean(String key, boolean defValue) {
+        return prefs.getBoolean(key, defValue);
+    }
+    
+    @Override
+    public boolean contains(String key) {
+        return prefs.contains(key);
+    }
+    
+    @Override
+    public Editor edit() {
+        throw new UnsupportedOperationException("XSharedPreferences is read-only");
+    }
+}
@@ -0,0 +1,63 @@
+package de.robv.android.xposed;
+
+import com.example.forcestatusbar.sim.HookedMethod;
+
+import java.lang.reflect.Member;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * XposedBridge on top of the simulator's {@link HookedMethod}s; log lines are kept for the report
+ */
+public final class XposedBridge {
+    
+    private static final List<String> lines = new ArrayList<>();
+    
+    private XposedBridge() {
+    }
+    
+    public static XC_MethodHook.Unhook hookMethod(Member hookMethod, XC_MethodHook callback) {
+        HookedMethod.forMember(hookMethod).add(callback);
+        return callback.new Unhook(hookMethod);
+    }
+    
+    public static void unhookMethod(Member hookMethod, XC_MethodHook callback) {
+        HookedMethod.forMember(hookMethod).remove(callback);
+    }
+    
+    /**
+     * Hook every method of that name declared by the class itself
+     */
+    public static Set<XC_MethodHook.Unhook> hookAllMethods(Class<?> hookClass, String methodName,
+            XC_MethodHook callback) {
+        Set<XC_MethodHook.Unhook> unhooks = new HashSet<>();
+        for (Method method : hookClass.getDeclaredMethods()) {
+            if (method.getName().equals(methodName)) {
+                unhooks.add(hookMethod(method, callback));
+            }
+        }
+        return unhooks;
+    }
+    
+    public static void log(String text) {
+        synchronized (lines) {
+            lines.add(text);
+        }
+    }
+    
+    public static void log(Throwable t) {
+        log(t.getClass().getName() + ": " + t.getMessage());
+    }
+    
+    /**
+     * Everything logged so far, in order
+     */
+    public static List<String> lines() {
+        synchronized (lines) {
+            return new ArrayList<>(lines);
+        }
+    }
+}
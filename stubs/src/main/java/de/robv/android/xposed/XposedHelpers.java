@@ -0,0 +1,207 @@
+package de.robv.android.xposed;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.Arrays;
+
+/**
+ * XposedHelpers over plain reflection, with the real lookup rules and errors
+ */
+public final class XposedHelpers {
+    
+    private XposedHelpers() {
+    }
+    
+    public static final class ClassNotFoundError extends Error {
+        public ClassNotFoundError(Throwable cause) {
+            super(cause);
+        }
+    }
+    
+    public static Class<?> findClass(String className, ClassLoader classLoader) {
+        try {
+            return Class.forName(className, false,
+                classLoader != null ? classLoader : XposedHelpers.class.getClassLoader());
+        } catch (ClassNotFoundException e) {
+            throw new ClassNotFoundError(e);
+        }
+    }
+    
+    public static Class<?> findClassIfExists(String className, ClassLoader classLoader) {
+        try {
+            return findClass(className, classLoader);
+        } catch (ClassNotFoundError e) {
+            return null;
+        }
+    }
+    
+    /**
+     * A field of the class or of one of its superclasses, made accessible
+     */
+    public static Field findField(Class<?> clazz, String fieldName) {
+        for (Class<?> c = clazz; c != null; c = c.getSuperclass()) {
+            try {
+                Field field = c.getDeclaredField(fieldName);
+                field.setAccessible(true);
+                return field;
+            } catch (NoSuchFieldException e) {
+                // Look in the superclass
+            }
+        }
+        throw new NoSuchFieldError(clazz.getName() + "#" + fieldName);
+    }
+    
+    public static Field findFieldIfExists(Class<?> clazz, String fieldName) {
+        try {
+            return findField(clazz, fieldName);
+        } catch (NoSuchFieldError e) {
+            return null;
+        }
+    }
+    
+    /**
+     * The method declared by the class itself with exactly these parameter types (classes or class names)
+     */
+    public static Method findMethodExact(Class<?> clazz, String methodName, Object... parameterTypes) {
+        Class<?>[] types = toClasses(clazz.getClassLoader(), parameterTypes);
+        try {
+            Method method = clazz.getDeclaredMethod(methodName, types);
+            method.setAccessible(true);
+            return method;
+        } catch (NoSuchMethodException e) {
+            throw new NoSuchMethodError(clazz.getName() + "#" + methodName + Arrays.toString(types) + "#exact");
+        }
+    }
+    
+    public static Method findMethodExactIfExists(Class<?> clazz, String methodName, Object... parameterTypes) {
+        try {
+            return findMethodExact(clazz, methodName, parameterTypes);
+        } catch (NoSuchMethodError | ClassNotFoundError e) {
+            return null;
+        }
+    }
+    
+    public static XC_MethodHook.Unhook findAndHookMethod(Class<?> clazz, String methodName,
+            Object... parameterTypesAndCallback) {
+        if (parameterTypesAndCallback.length == 0
+                || !(parameterTypesAndCallback[parameterTypesAndCallback.length - 1] instanceof XC_MethodHook)) {
+            throw new IllegalArgumentException("no callback defined");
+        }
+        XC_MethodHook callback = (XC_MethodHook) parameterTypesAndCallback[parameterTypesAndCallback.length - 1];
+        Object[] parameterTypes = Arrays.copyOf(parameterTypesAndCallback, parameterTypesAndCallback.length - 1);
+        Method method = findMethodExact(clazz, methodName, parameterTypes);
+        if (Modifier.isAbstract(method.getModifiers())) {
+            throw new IllegalArgumentException("Cannot hook abstract methods: " + method);
+        }
+        return XposedBridge.hookMethod(method, callback);
+    }
+    
+    public static XC_MethodHook.Unhook findAndHookMethod(String className, ClassLoader classLoader,
+            String methodName, Object... parameterTypesAndCallback) {
+        return findAndHookMethod(findClass(className, classLoader), methodName, parameterTypesAndCallback);
+    }
+    
+    public static int getIntField(Object obj, String fieldName) {
+        try {
+            return findField(obj.getClass(), fieldName).getInt(obj);
+        } catch (IllegalAccessException e) {
+            throw new IllegalAccessError(e.getMessage());
+        }
+    }
+    
+    public static Object callMethod(Object obj, String methodName, Object... args) {
+        return call(obj.getClass(), obj, methodName, args);
+    }
+    
+    public static Object callStaticMethod(Class<?> clazz, String methodName, Object... args) {
+        return call(clazz, null, methodName, args);
+    }
+    
+    /**
+     * First method of the name that takes the arguments, looking up the superclasses
+     */
+    private static Object call(Class<?> clazz, Object obj, String methodName, Object[] args) {
+        for (Class<?> c = clazz; c != null; c = c.getSuperclass()) {
+            for (Method method : c.getDeclaredMethods()) {
+                if (method.getName().equals(methodName) && (obj != null || Modifier.isStatic(method.getModifiers()))
+                        && accepts(method.getParameterTypes(), args)) {
+                    method.setAccessible(true);
+                    try {
+                        return method.invoke(obj, args);
+                    } catch (IllegalAccessException e) {
+                        throw new IllegalAccessError(e.getMessage());
+                    } catch (InvocationTargetException e) {
+                        throw new InvocationTargetError(e.getCause());
+                    }
+                }
+            }
+        }
+        throw new NoSuchMethodError(clazz.getName() + "#" + methodName + "#bestmatch");
+    }
+    
+    public static final class InvocationTargetError extends Error {
+        public InvocationTargetError(Throwable cause) {
+            super(cause);
+        }
+    }
+    
+    private static boolean accepts(Class<?>[] types, Object[] args) {
+        if (types.length != args.length) {
+            return false;
+        }
+        for (int i = 0; i < types.length; i++) {
+            if (args[i] != null && !box(types[i]).isInstance(args[i])) {
+                return false;
+            }
+            if (args[i] == null && types[i].isPrimitive()) {
+                return false;
+            }
+        }
+        return true;
+    }
+    
+    private static Class<?> box(Class<?> type) {
+        if (!type.isPrimitive()) {
+            return type;
+        }
+        if (type == int.class) {
+            return Integer.class;
+        }
+        if (type == boolean.class) {
+            return Boolean.class;
+        }
+        if (type == long.class) {
+            return Long.class;
+        }
+        if (type == float.class) {
+            return Float.class;
+        }
+        if (type == double.class) {
+            return Double.class;
+        }
+        if (type == byte.class) {
+            return Byte.class;
+        }
+        if (type == short.class) {
+            return Short.class;
+        }
+        return Character.class;
+    }
+    
+    private static Class<?>[] toClasses(ClassLoader classLoader, Object[] parameterTypes) {
+        Class<?>[] classes = new Class<?>[parameterTypes.length];
+        for (int i = 0; i < parameterTypes.length; i++) {
+            Object type = parameterTypes[i];
+            if (type instanceof Class) {
+                classes[i] = (Class<?>) type;
+            } else if (type instanceof String) {
+                classes[i] = findClass((String) type, classLoader);
+            } else {
+                throw new IllegalArgumentException("parameter type must either be specified as Class or String");
+            }
+        }
+        return classes;
+    }
+}
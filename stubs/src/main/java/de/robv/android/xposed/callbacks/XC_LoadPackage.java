@@ -0,0 +1,17 @@
+package de.robv.android.xposed.callbacks;
+
+import android.content.pm.ApplicationInfo;
+
+/**
+ * Holder of the parameters a package load passes to the module
+ */
+public abstract class XC_LoadPackage {
+    
+    public static final class LoadPackageParam {
+        public String packageName;
+        public String processName;
+        public ClassLoader classLoader;
+        public ApplicationInfo appInfo;
+        public boolean isFirstApplication;
+    }
+}